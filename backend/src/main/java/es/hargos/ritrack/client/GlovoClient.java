@@ -1,10 +1,18 @@
 package es.hargos.ritrack.client;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import es.hargos.ritrack.dto.RoosterEmployeeDto;
 import es.hargos.ritrack.entity.GlovoCredentialsEntity;
-import es.hargos.ritrack.repository.GlovoCredentialsRepository;
 import es.hargos.ritrack.service.ApiMonitoringService;
+import es.hargos.ritrack.service.GlovoCredentialsRegistry;
 import es.hargos.ritrack.service.RateLimitService;
 import es.hargos.ritrack.service.TenantTokenService;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.Header;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,9 +21,24 @@ import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -36,11 +59,15 @@ public class GlovoClient {
 
     private static final Logger logger = LoggerFactory.getLogger(GlovoClient.class);
 
+    // Live API pagination
+    private static final int CITY_PAGE_SIZE = 100;
+    private static final int MAX_CITY_PAGES = 50;
+
     @Autowired
     private TenantTokenService tokenService;
 
     @Autowired
-    private GlovoCredentialsRepository credentialsRepository;
+    private GlovoCredentialsRegistry credentialsRegistry;
 
     @Autowired
     private RateLimitService rateLimitService;
@@ -48,17 +75,36 @@ public class GlovoClient {
     @Autowired
     private ApiMonitoringService monitoringService;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    private GlovoHttpClientFactory httpClientFactory;
+
+    @Autowired
+    private GlovoTenantGuard tenantGuard;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Inline token refresh for the async path (blocking I/O, one virtual thread per refresh)
+    private static final ExecutorService TOKEN_EXECUTOR = Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("GlovoToken-", 0).factory());
+
+    // Single-flight: identical GETs in progress (tenant + URL -> shared future)
+    private final ConcurrentMap<String, CompletableFuture<Map<String, Object>>> inFlightGets = new ConcurrentHashMap<>();
+    private final LongAdder flightsStarted = new LongAdder();
+    private final LongAdder coalescedRequests = new LongAdder();
 
     /**
-     * Get Glovo credentials for a tenant
+     * RestTemplate pooled del tenant (timeouts por tenant)
+     */
+    private RestTemplate restTemplate(Long tenantId) {
+        return httpClientFactory.forTenant(tenantId);
+    }
+
+    /**
+     * Get Glovo credentials for a tenant (in-memory registry, no DB query on the hot path)
      */
     private GlovoCredentialsEntity getCredentials(Long tenantId) {
-        return credentialsRepository
-            .findByTenantIdAndIsActive(tenantId, true)
-            .orElseThrow(() -> new RuntimeException(
-                "No active Glovo credentials found for tenant " + tenantId
-            ));
+        return credentialsRegistry.getActiveCredentials(tenantId);
     }
 
     /**
@@ -71,15 +117,34 @@ public class GlovoClient {
     }
 
     /**
-     * Execute HTTP request with rate limiting, 429 monitoring, and metadata
+     * Execute HTTP request with circuit breaker / bulkhead, rate limiting, 429 monitoring, and metadata
      */
     private <T> T executeWithRateLimit(Long tenantId,
                                         RateLimitService.RequestPriority priority,
                                         HttpRequestExecutor<T> executor,
                                         String endpoint,
                                         String callingService) throws Exception {
+        GlovoTenantGuard.Permit permit = tenantGuard.acquire(tenantId);
+        try {
+            T result = executeRateLimited(tenantId, priority, executor, endpoint, callingService);
+            tenantGuard.release(permit, null);
+            return result;
+        } catch (Exception e) {
+            tenantGuard.release(permit, e);
+            throw e;
+        }
+    }
+
+    private <T> T executeRateLimited(Long tenantId,
+                                      RateLimitService.RequestPriority priority,
+                                      HttpRequestExecutor<T> executor,
+                                      String endpoint,
+                                      String callingService) throws Exception {
         return rateLimitService.executeWithRateLimit(tenantId, priority, () -> {
-            try {
+            // Hueco del bulkhead solo durante la petición HTTP, no durante la espera del rate limiter
+            // Las RuntimeException (HttpClientErrorException, GlovoUnavailableException...) llegan sin
+            // envolver al llamador, igual que en los métodos que pasan por joinUnwrapped
+            try (GlovoTenantGuard.BulkheadSlot slot = tenantGuard.enterBulkhead(tenantId)) {
                 return executor.execute();
             } catch (RateLimitService.RateLimitExceededException e) {
                 // Registrar 429 en monitoreo
@@ -88,13 +153,15 @@ public class GlovoClient {
             } catch (HttpClientErrorException e) {
                 // Capturar 429s que vienen directamente de la API
                 if (e.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS) {
-                    monitoringService.recordRateLimitError(tenantId, endpoint, callingService);
+                    onGlovoRateLimited(tenantId, e.getResponseHeaders(), endpoint, callingService);
                 }
-                throw new RuntimeException(e);
+                throw e;
+            } catch (RuntimeException e) {
+                throw e;
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
-        }, 3);
+        });
     }
 
     @FunctionalInterface
@@ -109,26 +176,28 @@ public class GlovoClient {
     /**
      * Get all employees for a tenant
      * GET /v3/external/employees
+     *
+     * The body (~10k employees) is decoded token by token straight into compact
+     * RoosterEmployeeDto records; the full Map tree is never built.
      */
-    public List<?> getEmployees(Long tenantId) throws Exception {
+    public List<RoosterEmployeeDto> getEmployees(Long tenantId) throws Exception {
         return executeWithRateLimit(tenantId, RateLimitService.RequestPriority.HIGH, () -> {
             GlovoCredentialsEntity credentials = getCredentials(tenantId);
             String token = tokenService.getAccessToken(tenantId);
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setBearerAuth(token);
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-
             String url = credentials.getRoosterBaseUrl() + "/v3/external/employees?size=10000";
 
-            ResponseEntity<List<Map<String, Object>>> response = restTemplate.exchange(
+            List<RoosterEmployeeDto> employees = restTemplate(tenantId).execute(
                 url,
                 HttpMethod.GET,
-                entity,
-                new ParameterizedTypeReference<>() {}
+                request -> {
+                    request.getHeaders().setBearerAuth(token);
+                    request.getHeaders().setAccept(Collections.singletonList(MediaType.APPLICATION_JSON));
+                },
+                response -> RoosterEmployeeStreamParser.parse(objectMapper.getFactory(), response.getBody())
             );
 
-            return response.getBody();
+            return employees != null ? employees : List.of();
         });
     }
 
@@ -148,7 +217,7 @@ public class GlovoClient {
             String url = credentials.getRoosterBaseUrl() + "/v3/external/employees/" + id;
 
             try {
-                ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
+                ResponseEntity<Map<String, Object>> response = restTemplate(tenantId).exchange(
                     url,
                     HttpMethod.GET,
                     entity,
@@ -178,7 +247,7 @@ public class GlovoClient {
             String url = credentials.getRoosterBaseUrl() + "/v3/external/employees/" + employeeId;
 
             try {
-                ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
+                ResponseEntity<Map<String, Object>> response = restTemplate(tenantId).exchange(
                     url,
                     HttpMethod.PUT,
                     entity,
@@ -220,7 +289,7 @@ public class GlovoClient {
 
             String url = credentials.getRoosterBaseUrl() + "/v3/external/employees";
 
-            ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
+            ResponseEntity<Map<String, Object>> response = restTemplate(tenantId).exchange(
                 url,
                 HttpMethod.POST,
                 entity,
@@ -249,7 +318,7 @@ public class GlovoClient {
             String url = credentials.getRoosterBaseUrl() + "/v3/external/employees/" +
                          employeeId + "/starting-points";
 
-            ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
+            ResponseEntity<Map<String, Object>> response = restTemplate(tenantId).exchange(
                 url,
                 HttpMethod.POST,
                 entity,
@@ -278,7 +347,7 @@ public class GlovoClient {
             String url = credentials.getRoosterBaseUrl() + "/v3/external/employees/" +
                          employeeId + "/vehicle-types";
 
-            ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
+            ResponseEntity<Map<String, Object>> response = restTemplate(tenantId).exchange(
                 url,
                 HttpMethod.PUT,
                 entity,
@@ -309,7 +378,7 @@ public class GlovoClient {
             String url = credentials.getLiveBaseUrl() + "/v2/external/rider/" + riderId;
 
             try {
-                ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
+                ResponseEntity<Map<String, Object>> response = restTemplate(tenantId).exchange(
                     url,
                     HttpMethod.GET,
                     entity,
@@ -337,43 +406,335 @@ public class GlovoClient {
      */
     public Object getRidersByCity(Long tenantId, Integer cityId,
                                    Integer page, Integer size, String sortBy) throws Exception {
-        return executeWithRateLimit(tenantId, RateLimitService.RequestPriority.MEDIUM, () -> {
-            GlovoCredentialsEntity credentials = getCredentials(tenantId);
-            String token = tokenService.getAccessToken(tenantId);
+        // Same path as the async API so concurrent identical reads share one request
+        return joinUnwrapped(getRidersByCityAsync(tenantId, cityId, page, size, sortBy));
+    }
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setBearerAuth(token);
-            HttpEntity<String> entity = new HttpEntity<>(headers);
+    private String buildRidersByCityUrl(String liveBaseUrl, Integer cityId,
+                                        Integer page, Integer size, String sortBy) {
+        StringBuilder urlBuilder = new StringBuilder(liveBaseUrl +
+            "/v1/external/city/" + cityId + "/riders?");
+
+        if (page != null) {
+            urlBuilder.append("page=").append(page).append("&");
+        }
+        if (size != null) {
+            urlBuilder.append("size=").append(size).append("&");
+        }
+        if (sortBy != null) {
+            urlBuilder.append("sort_by=").append(sortBy);
+        }
+
+        return urlBuilder.toString();
+    }
+
+    // ========================================
+    // ASYNC API - NON-BLOCKING (CompletableFuture)
+    // ========================================
+
+    /**
+     * Get employee by ID (non-blocking)
+     * GET /v3/external/employees/{employee_id}
+     *
+     * @return Future with the employee map, or null if not found
+     */
+    public CompletableFuture<Map<String, Object>> getEmployeeByIdAsync(Long tenantId, int id) {
+        return getJsonAsync(tenantId, RateLimitService.RequestPriority.HIGH,
+            credentials -> credentials.getRoosterBaseUrl() + "/v3/external/employees/" + id,
+            "/v3/external/employees/{id}");
+    }
+
+    /**
+     * Get rider live data (non-blocking)
+     * GET /v2/external/rider/{rider_id}
+     *
+     * @return Future with the live data map, or null if not found
+     */
+    public CompletableFuture<Map<String, Object>> getRiderLiveDataAsync(Long tenantId, int riderId) {
+        return getJsonAsync(tenantId, RateLimitService.RequestPriority.MEDIUM,
+            credentials -> credentials.getLiveBaseUrl() + "/v2/external/rider/" + riderId,
+            "/v2/external/rider/{id}");
+    }
+
+    /**
+     * Get riders by city (non-blocking)
+     * GET /v1/external/city/{city_id}/riders
+     */
+    public CompletableFuture<Map<String, Object>> getRidersByCityAsync(Long tenantId, Integer cityId) {
+        return getRidersByCityAsync(tenantId, cityId, null, 100, "id");
+    }
+
+    /**
+     * Get riders by city with pagination (non-blocking)
+     * GET /v1/external/city/{city_id}/riders
+     *
+     * @return Future with the page map, or null if the city is not found
+     */
+    public CompletableFuture<Map<String, Object>> getRidersByCityAsync(Long tenantId, Integer cityId,
+                                                                      Integer page, Integer size, String sortBy) {
+        return getJsonAsync(tenantId, RateLimitService.RequestPriority.MEDIUM,
+            credentials -> buildRidersByCityUrl(credentials.getLiveBaseUrl(), cityId, page, size, sortBy),
+            "/v1/external/city/{id}/riders");
+    }
+
+    /**
+     * Non-blocking GET returning a JSON object.
+     * Rate limit permit is acquired without sleeping; the request runs on the async
+     * HTTP client (HTTP/2 when negotiated) and no caller thread is held while waiting.
+     * 404 completes with null; other error statuses complete exceptionally with the
+     * same HttpClientErrorException / HttpServerErrorException as the blocking API.
+     *
+     * SINGLE-FLIGHT: concurrent identical GETs (same tenant + URL) share one in-flight
+     * request and its result, spending a single rate-limit token. The shared result is
+     * published deeply unmodifiable (maps and lists at every level), so no caller can
+     * change what the others, cityRidersCache or the snapshot store see. Each caller
+     * receives its own dependent future, so cancelling it does not affect the others.
+     */
+    private CompletableFuture<Map<String, Object>> getJsonAsync(Long tenantId,
+                                                               RateLimitService.RequestPriority priority,
+                                                               Function<GlovoCredentialsEntity, String> urlBuilder,
+                                                               String endpoint) {
+        String url;
+        try {
+            url = urlBuilder.apply(getCredentials(tenantId));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        String flightKey = tenantId + "|" + url;
+        CompletableFuture<Map<String, Object>> flight = new CompletableFuture<>();
+        CompletableFuture<Map<String, Object>> existing = inFlightGets.putIfAbsent(flightKey, flight);
+
+        if (existing != null) {
+            coalescedRequests.increment();
+            return existing.thenApply(Function.identity());
+        }
 
-            StringBuilder urlBuilder = new StringBuilder(credentials.getLiveBaseUrl() +
-                "/v1/external/city/" + cityId + "/riders?");
+        GlovoTenantGuard.Permit permit;
+        try {
+            permit = tenantGuard.acquire(tenantId);
+        } catch (RuntimeException e) {
+            inFlightGets.remove(flightKey, flight);
+            flight.completeExceptionally(e);
+            return flight.thenApply(Function.identity());
+        }
 
-            if (page != null) {
-                urlBuilder.append("page=").append(page).append("&");
+        flightsStarted.increment();
+        executeGetAsync(tenantId, priority, url, endpoint).whenComplete((result, ex) -> {
+            tenantGuard.release(permit, ex);
+            inFlightGets.remove(flightKey, flight);
+            if (ex != null) {
+                flight.completeExceptionally(ex);
+            } else {
+                flight.complete(immutableJson(result));
             }
-            if (size != null) {
-                urlBuilder.append("size=").append(size).append("&");
+        });
+
+        return flight.thenApply(Function.identity());
+    }
+
+    /**
+     * Read-only deep view of a parsed JSON object (null stays null)
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> immutableJson(Map<String, Object> json) {
+        return json != null ? (Map<String, Object>) immutableJsonValue(json) : null;
+    }
+
+    private static Object immutableJsonValue(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> copy = new LinkedHashMap<>(map.size());
+            map.forEach((key, item) -> copy.put(key, immutableJsonValue(item)));
+            return Collections.unmodifiableMap(copy);
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            list.forEach(item -> copy.add(immutableJsonValue(item)));
+            return Collections.unmodifiableList(copy);
+        }
+        return value;
+    }
+
+    private CompletableFuture<Map<String, Object>> executeGetAsync(Long tenantId,
+                                                                  RateLimitService.RequestPriority priority,
+                                                                  String url,
+                                                                  String endpoint) {
+        return rateLimitService.acquireAsync(tenantId, priority)
+            .thenCompose(ignored -> tenantGuard.enterBulkheadAsync(tenantId))
+            .thenCompose(slot -> sendGetAsync(tenantId, url)
+                .whenComplete((response, ex) -> slot.close()))
+            .thenApply(response -> parseJsonResponse(tenantId, response, endpoint));
+    }
+
+    /**
+     * Token + GET on the async HTTP client (the caller holds the bulkhead slot)
+     */
+    private CompletableFuture<SimpleHttpResponse> sendGetAsync(Long tenantId, String url) {
+        return accessTokenAsync(tenantId)
+            .thenCompose(token -> {
+                SimpleHttpRequest request = SimpleRequestBuilder.get(url)
+                    .setHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                    .setHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                    .setRequestConfig(httpClientFactory.asyncRequestConfig(tenantId))
+                    .build();
+
+                CompletableFuture<SimpleHttpResponse> responseFuture = new CompletableFuture<>();
+                httpClientFactory.getAsyncClient().execute(request, new FutureCallback<>() {
+                    @Override
+                    public void completed(SimpleHttpResponse response) {
+                        responseFuture.complete(response);
+                    }
+
+                    @Override
+                    public void failed(Exception ex) {
+                        responseFuture.completeExceptionally(ex);
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        responseFuture.cancel(false);
+                    }
+                });
+                return responseFuture;
+            });
+    }
+
+    /**
+     * Access token for the async path. A cached valid token is used inline; a refresh
+     * (blocking OAuth POST + private key load) never runs on the thread that completed
+     * the previous stage (HTTP I/O reactor, rate limiter), only on TOKEN_EXECUTOR.
+     */
+    private CompletableFuture<String> accessTokenAsync(Long tenantId) {
+        String cached = tokenService.getCachedAccessToken(tenantId);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return tokenService.getAccessToken(tenantId);
+            } catch (Exception e) {
+                throw new CompletionException(e);
             }
-            if (sortBy != null) {
-                urlBuilder.append("sort_by=").append(sortBy);
+        }, TOKEN_EXECUTOR);
+    }
+
+    /**
+     * Single-flight statistics (for monitoring)
+     */
+    public Map<String, Object> getCoalescingMetrics() {
+        long started = flightsStarted.sum();
+        long coalesced = coalescedRequests.sum();
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("inFlight", inFlightGets.size());
+        metrics.put("requestsSent", started);
+        metrics.put("requestsCoalesced", coalesced);
+        metrics.put("coalescingRate", started + coalesced > 0
+            ? String.format("%.2f%%", coalesced * 100.0 / (started + coalesced))
+            : "0.00%");
+        return metrics;
+    }
+
+    /**
+     * Blocking join that rethrows the original exception instead of CompletionException
+     */
+    private static <T> T joinUnwrapped(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof Exception ex) {
+                throw ex;
             }
+            throw e;
+        }
+    }
 
-            String finalUrl = urlBuilder.toString();
+    /**
+     * 429 real de Glovo: registrar en monitoreo y reducir el ritmo del tenant (AIMD)
+     */
+    private void onGlovoRateLimited(Long tenantId, HttpHeaders headers, String endpoint, String callingService) {
+        monitoringService.recordRateLimitError(tenantId, endpoint, callingService);
+        rateLimitService.onRateLimited(tenantId, parseRetryAfter(headers));
+    }
+
+    /**
+     * Wait requested by Glovo: Retry-After (seconds or HTTP-date), or RateLimit-Reset /
+     * X-RateLimit-Reset (seconds, or epoch seconds). Null when no header is present.
+     */
+    static Duration parseRetryAfter(HttpHeaders headers) {
+        if (headers == null) {
+            return null;
+        }
 
+        String retryAfter = headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (retryAfter != null && !retryAfter.isBlank()) {
             try {
-                ResponseEntity<Map<String, Object>> response = restTemplate.exchange(
-                    finalUrl,
-                    HttpMethod.GET,
-                    entity,
-                    new ParameterizedTypeReference<>() {}
-                );
+                return Duration.ofSeconds(Long.parseLong(retryAfter.trim()));
+            } catch (NumberFormatException e) {
+                try {
+                    ZonedDateTime retryAt = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                    Duration wait = Duration.between(ZonedDateTime.now(retryAt.getZone()), retryAt);
+                    return wait.isNegative() ? Duration.ZERO : wait;
+                } catch (DateTimeParseException ignored) {
+                    logger.debug("Retry-After no reconocido: {}", retryAfter);
+                }
+            }
+        }
 
-                return response.getBody();
-            } catch (HttpClientErrorException.NotFound e) {
-                logger.warn("City {} not found in Live API for tenant {}", cityId, tenantId);
-                return null;
+        for (String name : List.of("RateLimit-Reset", "X-RateLimit-Reset")) {
+            String reset = headers.getFirst(name);
+            if (reset == null || reset.isBlank()) {
+                continue;
             }
-        });
+            try {
+                long value = Long.parseLong(reset.trim());
+                // Valores grandes son epoch seconds, no segundos de espera
+                if (value > 1_000_000_000L) {
+                    value = Math.max(0, value - System.currentTimeMillis() / 1000);
+                }
+                return Duration.ofSeconds(value);
+            } catch (NumberFormatException e) {
+                logger.debug("{} no reconocido: {}", name, reset);
+            }
+        }
+
+        return null;
+    }
+
+    private Map<String, Object> parseJsonResponse(Long tenantId, SimpleHttpResponse response, String endpoint) {
+        int code = response.getCode();
+
+        if (code == HttpStatus.NOT_FOUND.value()) {
+            logger.warn("Tenant {}: 404 en Live/Rooster async {}", tenantId, endpoint);
+            return null;
+        }
+
+        if (code >= 400) {
+            HttpHeaders headers = new HttpHeaders();
+            for (Header header : response.getHeaders()) {
+                headers.add(header.getName(), header.getValue());
+            }
+            if (code == HttpStatus.TOO_MANY_REQUESTS.value()) {
+                onGlovoRateLimited(tenantId, headers, endpoint, "GlovoClient");
+            }
+            byte[] body = response.getBodyBytes() != null ? response.getBodyBytes() : new byte[0];
+            HttpStatusCode status = HttpStatusCode.valueOf(code);
+            throw status.is4xxClientError()
+                ? HttpClientErrorException.create(status, response.getReasonPhrase(), headers, body, StandardCharsets.UTF_8)
+                : HttpServerErrorException.create(status, response.getReasonPhrase(), headers, body, StandardCharsets.UTF_8);
+        }
+
+        byte[] body = response.getBodyBytes();
+        if (body == null || body.length == 0) {
+            return null;
+        }
+
+        try {
+            return objectMapper.readValue(body, new TypeReference<Map<String, Object>>() {});
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
     }
 
     // ========================================
@@ -395,7 +756,7 @@ public class GlovoClient {
 
             String url = credentials.getRoosterBaseUrl() + "/v3/external/contracts";
 
-            ResponseEntity<List<Object>> response = restTemplate.exchange(
+            ResponseEntity<List<Object>> response = restTemplate(tenantId).exchange(
                 url,
                 HttpMethod.GET,
                 entity,
@@ -421,7 +782,33 @@ public class GlovoClient {
 
             String url = credentials.getRoosterBaseUrl() + "/v3/external/vehicle-types";
 
-            ResponseEntity<List<Object>> response = restTemplate.exchange(
+            ResponseEntity<List<Object>> response = restTemplate(tenantId).exchange(
+                url,
+                HttpMethod.GET,
+                entity,
+                new ParameterizedTypeReference<>() {}
+            );
+
+            return response.getBody();
+        });
+    }
+
+    /**
+     * Get cities
+     * GET /v3/external/cities
+     */
+    public List<Object> getCities(Long tenantId) throws Exception {
+        return executeWithRateLimit(tenantId, RateLimitService.RequestPriority.LOW, () -> {
+            GlovoCredentialsEntity credentials = getCredentials(tenantId);
+            String token = tokenService.getAccessToken(tenantId);
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setBearerAuth(token);
+            HttpEntity<String> entity = new HttpEntity<>(headers);
+
+            String url = credentials.getRoosterBaseUrl() + "/v3/external/cities";
+
+            ResponseEntity<List<Object>> response = restTemplate(tenantId).exchange(
                 url,
                 HttpMethod.GET,
                 entity,
@@ -447,7 +834,7 @@ public class GlovoClient {
 
             String url = credentials.getRoosterBaseUrl() + "/v3/external/starting-points?city_id=" + cityId;
 
-            ResponseEntity<List<Object>> response = restTemplate.exchange(
+            ResponseEntity<List<Object>> response = restTemplate(tenantId).exchange(
                 url,
                 HttpMethod.GET,
                 entity,
@@ -467,45 +854,149 @@ public class GlovoClient {
      */
     public List<Map<String, Object>> getAllRidersFromCity(Long tenantId, Integer cityId)
             throws Exception {
-        List<Map<String, Object>> allRiders = new ArrayList<>();
-        Integer page = 0;
-        Integer size = 100;
+        return getAllRidersFromCity(tenantId, cityId, CITY_PAGE_SIZE, "id");
+    }
 
-        while (true) {
-            Object response = getRidersByCity(tenantId, cityId, page, size, "id");
+    /**
+     * Get all riders from a city with explicit page size and sort.
+     * Blocking wrapper over getAllRidersFromCityAsync.
+     */
+    public List<Map<String, Object>> getAllRidersFromCity(Long tenantId, Integer cityId,
+                                                          int pageSize, String sortBy) throws Exception {
+        return joinUnwrapped(getAllRidersFromCityAsync(tenantId, cityId, pageSize, sortBy));
+    }
 
-            if (response instanceof Map) {
-                @SuppressWarnings("unchecked")
-                Map<String, Object> responseMap = (Map<String, Object>) response;
+    /**
+     * Pagination engine for GET /v1/external/city/{city_id}/riders.
+     *
+     * 1. Fetch page 0 and read total_pages (root, meta or total_elements) / is_last.
+     * 2. Fire the remaining pages concurrently. Each request waits for a Live pacing
+     *    slot (token bucket, 4 req/s per tenant) instead of sleeping between pages.
+     * 3. Merge rows in page order. Both payload shapes are supported ("content" / "data").
+     *
+     * If the response carries no page count, pages are chained one after another until
+     * is_last or an empty page. Capped at 50 pages.
+     */
+    public CompletableFuture<List<Map<String, Object>>> getAllRidersFromCityAsync(Long tenantId, Integer cityId,
+                                                                                 int pageSize, String sortBy) {
+        return fetchCityPage(tenantId, cityId, 0, pageSize, sortBy).thenCompose(firstPage -> {
+            if (firstPage == null) {
+                return CompletableFuture.completedFuture(new ArrayList<>());
+            }
 
-                @SuppressWarnings("unchecked")
-                List<Map<String, Object>> riders =
-                    (List<Map<String, Object>>) responseMap.get("data");
+            List<Map<String, Object>> firstRows = extractPageRows(firstPage);
+            if (firstRows.isEmpty() || isLastPage(firstPage)) {
+                return CompletableFuture.completedFuture(new ArrayList<>(firstRows));
+            }
 
-                if (riders == null || riders.isEmpty()) {
-                    break;
-                }
+            Integer totalPages = extractTotalPages(firstPage, pageSize);
+            if (totalPages == null) {
+                return fetchRemainingPagesSequentially(tenantId, cityId, 1, pageSize, sortBy,
+                    new ArrayList<>(firstRows));
+            }
 
-                allRiders.addAll(riders);
+            int pages = Math.min(totalPages, MAX_CITY_PAGES);
+            if (totalPages > MAX_CITY_PAGES) {
+                logger.warn("Tenant {}, Ciudad {}: {} páginas, limitado a {}",
+                    tenantId, cityId, totalPages, MAX_CITY_PAGES);
+            }
 
-                @SuppressWarnings("unchecked")
-                Map<String, Object> meta = (Map<String, Object>) responseMap.get("meta");
-                if (meta != null) {
-                    Integer currentPage = (Integer) meta.get("current_page");
-                    Integer totalPages = (Integer) meta.get("total_pages");
+            List<CompletableFuture<Map<String, Object>>> pageFutures = new ArrayList<>(pages - 1);
+            for (int page = 1; page < pages; page++) {
+                pageFutures.add(fetchCityPage(tenantId, cityId, page, pageSize, sortBy));
+            }
 
-                    if (currentPage == null || totalPages == null || currentPage >= totalPages - 1) {
-                        break;
+            return CompletableFuture.allOf(pageFutures.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> {
+                    List<Map<String, Object>> allRows = new ArrayList<>(firstRows.size() * pages);
+                    allRows.addAll(firstRows);
+                    for (CompletableFuture<Map<String, Object>> pageFuture : pageFutures) {
+                        Map<String, Object> page = pageFuture.join();
+                        if (page != null) {
+                            allRows.addAll(extractPageRows(page));
+                        }
                     }
-                }
+                    logger.debug("Tenant {}, Ciudad {}: {} riders en {} páginas (concurrente)",
+                        tenantId, cityId, allRows.size(), pages);
+                    return allRows;
+                });
+        });
+    }
 
-                page++;
-            } else {
-                break;
+    private CompletableFuture<List<Map<String, Object>>> fetchRemainingPagesSequentially(
+            Long tenantId, Integer cityId, int page, int pageSize, String sortBy,
+            List<Map<String, Object>> accumulated) {
+        if (page >= MAX_CITY_PAGES) {
+            logger.warn("Tenant {}, Ciudad {}: Alcanzado límite máximo de páginas ({})",
+                tenantId, cityId, MAX_CITY_PAGES);
+            return CompletableFuture.completedFuture(accumulated);
+        }
+
+        return fetchCityPage(tenantId, cityId, page, pageSize, sortBy).thenCompose(response -> {
+            List<Map<String, Object>> rows = response != null ? extractPageRows(response) : List.of();
+            accumulated.addAll(rows);
+            if (rows.isEmpty() || isLastPage(response)) {
+                return CompletableFuture.completedFuture(accumulated);
             }
+            return fetchRemainingPagesSequentially(tenantId, cityId, page + 1, pageSize, sortBy, accumulated);
+        });
+    }
+
+    private CompletableFuture<Map<String, Object>> fetchCityPage(Long tenantId, Integer cityId,
+                                                               int page, int pageSize, String sortBy) {
+        return rateLimitService.acquireLivePageSlot(tenantId)
+            .thenCompose(ignored -> getRidersByCityAsync(tenantId, cityId, page, pageSize, sortBy));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> extractPageRows(Map<String, Object> page) {
+        Object rows = page.get("content");
+        if (rows == null) {
+            rows = page.get("data");
         }
+        return rows instanceof List ? (List<Map<String, Object>>) rows : List.of();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean isLastPage(Map<String, Object> page) {
+        if (Boolean.TRUE.equals(page.get("is_last"))) {
+            return true;
+        }
+        Object meta = page.get("meta");
+        if (meta instanceof Map) {
+            Map<String, Object> metaMap = (Map<String, Object>) meta;
+            Integer currentPage = toInteger(metaMap.get("current_page"));
+            Integer totalPages = toInteger(metaMap.get("total_pages"));
+            return currentPage != null && totalPages != null && currentPage >= totalPages - 1;
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Integer extractTotalPages(Map<String, Object> page, int pageSize) {
+        Integer totalPages = toInteger(page.get("total_pages"));
+        if (totalPages != null) {
+            return totalPages;
+        }
+
+        Object meta = page.get("meta");
+        if (meta instanceof Map) {
+            totalPages = toInteger(((Map<String, Object>) meta).get("total_pages"));
+            if (totalPages != null) {
+                return totalPages;
+            }
+        }
+
+        Integer totalElements = toInteger(page.get("total_elements"));
+        if (totalElements != null && pageSize > 0) {
+            return (totalElements + pageSize - 1) / pageSize;
+        }
+
+        return null;
+    }
 
-        return allRiders;
+    private static Integer toInteger(Object value) {
+        return value instanceof Number number ? number.intValue() : null;
     }
 
     /**
@@ -607,7 +1098,7 @@ public class GlovoClient {
         HttpEntity<Void> request = new HttpEntity<>(headers);
 
         try {
-            ResponseEntity<List<Map<String, Object>>> response = restTemplate.exchange(
+            ResponseEntity<List<Map<String, Object>>> response = httpClientFactory.getDefault().exchange(
                 citiesUrl,
                 HttpMethod.GET,
                 request,
@@ -0,0 +1,312 @@
+package es.hargos.ritrack.client;
+
+import es.hargos.ritrack.service.TenantSettingsService;
+import jakarta.annotation.PreDestroy;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.ManagedHttpClientConnectionFactory;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.io.ManagedHttpClientConnection;
+import org.apache.hc.core5.http.io.HttpConnectionFactory;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import javax.net.ssl.SSLSocket;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Motor HTTP compartido para las llamadas a Glovo (Rooster, Live y OAuth2).
+ *
+ * - Un único pool de conexiones keep-alive, con límite por ruta (host base) y global
+ * - Conexiones inactivas y expiradas se cierran en segundo plano
+ * - Cada tenant obtiene su propio RestTemplate con timeouts leídos de tenant_settings
+ *   (glovo_connect_timeout_ms / glovo_read_timeout_ms), todos sobre el mismo pool
+ * - Cliente asíncrono (NIO) con negociación HTTP/2 vía ALPN y fallback a HTTP/1.1,
+ *   para las variantes CompletableFuture de GlovoClient
+ * - Métricas de pool por ruta y ratio de reutilización de conexiones
+ */
+@Component
+public class GlovoHttpClientFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(GlovoHttpClientFactory.class);
+
+    public static final String CONNECT_TIMEOUT_SETTING = "glovo_connect_timeout_ms";
+    public static final String READ_TIMEOUT_SETTING = "glovo_read_timeout_ms";
+
+    private final TenantSettingsService tenantSettingsService;
+    private final int defaultConnectTimeoutMs;
+    private final int defaultReadTimeoutMs;
+    private final int connectionRequestTimeoutMs;
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final RestTemplate defaultRestTemplate;
+    private final PoolingAsyncClientConnectionManager asyncConnectionManager;
+    private final CloseableHttpAsyncClient asyncClient;
+    private final ConcurrentMap<Long, TenantHttpClient> tenantClients = new ConcurrentHashMap<>();
+
+    // Métricas de reutilización: peticiones enviadas vs conexiones físicas abiertas
+    private final LongAdder requestsExecuted = new LongAdder();
+    private final LongAdder connectionsCreated = new LongAdder();
+    private final LongAdder asyncRequestsExecuted = new LongAdder();
+
+    public GlovoHttpClientFactory(
+            TenantSettingsService tenantSettingsService,
+            @Value("${glovo.http.max-total:200}") int maxTotal,
+            @Value("${glovo.http.max-per-route:50}") int maxPerRoute,
+            @Value("${glovo.http.connect-timeout-ms:5000}") int defaultConnectTimeoutMs,
+            @Value("${glovo.http.read-timeout-ms:15000}") int defaultReadTimeoutMs,
+            @Value("${glovo.http.connection-request-timeout-ms:5000}") int connectionRequestTimeoutMs,
+            @Value("${glovo.http.keep-alive-seconds:60}") long keepAliveSeconds,
+            @Value("${glovo.http.idle-eviction-seconds:30}") long idleEvictionSeconds,
+            @Value("${glovo.http.async.io-threads:4}") int asyncIoThreads) {
+        this.tenantSettingsService = tenantSettingsService;
+        this.defaultConnectTimeoutMs = defaultConnectTimeoutMs;
+        this.defaultReadTimeoutMs = defaultReadTimeoutMs;
+        this.connectionRequestTimeoutMs = connectionRequestTimeoutMs;
+
+        this.connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxTotal)
+                .setMaxConnPerRoute(maxPerRoute)
+                .setConnectionFactory(new CountingConnectionFactory())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(defaultConnectTimeoutMs))
+                        .setTimeToLive(TimeValue.ofMinutes(5))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(10))
+                        .build())
+                .build();
+
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy((response, context) -> TimeValue.ofSeconds(keepAliveSeconds))
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(idleEvictionSeconds))
+                .addRequestInterceptorFirst((request, entity, context) -> requestsExecuted.increment())
+                .build();
+
+        this.defaultRestTemplate = buildRestTemplate(defaultConnectTimeoutMs, defaultReadTimeoutMs);
+
+        // Cliente asíncrono: HTTP/2 si el servidor lo negocia (una conexión multiplexada por host),
+        // HTTP/1.1 keep-alive en caso contrario
+        this.asyncConnectionManager = PoolingAsyncClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxTotal)
+                .setMaxConnPerRoute(maxPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(defaultConnectTimeoutMs))
+                        .setTimeToLive(TimeValue.ofMinutes(5))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(10))
+                        .build())
+                .setDefaultTlsConfig(TlsConfig.custom()
+                        .setVersionPolicy(HttpVersionPolicy.NEGOTIATE)
+                        .build())
+                .build();
+
+        this.asyncClient = HttpAsyncClients.custom()
+                .setConnectionManager(asyncConnectionManager)
+                .setIOReactorConfig(IOReactorConfig.custom()
+                        .setIoThreadCount(asyncIoThreads)
+                        .build())
+                .setKeepAliveStrategy((response, context) -> TimeValue.ofSeconds(keepAliveSeconds))
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(idleEvictionSeconds))
+                .addRequestInterceptorFirst((request, entity, context) -> asyncRequestsExecuted.increment())
+                .build();
+        this.asyncClient.start();
+
+        logger.info("Glovo HTTP pool inicializado - max total: {}, max por ruta: {}, keep-alive: {}s",
+                maxTotal, maxPerRoute, keepAliveSeconds);
+    }
+
+    /**
+     * RestTemplate del tenant, con sus timeouts configurados.
+     * Si los timeouts cambian en tenant_settings se reconstruye (el pool es el mismo).
+     */
+    public RestTemplate forTenant(Long tenantId) {
+        return tenantClient(tenantId).restTemplate();
+    }
+
+    /**
+     * RequestConfig del tenant para el cliente asíncrono (mismos timeouts que el RestTemplate)
+     */
+    public RequestConfig asyncRequestConfig(Long tenantId) {
+        return tenantClient(tenantId).asyncRequestConfig();
+    }
+
+    /**
+     * Cliente HTTP asíncrono compartido (ya arrancado)
+     */
+    public CloseableHttpAsyncClient getAsyncClient() {
+        return asyncClient;
+    }
+
+    private TenantHttpClient tenantClient(Long tenantId) {
+        int connectMs = readTimeoutSetting(tenantId, CONNECT_TIMEOUT_SETTING, defaultConnectTimeoutMs);
+        int readMs = readTimeoutSetting(tenantId, READ_TIMEOUT_SETTING, defaultReadTimeoutMs);
+
+        TenantHttpClient current = tenantClients.get(tenantId);
+        if (current != null && current.connectTimeoutMs() == connectMs && current.readTimeoutMs() == readMs) {
+            return current;
+        }
+
+        TenantHttpClient updated = new TenantHttpClient(connectMs, readMs,
+                buildRestTemplate(connectMs, readMs), buildAsyncRequestConfig(connectMs, readMs));
+        tenantClients.put(tenantId, updated);
+        logger.debug("Tenant {}: Cliente Glovo con connect={}ms, read={}ms", tenantId, connectMs, readMs);
+        return updated;
+    }
+
+    /**
+     * RestTemplate con timeouts por defecto (p.ej. validación de credenciales durante onboarding)
+     */
+    public RestTemplate getDefault() {
+        return defaultRestTemplate;
+    }
+
+    /**
+     * Descarta el RestTemplate cacheado de un tenant
+     */
+    public void evictTenant(Long tenantId) {
+        tenantClients.remove(tenantId);
+    }
+
+    /**
+     * Métricas del pool: totales, por ruta y ratio de reutilización
+     */
+    public Map<String, Object> getPoolMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+
+        PoolStats total = connectionManager.getTotalStats();
+        metrics.put("total", poolStatsToMap(total));
+
+        Map<String, Object> routes = new LinkedHashMap<>();
+        for (HttpRoute route : connectionManager.getRoutes()) {
+            routes.put(route.getTargetHost().toURI(), poolStatsToMap(connectionManager.getStats(route)));
+        }
+        metrics.put("routes", routes);
+
+        long requests = requestsExecuted.sum();
+        long created = connectionsCreated.sum();
+        metrics.put("requestsExecuted", requests);
+        metrics.put("connectionsCreated", created);
+        metrics.put("connectionReuseRate", requests > 0
+                ? String.format("%.2f%%", Math.max(0, requests - created) * 100.0 / requests)
+                : "0.00%");
+        metrics.put("tenantClients", tenantClients.size());
+
+        Map<String, Object> async = new LinkedHashMap<>();
+        async.put("total", poolStatsToMap(asyncConnectionManager.getTotalStats()));
+        Map<String, Object> asyncRoutes = new LinkedHashMap<>();
+        for (HttpRoute route : asyncConnectionManager.getRoutes()) {
+            asyncRoutes.put(route.getTargetHost().toURI(), poolStatsToMap(asyncConnectionManager.getStats(route)));
+        }
+        async.put("routes", asyncRoutes);
+        async.put("requestsExecuted", asyncRequestsExecuted.sum());
+        metrics.put("async", async);
+
+        return metrics;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        try {
+            httpClient.close();
+            asyncClient.close(CloseMode.GRACEFUL);
+            logger.info("Glovo HTTP pool cerrado");
+        } catch (IOException e) {
+            logger.warn("Error cerrando Glovo HTTP pool: {}", e.getMessage());
+        }
+    }
+
+    private RestTemplate buildRestTemplate(int connectTimeoutMs, int readTimeoutMs) {
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        requestFactory.setConnectTimeout(connectTimeoutMs);
+        requestFactory.setReadTimeout(readTimeoutMs);
+        requestFactory.setConnectionRequestTimeout(connectionRequestTimeoutMs);
+        return new RestTemplate(requestFactory);
+    }
+
+    /**
+     * El pool async es compartido por todos los tenants (y varios tenants usan el mismo host), así que
+     * el connect timeout del tenant no puede ir en el ConnectionConfig: va por petición. El cliente
+     * async lo respeta (InternalHttpAsyncExecRuntime lo pasa al connect del pool); está deprecado
+     * solo en favor de ConnectionConfig, que aquí no sirve.
+     */
+    @SuppressWarnings("deprecation")
+    private RequestConfig buildAsyncRequestConfig(int connectTimeoutMs, int readTimeoutMs) {
+        return RequestConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(connectionRequestTimeoutMs))
+                .build();
+    }
+
+    private int readTimeoutSetting(Long tenantId, String key, int defaultValue) {
+        String value = tenantSettingsService.getSetting(tenantId, key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            return parsed > 0 ? parsed : defaultValue;
+        } catch (NumberFormatException e) {
+            logger.warn("Tenant {}: Valor inválido para '{}': {}", tenantId, key, value);
+            return defaultValue;
+        }
+    }
+
+    private static Map<String, Object> poolStatsToMap(PoolStats stats) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("leased", stats.getLeased());
+        map.put("available", stats.getAvailable());
+        map.put("pending", stats.getPending());
+        map.put("max", stats.getMax());
+        return map;
+    }
+
+    private record TenantHttpClient(int connectTimeoutMs, int readTimeoutMs,
+                                    RestTemplate restTemplate, RequestConfig asyncRequestConfig) {
+    }
+
+    /**
+     * Cuenta cada conexión física nueva para poder calcular la tasa de reutilización
+     */
+    private class CountingConnectionFactory implements HttpConnectionFactory<ManagedHttpClientConnection> {
+
+        @Override
+        public ManagedHttpClientConnection createConnection(Socket socket) throws IOException {
+            connectionsCreated.increment();
+            return ManagedHttpClientConnectionFactory.INSTANCE.createConnection(socket);
+        }
+
+        @Override
+        public ManagedHttpClientConnection createConnection(SSLSocket sslSocket, Socket socket) throws IOException {
+            connectionsCreated.increment();
+            return ManagedHttpClientConnectionFactory.INSTANCE.createConnection(sslSocket, socket);
+        }
+    }
+}
@@ -0,0 +1,358 @@
+package es.hargos.ritrack.client;
+
+import es.hargos.ritrack.exception.GlovoUnavailableException;
+import es.hargos.ritrack.service.RateLimitService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Circuit breaker + bulkhead por tenant para las llamadas de GlovoClient.
+ *
+ * Circuit breaker:
+ * - CLOSED: las llamadas pasan; N fallos consecutivos (5xx, IO/timeout, 401/403) lo abren
+ * - OPEN: las llamadas fallan al instante con GlovoUnavailableException
+ * - HALF_OPEN: pasado el tiempo de apertura se deja pasar una única llamada de prueba;
+ *   si va bien se cierra, si falla vuelve a OPEN
+ * Solo una respuesta real (2xx o 404) cuenta como éxito y cierra la prueba. 429, el rate limit
+ * local, el bulkhead lleno y otros errores locales no dan veredicto: no suman fallo ni éxito, y
+ * una prueba que acaba así deja el breaker en HALF_OPEN para que la siguiente llamada reintente.
+ *
+ * Bulkhead: máximo de peticiones HTTP en curso por tenant. El hueco se toma después de
+ * obtener el permiso del rate limiter (la espera en su cola, incluida una pausa por 429,
+ * no ocupa hueco) y se espera como mucho max-wait-ms; así un tenant lento no acapara
+ * los hilos compartidos con el resto. El límite por defecto cubre el fan-out de una
+ * búsqueda (20 ciudades) más el poller de ubicaciones.
+ */
+@Component
+public class GlovoTenantGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(GlovoTenantGuard.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * Resultado de una llamada a efectos del breaker
+     */
+    enum Verdict {
+        SUCCESS, FAILURE, NO_VERDICT
+    }
+
+    @Value("${glovo.circuit.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${glovo.circuit.open-seconds:30}")
+    private long openSeconds;
+
+    @Value("${glovo.bulkhead.max-concurrent-per-tenant:32}")
+    private int maxConcurrentPerTenant;
+
+    @Value("${glovo.bulkhead.max-wait-ms:2000}")
+    private long bulkheadMaxWaitMs;
+
+    // Espera de hueco en el camino async (sin bloquear el hilo que completó el permiso)
+    private static final ExecutorService BULKHEAD_WAITERS = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("GlovoBulkhead-", 0).factory());
+
+    private final ConcurrentMap<Long, TenantGuard> guards = new ConcurrentHashMap<>();
+
+    /**
+     * Hueco concedido a una llamada; probe = llamada de prueba en HALF_OPEN
+     */
+    public record Permit(Long tenantId, boolean probe) {
+    }
+
+    /**
+     * Hueco del bulkhead ocupado por una petición HTTP; close() lo libera una sola vez
+     */
+    public static final class BulkheadSlot implements AutoCloseable {
+        private final Semaphore bulkhead;
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        private BulkheadSlot(Semaphore bulkhead) {
+            this.bulkhead = bulkhead;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                bulkhead.release();
+            }
+        }
+    }
+
+    /**
+     * Estado de un tenant. Los cambios del breaker se sincronizan sobre la instancia.
+     */
+    private static final class TenantGuard {
+        private final Semaphore bulkhead;
+        private State state = State.CLOSED;
+        private int consecutiveFailures;
+        private long openedAtNanos;
+        private boolean probeInFlight;
+
+        private long successes;
+        private long failures;
+        private long rejectedOpen;
+        private long rejectedBulkhead;
+        private long timesOpened;
+
+        TenantGuard(int maxConcurrent) {
+            this.bulkhead = new Semaphore(maxConcurrent);
+        }
+    }
+
+    private TenantGuard guard(Long tenantId) {
+        return guards.computeIfAbsent(tenantId, id -> new TenantGuard(maxConcurrentPerTenant));
+    }
+
+    /**
+     * Comprueba el circuit breaker para una llamada del tenant o lanza GlovoUnavailableException.
+     * Cada acquire correcto debe ir seguido de release(). El hueco del bulkhead se pide aparte
+     * (enterBulkhead / enterBulkheadAsync) una vez concedido el permiso del rate limiter.
+     */
+    public Permit acquire(Long tenantId) {
+        TenantGuard guard = guard(tenantId);
+        boolean probe = false;
+
+        synchronized (guard) {
+            if (guard.state == State.OPEN) {
+                long openNanos = TimeUnit.SECONDS.toNanos(openSeconds);
+                if (System.nanoTime() - guard.openedAtNanos < openNanos) {
+                    guard.rejectedOpen++;
+                    throw new GlovoUnavailableException(tenantId,
+                            "Glovo API no disponible para tenant " + tenantId + " (circuit breaker abierto)");
+                }
+                guard.state = State.HALF_OPEN;
+                logger.info("Tenant {}: Circuit breaker HALF_OPEN, enviando llamada de prueba", tenantId);
+            }
+
+            if (guard.state == State.HALF_OPEN) {
+                if (guard.probeInFlight) {
+                    guard.rejectedOpen++;
+                    throw new GlovoUnavailableException(tenantId,
+                            "Glovo API no disponible para tenant " + tenantId + " (circuit breaker en prueba)");
+                }
+                guard.probeInFlight = true;
+                probe = true;
+            }
+        }
+
+        return new Permit(tenantId, probe);
+    }
+
+    /**
+     * Ocupa un hueco del bulkhead esperando como mucho max-wait-ms (bloquea el hilo llamador)
+     *
+     * @throws GlovoUnavailableException si no queda hueco tras la espera
+     */
+    public BulkheadSlot enterBulkhead(Long tenantId) {
+        TenantGuard guard = guard(tenantId);
+        boolean acquired;
+        try {
+            acquired = guard.bulkhead.tryAcquire(bulkheadMaxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GlovoUnavailableException(tenantId,
+                    "Interrumpido esperando hueco para llamar a Glovo (tenant " + tenantId + ")");
+        }
+        if (!acquired) {
+            synchronized (guard) {
+                guard.rejectedBulkhead++;
+            }
+            throw new GlovoUnavailableException(tenantId,
+                    "Demasiadas llamadas concurrentes a Glovo para tenant " + tenantId);
+        }
+        return new BulkheadSlot(guard.bulkhead);
+    }
+
+    /**
+     * Igual que enterBulkhead sin bloquear: con hueco libre se completa en el acto,
+     * si no la espera se hace en un virtual thread
+     */
+    public CompletableFuture<BulkheadSlot> enterBulkheadAsync(Long tenantId) {
+        TenantGuard guard = guard(tenantId);
+        if (guard.bulkhead.tryAcquire()) {
+            return CompletableFuture.completedFuture(new BulkheadSlot(guard.bulkhead));
+        }
+        return CompletableFuture.supplyAsync(() -> enterBulkhead(tenantId), BULKHEAD_WAITERS);
+    }
+
+    /**
+     * Registra el resultado de la llamada en el breaker
+     *
+     * @param error null si la llamada fue bien
+     */
+    public void release(Permit permit, Throwable error) {
+        Long tenantId = permit.tenantId();
+        TenantGuard guard = guards.get(tenantId);
+        if (guard == null) {
+            // Tenant eliminado mientras la llamada estaba en curso
+            return;
+        }
+
+        Verdict verdict = classify(error);
+
+        synchronized (guard) {
+            // Un reset() durante la prueba ya la ha dado por terminada
+            boolean wasProbe = permit.probe() && guard.state == State.HALF_OPEN;
+            if (wasProbe) {
+                guard.probeInFlight = false;
+            }
+
+            if (verdict == Verdict.NO_VERDICT) {
+                // Glovo no ha contestado (rechazo local) o ha pedido esperar: ni cierra ni abre
+                return;
+            }
+
+            if (verdict == Verdict.SUCCESS) {
+                guard.successes++;
+                guard.consecutiveFailures = 0;
+                if (wasProbe) {
+                    guard.state = State.CLOSED;
+                    logger.info("Tenant {}: Circuit breaker CLOSED (llamada de prueba correcta)", tenantId);
+                }
+                return;
+            }
+
+            guard.failures++;
+            guard.consecutiveFailures++;
+            if (wasProbe || (guard.state == State.CLOSED && guard.consecutiveFailures >= failureThreshold)) {
+                guard.state = State.OPEN;
+                guard.openedAtNanos = System.nanoTime();
+                guard.timesOpened++;
+                logger.warn("Tenant {}: Circuit breaker OPEN durante {}s tras {} fallos consecutivos ({})",
+                        tenantId, openSeconds, guard.consecutiveFailures, rootCause(error).toString());
+            }
+        }
+    }
+
+    /**
+     * Fallos que indican que Glovo (o las credenciales del tenant) no funcionan
+     */
+    static boolean isFailure(Throwable error) {
+        return classify(error) == Verdict.FAILURE;
+    }
+
+    /**
+     * SUCCESS: 2xx o 404 (Glovo ha contestado). FAILURE: 5xx, IO/timeout, 401/403.
+     * NO_VERDICT: rechazo local (breaker, bulkhead, rate limit), 429 y cualquier otro error.
+     */
+    static Verdict classify(Throwable error) {
+        if (error == null) {
+            return Verdict.SUCCESS;
+        }
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof GlovoUnavailableException || t instanceof RateLimitService.RateLimitExceededException) {
+                return Verdict.NO_VERDICT;
+            }
+            if (t instanceof HttpServerErrorException) {
+                return Verdict.FAILURE;
+            }
+            if (t instanceof HttpClientErrorException clientError) {
+                HttpStatus status = HttpStatus.resolve(clientError.getStatusCode().value());
+                if (status == HttpStatus.UNAUTHORIZED || status == HttpStatus.FORBIDDEN) {
+                    return Verdict.FAILURE;
+                }
+                return status == HttpStatus.NOT_FOUND ? Verdict.SUCCESS : Verdict.NO_VERDICT;
+            }
+            if (t instanceof ResourceAccessException || t instanceof IOException || t instanceof TimeoutException) {
+                return Verdict.FAILURE;
+            }
+        }
+        return Verdict.NO_VERDICT;
+    }
+
+    private static Throwable rootCause(Throwable error) {
+        Throwable root = error;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root;
+    }
+
+    /**
+     * Estado del breaker de un tenant
+     */
+    public State getState(Long tenantId) {
+        TenantGuard guard = guards.get(tenantId);
+        if (guard == null) {
+            return State.CLOSED;
+        }
+        synchronized (guard) {
+            return guard.state;
+        }
+    }
+
+    /**
+     * Cierra el breaker y reinicia contadores (credenciales corregidas, intervención manual)
+     */
+    public void reset(Long tenantId) {
+        TenantGuard guard = guards.get(tenantId);
+        if (guard == null) {
+            return;
+        }
+        synchronized (guard) {
+            guard.state = State.CLOSED;
+            guard.consecutiveFailures = 0;
+            guard.probeInFlight = false;
+        }
+        logger.info("Tenant {}: Circuit breaker reiniciado", tenantId);
+    }
+
+    /**
+     * Elimina el estado del tenant (tenant borrado)
+     */
+    public void remove(Long tenantId) {
+        guards.remove(tenantId);
+    }
+
+    /**
+     * Estado de breakers y bulkheads por tenant (para monitoreo)
+     */
+    public Map<Long, Map<String, Object>> getMetrics() {
+        Map<Long, Map<String, Object>> metrics = new LinkedHashMap<>();
+
+        guards.forEach((tenantId, guard) -> {
+            Map<String, Object> tenantMetrics = new LinkedHashMap<>();
+            synchronized (guard) {
+                tenantMetrics.put("state", guard.state.name());
+                tenantMetrics.put("consecutiveFailures", guard.consecutiveFailures);
+                if (guard.state == State.OPEN) {
+                    long remaining = TimeUnit.SECONDS.toNanos(openSeconds) - (System.nanoTime() - guard.openedAtNanos);
+                    tenantMetrics.put("retryInMs", Math.max(0, TimeUnit.NANOSECONDS.toMillis(remaining)));
+                }
+                tenantMetrics.put("successes", guard.successes);
+                tenantMetrics.put("failures", guard.failures);
+                tenantMetrics.put("timesOpened", guard.timesOpened);
+                tenantMetrics.put("rejectedOpen", guard.rejectedOpen);
+                tenantMetrics.put("rejectedBulkhead", guard.rejectedBulkhead);
+            }
+            tenantMetrics.put("activeCalls", maxConcurrentPerTenant - guard.bulkhead.availablePermits());
+            tenantMetrics.put("maxConcurrentCalls", maxConcurrentPerTenant);
+            metrics.put(tenantId, tenantMetrics);
+        });
+
+        return metrics;
+    }
+}
@@ -0,0 +1,164 @@
+package es.hargos.ritrack.client;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import es.hargos.ritrack.dto.RoosterEmployeeDto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parser streaming (nivel token) para el listado de empleados de Rooster.
+ *
+ * Recorre la respuesta de /v3/external/employees token a token y construye
+ * RoosterEmployeeDto directamente, saltando (skipChildren) todo lo que RiTrack
+ * no usa: fields, vehicle_types, starting_points, etc. Nunca se materializa el
+ * árbol de LinkedHashMap por empleado.
+ *
+ * Acepta tanto un array en raíz como un objeto con el array en "data" o "content".
+ */
+public final class RoosterEmployeeStreamParser {
+
+    private RoosterEmployeeStreamParser() {
+    }
+
+    public static List<RoosterEmployeeDto> parse(JsonFactory jsonFactory, InputStream body) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                return List.of();
+            }
+
+            if (token == JsonToken.START_OBJECT && !moveToEmployeesArray(parser)) {
+                return List.of();
+            }
+
+            if (parser.currentToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Respuesta de Rooster inesperada: se esperaba un array de empleados");
+            }
+
+            ArrayList<RoosterEmployeeDto> employees = new ArrayList<>(1024);
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                employees.add(readEmployee(parser));
+            }
+
+            employees.trimToSize();
+            return employees;
+        }
+    }
+
+    /**
+     * Avanza hasta el array "data" / "content" dentro de un objeto raíz
+     */
+    private static boolean moveToEmployeesArray(JsonParser parser) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.START_ARRAY && ("data".equals(field) || "content".equals(field))) {
+                return true;
+            }
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    private static RoosterEmployeeDto readEmployee(JsonParser parser) throws IOException {
+        Integer id = null;
+        String name = null;
+        String email = null;
+        String phoneNumber = null;
+        Integer cityId = null;
+        Integer contractCityId = null;
+        String contractType = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+
+            switch (field) {
+                case "id" -> id = readInt(parser, value);
+                case "name" -> name = readText(parser, value);
+                case "email" -> email = readText(parser, value);
+                case "phone_number" -> phoneNumber = readText(parser, value);
+                case "city_id" -> cityId = readInt(parser, value);
+                case "active_contract" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        ActiveContract contract = readActiveContract(parser);
+                        contractCityId = contract.cityId();
+                        contractType = contract.type();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+
+        return new RoosterEmployeeDto(id, name, email, phoneNumber, cityId, contractCityId, contractType);
+    }
+
+    /**
+     * Lee active_contract.city_id y active_contract.contract.type
+     */
+    private static ActiveContract readActiveContract(JsonParser parser) throws IOException {
+        Integer cityId = null;
+        String type = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+
+            if ("city_id".equals(field)) {
+                cityId = readInt(parser, value);
+            } else if ("contract".equals(field) && value == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String contractField = parser.currentName();
+                    JsonToken contractValue = parser.nextToken();
+                    if ("type".equals(contractField)) {
+                        String text = readText(parser, contractValue);
+                        // Pocos valores distintos (FULL_TIME, PART_TIME...): compartir instancia
+                        type = text != null ? text.intern() : null;
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        return new ActiveContract(cityId, type);
+    }
+
+    private static Integer readInt(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getIntValue();
+        }
+        if (value == JsonToken.VALUE_STRING) {
+            try {
+                return Integer.valueOf(parser.getText().trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    private static String readText(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (value.isScalarValue()) {
+            return parser.getText();
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    private record ActiveContract(Integer cityId, String type) {
+    }
+}
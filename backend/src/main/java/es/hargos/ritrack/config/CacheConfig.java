@@ -18,11 +18,7 @@ public class CacheConfig {
 
     private static final Logger logger = LoggerFactory.getLogger(CacheConfig.class);
 
-    @Value("${cache.rooster.employees.ttl-minutes:30}")
-    private long roosterTtlMinutes;
-
-    @Value("${cache.rooster.employees.max-size:1}")
-    private int roosterMaxSize;
+    public static final String STARTING_POINTS = "starting-points";
 
     @Value("${cache.live.city.ttl-seconds:30}")
     private long liveTtlSeconds;
@@ -30,20 +26,43 @@ public class CacheConfig {
     @Value("${cache.live.city.max-entries:100}")
     private int liveMaxEntries;
 
+    // starting-points: clave "tenantId-cityId", casi nunca cambian
+    @Value("${cache.starting-points.max-entries:5000}")
+    private long startingPointsMaxEntries;
+
+    @Value("${cache.starting-points.ttl-days:30}")
+    private long startingPointsTtlDays;
+
+    // Resto de cachés (tenantsBySchema, activeTenants, glovoCredentials...)
+    @Value("${cache.default.max-entries:1000}")
+    private long defaultMaxEntries;
+
+    @Value("${cache.default.ttl-minutes:10}")
+    private long defaultTtlMinutes;
+
     @Bean
     public CacheManager cacheManager() {
         CaffeineCacheManager cacheManager = new CaffeineCacheManager();
 
-        // Caché de empleados Rooster
-        cacheManager.registerCustomCache("rooster-employees",
-                Caffeine.newBuilder()
-                        .expireAfterWrite(roosterTtlMinutes, TimeUnit.MINUTES)
-                        .maximumSize(roosterMaxSize)
-                        .recordStats()
-                        .build());
+        // Spec por defecto para cachés no registrados explícitamente: nunca sin límite ni TTL
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(defaultMaxEntries)
+                .expireAfterWrite(defaultTtlMinutes, TimeUnit.MINUTES)
+                .recordStats());
+
+        cacheManager.registerCustomCache(STARTING_POINTS, Caffeine.newBuilder()
+                .maximumSize(startingPointsMaxEntries)
+                .expireAfterWrite(startingPointsTtlDays, TimeUnit.DAYS)
+                .recordStats()
+                .build());
+
+        // Empleados Rooster: caché propio con refresco en segundo plano (RoosterCacheService)
+        // Settings de tenant: snapshot por tenant propio (TenantSettingsService)
 
-        logger.info("Caché configurado - Rooster: {} min TTL, Live temporal: {} seg TTL",
-                roosterTtlMinutes, liveTtlSeconds);
+        logger.info("Caché configurado - starting-points: {} entradas/{} días, " +
+                        "por defecto: {} entradas/{} min, Live temporal: {} seg TTL",
+                startingPointsMaxEntries, startingPointsTtlDays,
+                defaultMaxEntries, defaultTtlMinutes, liveTtlSeconds);
 
         return cacheManager;
     }
@@ -52,4 +71,4 @@ public class CacheConfig {
     public long getLiveTtlMillis() {
         return liveTtlSeconds * 1000;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,18 @@
+package es.hargos.ritrack.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+
+/**
+ * Configuración por defecto de los health probes (health-probes.properties).
+ *
+ * - /actuator/health/liveness: solo livenessState
+ * - /actuator/health/readiness: readinessState + cacheWarmupService (503 mientras se precargan cachés)
+ * - /actuator/health: agregado; la precarga en curso (OUT_OF_SERVICE) responde 200
+ *
+ * application.properties no está versionado; cualquier valor que defina tiene prioridad.
+ */
+@Configuration
+@PropertySource("classpath:health-probes.properties")
+public class HealthProbesConfig {
+}
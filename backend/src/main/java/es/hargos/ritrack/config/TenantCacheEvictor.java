@@ -0,0 +1,65 @@
+package es.hargos.ritrack.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Invalidación por tenant en los cachés Spring cuya clave empieza por "tenantId-"
+ * (starting-points).
+ *
+ * @CacheEvict(allEntries = true) vaciaría el caché de todos los tenants; aquí solo se
+ * eliminan las claves del tenant indicado. Si hay transacción activa, se invalida de
+ * nuevo tras el commit para que una lectura concurrente no recachee el valor antiguo.
+ */
+@Component
+public class TenantCacheEvictor {
+
+    private static final Logger logger = LoggerFactory.getLogger(TenantCacheEvictor.class);
+
+    private final CacheManager cacheManager;
+
+    public TenantCacheEvictor(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * Elimina las entradas del tenant en el caché indicado
+     */
+    public void evictTenant(String cacheName, Long tenantId) {
+        int removed = removeTenantKeys(cacheName, tenantId);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    removeTenantKeys(cacheName, tenantId);
+                }
+            });
+        }
+
+        logger.debug("Tenant {}: {} entradas eliminadas del caché '{}'", tenantId, removed, cacheName);
+    }
+
+    private int removeTenantKeys(String cacheName, Long tenantId) {
+        if (!(cacheManager.getCache(cacheName) instanceof CaffeineCache caffeineCache)) {
+            return 0;
+        }
+
+        String prefix = tenantId + "-";
+        Cache<Object, Object> nativeCache = caffeineCache.getNativeCache();
+        int removed = 0;
+        for (Object key : nativeCache.asMap().keySet()) {
+            if (key.toString().startsWith(prefix)) {
+                nativeCache.invalidate(key);
+                removed++;
+            }
+        }
+        return removed;
+    }
+}
@@ -1,6 +1,13 @@
 package es.hargos.ritrack.controller;
 
+import es.hargos.ritrack.client.GlovoClient;
+import es.hargos.ritrack.client.GlovoHttpClientFactory;
+import es.hargos.ritrack.client.GlovoTenantGuard;
 import es.hargos.ritrack.service.ApiMonitoringService;
+import es.hargos.ritrack.service.LiveCitySnapshotStore;
+import es.hargos.ritrack.service.MasterDataCacheService;
+import es.hargos.ritrack.service.RateLimitService;
+import es.hargos.ritrack.service.RoosterCacheService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -20,16 +27,45 @@ import java.util.Map;
  * - GET /stats/{tenantId}: Estadísticas de un tenant específico
  * - DELETE /stats: Limpiar todas las estadísticas
  * - DELETE /stats/{tenantId}: Limpiar estadísticas de un tenant
+ * - GET /http-pool: Métricas del pool de conexiones HTTP hacia Glovo
+ * - GET /glovo-client: Métricas de coalescing (single-flight) de GlovoClient
+ * - GET /rate-limit-queues: Colas de peticiones pendientes de token por tenant
+ * - GET /circuit-breakers: Estado de circuit breakers y bulkheads por tenant
+ * - DELETE /circuit-breakers/{tenantId}: Cerrar (reiniciar) el circuit breaker de un tenant
+ * - GET /rooster-cache: Estadísticas del caché de empleados Rooster por tenant
+ * - GET /live-snapshots: Snapshots Live API publicados por el poller de ubicaciones
+ * - GET /master-data-cache: Caché de contratos, tipos de vehículo y ciudades por tenant
  */
 @RestController
 @RequestMapping("/api/v1/monitoring")
 public class ApiMonitoringController {
 
     private final ApiMonitoringService monitoringService;
+    private final GlovoHttpClientFactory httpClientFactory;
+    private final GlovoClient glovoClient;
+    private final RateLimitService rateLimitService;
+    private final GlovoTenantGuard tenantGuard;
+    private final RoosterCacheService roosterCacheService;
+    private final LiveCitySnapshotStore liveSnapshotStore;
+    private final MasterDataCacheService masterDataCacheService;
 
     @Autowired
-    public ApiMonitoringController(ApiMonitoringService monitoringService) {
+    public ApiMonitoringController(ApiMonitoringService monitoringService,
+                                   GlovoHttpClientFactory httpClientFactory,
+                                   GlovoClient glovoClient,
+                                   RateLimitService rateLimitService,
+                                   GlovoTenantGuard tenantGuard,
+                                   RoosterCacheService roosterCacheService,
+                                   LiveCitySnapshotStore liveSnapshotStore,
+                                   MasterDataCacheService masterDataCacheService) {
         this.monitoringService = monitoringService;
+        this.httpClientFactory = httpClientFactory;
+        this.glovoClient = glovoClient;
+        this.rateLimitService = rateLimitService;
+        this.tenantGuard = tenantGuard;
+        this.roosterCacheService = roosterCacheService;
+        this.liveSnapshotStore = liveSnapshotStore;
+        this.masterDataCacheService = masterDataCacheService;
     }
 
     /**
@@ -175,4 +211,216 @@ public class ApiMonitoringController {
             return ResponseEntity.internalServerError().body(error);
         }
     }
+
+    /**
+     * Obtiene métricas del pool de conexiones HTTP hacia Glovo.
+     *
+     * Solo accesible por SUPER_ADMIN.
+     *
+     * GET /api/v1/monitoring/http-pool
+     *
+     * Respuesta incluye:
+     * - Conexiones leased/available/pending/max (total y por host)
+     * - Peticiones ejecutadas vs conexiones físicas creadas
+     * - Ratio de reutilización de conexiones keep-alive
+     *
+     * @return Métricas del pool HTTP
+     */
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    @GetMapping("/http-pool")
+    public ResponseEntity<?> getHttpPoolMetrics() {
+        try {
+            return ResponseEntity.ok(httpClientFactory.getPoolMetrics());
+
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Error obteniendo métricas del pool HTTP");
+            error.put("message", e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    /**
+     * Métricas de coalescing de GlovoClient.
+     *
+     * GET /api/v1/monitoring/glovo-client
+     *
+     * Respuesta incluye:
+     * - Peticiones en vuelo
+     * - Peticiones enviadas a Glovo vs peticiones servidas por una petición ya en vuelo
+     *
+     * @return Métricas de single-flight
+     */
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    @GetMapping("/glovo-client")
+    public ResponseEntity<?> getGlovoClientMetrics() {
+        try {
+            return ResponseEntity.ok(glovoClient.getCoalescingMetrics());
+
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Error obteniendo métricas de GlovoClient");
+            error.put("message", e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    /**
+     * Estado de las colas del rate limiter por tenant.
+     *
+     * GET /api/v1/monitoring/rate-limit-queues
+     *
+     * Respuesta incluye por tenant:
+     * - Peticiones esperando token por prioridad (HIGH/MEDIUM/LOW)
+     * - Permisos concedidos, peticiones descartadas por cola llena y expiradas por deadline
+     * - Tokens disponibles en el bucket global
+     *
+     * @return Métricas de colas por tenant
+     */
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    @GetMapping("/rate-limit-queues")
+    public ResponseEntity<?> getRateLimitQueues() {
+        try {
+            return ResponseEntity.ok(rateLimitService.getQueueMetrics());
+
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Error obteniendo colas de rate limit");
+            error.put("message", e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    /**
+     * Estado de circuit breakers y bulkheads de GlovoClient por tenant.
+     *
+     * GET /api/v1/monitoring/circuit-breakers
+     *
+     * Respuesta incluye por tenant:
+     * - Estado (CLOSED / OPEN / HALF_OPEN), fallos consecutivos y tiempo hasta la prueba
+     * - Llamadas activas vs máximo del bulkhead
+     * - Llamadas rechazadas por breaker abierto o bulkhead lleno
+     *
+     * @return Estado por tenant
+     */
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    @GetMapping("/circuit-breakers")
+    public ResponseEntity<?> getCircuitBreakers() {
+        try {
+            return ResponseEntity.ok(tenantGuard.getMetrics());
+
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Error obteniendo estado de circuit breakers");
+            error.put("message", e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    /**
+     * Cierra el circuit breaker de un tenant (p.ej. tras corregir sus credenciales).
+     *
+     * DELETE /api/v1/monitoring/circuit-breakers/{tenantId}
+     *
+     * @param tenantId ID del tenant
+     * @return Estado resultante
+     */
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    @DeleteMapping("/circuit-breakers/{tenantId}")
+    public ResponseEntity<?> resetCircuitBreaker(@PathVariable Long tenantId) {
+        try {
+            tenantGuard.reset(tenantId);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("tenantId", tenantId);
+            response.put("state", tenantGuard.getState(tenantId).name());
+            response.put("message", "Circuit breaker del tenant reiniciado");
+
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Error reiniciando circuit breaker");
+            error.put("message", e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    /**
+     * Estadísticas del caché de empleados Rooster.
+     *
+     * GET /api/v1/monitoring/rooster-cache
+     *
+     * Respuesta incluye por tenant:
+     * - Empleados en caché y fecha/duración de la última carga
+     * - Hits, misses y ratio de acierto
+     * - Recargas en segundo plano y cargas fallidas
+     *
+     * @return Estadísticas del caché Rooster
+     */
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    @GetMapping("/rooster-cache")
+    public ResponseEntity<?> getRoosterCacheStats() {
+        try {
+            return ResponseEntity.ok(roosterCacheService.getStats());
+
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Error obteniendo estadísticas del caché Rooster");
+            error.put("message", e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    /**
+     * Estado del almacén de snapshots Live API.
+     *
+     * GET /api/v1/monitoring/live-snapshots
+     *
+     * Respuesta incluye:
+     * - Secuencia actual y snapshots publicados
+     * - Lecturas servidas desde snapshot, caducadas y sin snapshot
+     * - Por tenant: ciudades, riders, ciudades caducadas y antigüedad máxima
+     *
+     * @return Estadísticas de snapshots live
+     */
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    @GetMapping("/live-snapshots")
+    public ResponseEntity<?> getLiveSnapshotStats() {
+        try {
+            return ResponseEntity.ok(liveSnapshotStore.getStats());
+
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Error obteniendo estadísticas de snapshots live");
+            error.put("message", e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    /**
+     * Estado del caché de datos maestros.
+     *
+     * GET /api/v1/monitoring/master-data-cache
+     *
+     * Respuesta incluye:
+     * - Cargas, fallos y cambios detectados en recargas
+     * - Por tenant y tipo: elementos, versión, última carga y último cambio
+     *
+     * @return Estadísticas del caché de datos maestros
+     */
+    @PreAuthorize("hasRole('SUPER_ADMIN')")
+    @GetMapping("/master-data-cache")
+    public ResponseEntity<?> getMasterDataCacheStats() {
+        try {
+            return ResponseEntity.ok(masterDataCacheService.getStats());
+
+        } catch (Exception e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Error obteniendo estadísticas de datos maestros");
+            error.put("message", e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
 }
@@ -1,13 +1,22 @@
 package es.hargos.ritrack.controller;
 
+import es.hargos.ritrack.client.GlovoTenantGuard;
+import es.hargos.ritrack.config.CacheConfig;
+import es.hargos.ritrack.config.TenantCacheEvictor;
 import es.hargos.ritrack.entity.TenantEntity;
 import es.hargos.ritrack.entity.TenantSettingsEntity;
 import es.hargos.ritrack.entity.RiderLimitWarningEntity;
 import es.hargos.ritrack.repository.TenantRepository;
 import es.hargos.ritrack.repository.TenantSettingsRepository;
 import es.hargos.ritrack.repository.RiderLimitWarningRepository;
+import es.hargos.ritrack.service.CacheSnapshotStore;
+import es.hargos.ritrack.service.GlovoCredentialsRegistry;
+import es.hargos.ritrack.service.LiveCitySnapshotStore;
+import es.hargos.ritrack.service.MasterDataCacheService;
 import es.hargos.ritrack.service.RiderLimitService;
 import es.hargos.ritrack.service.TenantSchemaService;
+import es.hargos.ritrack.service.TenantSettingsService;
+import es.hargos.ritrack.service.TenantTokenService;
 import es.hargos.ritrack.context.TenantContext;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
@@ -42,6 +51,14 @@ public class InternalAdminController {
     private final RiderLimitWarningRepository warningRepository;
     private final RiderLimitService riderLimitService;
     private final TenantSchemaService tenantSchemaService;
+    private final GlovoCredentialsRegistry credentialsRegistry;
+    private final TenantTokenService tokenService;
+    private final GlovoTenantGuard tenantGuard;
+    private final LiveCitySnapshotStore liveSnapshots;
+    private final TenantCacheEvictor cacheEvictor;
+    private final CacheSnapshotStore snapshotStore;
+    private final MasterDataCacheService masterDataCache;
+    private final TenantSettingsService tenantSettingsService;
 
     @PersistenceContext
     private EntityManager entityManager;
@@ -50,12 +67,28 @@ public class InternalAdminController {
                                    TenantSettingsRepository settingsRepository,
                                    RiderLimitWarningRepository warningRepository,
                                    RiderLimitService riderLimitService,
-                                   TenantSchemaService tenantSchemaService) {
+                                   TenantSchemaService tenantSchemaService,
+                                   GlovoCredentialsRegistry credentialsRegistry,
+                                   TenantTokenService tokenService,
+                                   GlovoTenantGuard tenantGuard,
+                                   LiveCitySnapshotStore liveSnapshots,
+                                   TenantCacheEvictor cacheEvictor,
+                                   CacheSnapshotStore snapshotStore,
+                                   MasterDataCacheService masterDataCache,
+                                   TenantSettingsService tenantSettingsService) {
         this.tenantRepository = tenantRepository;
         this.settingsRepository = settingsRepository;
         this.warningRepository = warningRepository;
         this.riderLimitService = riderLimitService;
         this.tenantSchemaService = tenantSchemaService;
+        this.credentialsRegistry = credentialsRegistry;
+        this.tokenService = tokenService;
+        this.tenantGuard = tenantGuard;
+        this.liveSnapshots = liveSnapshots;
+        this.cacheEvictor = cacheEvictor;
+        this.snapshotStore = snapshotStore;
+        this.masterDataCache = masterDataCache;
+        this.tenantSettingsService = tenantSettingsService;
     }
 
     /**
@@ -186,6 +219,8 @@ public class InternalAdminController {
                 }
             }
 
+            tenantSettingsService.reload(ritrackTenantId);
+
             logger.info("Actualizados {} settings para hargosTenantId {}", updated, hargosTenantId);
 
             return ResponseEntity.ok(Map.of(
@@ -720,6 +755,16 @@ public class InternalAdminController {
             tenantRepository.delete(tenant);
             logger.info("Tenant eliminado de la tabla tenants: {}", ritrackTenantId);
 
+            // Olvidar credenciales, token, circuit breaker, snapshots live y cachés en memoria
+            credentialsRegistry.invalidate(ritrackTenantId);
+            tokenService.invalidateToken(ritrackTenantId);
+            tenantGuard.remove(ritrackTenantId);
+            liveSnapshots.removeTenant(ritrackTenantId);
+            tenantSettingsService.invalidate(ritrackTenantId);
+            cacheEvictor.evictTenant(CacheConfig.STARTING_POINTS, ritrackTenantId);
+            masterDataCache.invalidate(ritrackTenantId);
+            snapshotStore.deleteTenant(ritrackTenantId);
+
             // 3. Eliminar el schema de PostgreSQL (DROP SCHEMA CASCADE)
             if (schemaName != null && !schemaName.isEmpty()) {
                 tenantSchemaService.dropSchema(schemaName);
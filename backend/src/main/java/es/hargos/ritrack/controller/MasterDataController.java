@@ -0,0 +1,98 @@
+package es.hargos.ritrack.controller;
+
+import es.hargos.ritrack.context.TenantContext;
+import es.hargos.ritrack.service.MasterDataCacheService;
+import es.hargos.ritrack.service.MasterDataCacheService.MasterDataType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Controller de datos maestros de Glovo (cacheados por tenant).
+ *
+ * Endpoints:
+ * - GET /api/v1/master-data/contracts - Contratos del tenant
+ * - GET /api/v1/master-data/vehicle-types - Tipos de vehículo
+ * - GET /api/v1/master-data/cities - Ciudades
+ * - POST /api/v1/master-data/refresh - Fuerza la recarga desde Glovo e indica qué cambió
+ */
+@RestController
+@RequestMapping("/api/v1/master-data")
+public class MasterDataController {
+
+    private static final Logger logger = LoggerFactory.getLogger(MasterDataController.class);
+
+    private final MasterDataCacheService masterDataCache;
+
+    public MasterDataController(MasterDataCacheService masterDataCache) {
+        this.masterDataCache = masterDataCache;
+    }
+
+    @GetMapping("/contracts")
+    public ResponseEntity<?> getContracts() {
+        return getMasterData(MasterDataType.CONTRACTS);
+    }
+
+    @GetMapping("/vehicle-types")
+    public ResponseEntity<?> getVehicleTypes() {
+        return getMasterData(MasterDataType.VEHICLE_TYPES);
+    }
+
+    @GetMapping("/cities")
+    public ResponseEntity<?> getCities() {
+        return getMasterData(MasterDataType.CITIES);
+    }
+
+    /**
+     * Recarga contratos, tipos de vehículo y ciudades del tenant desde Glovo
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh() {
+        Long tenantId = currentTenantId();
+        if (tenantId == null) {
+            return tenantNotFound();
+        }
+
+        logger.info("Tenant {}: Refresco manual de datos maestros", tenantId);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("tenantId", tenantId);
+        response.put("result", masterDataCache.refresh(tenantId));
+        return ResponseEntity.ok(response);
+    }
+
+    private ResponseEntity<?> getMasterData(MasterDataType type) {
+        Long tenantId = currentTenantId();
+        if (tenantId == null) {
+            return tenantNotFound();
+        }
+
+        try {
+            return ResponseEntity.ok(masterDataCache.get(tenantId, type).items());
+        } catch (Exception e) {
+            logger.error("Tenant {}: Error obteniendo {}: {}", tenantId, type, e.getMessage());
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Error obteniendo datos maestros");
+            error.put("message", e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    private Long currentTenantId() {
+        TenantContext.TenantInfo tenantInfo = TenantContext.getCurrentContext();
+        return tenantInfo != null ? (tenantInfo.getSelectedTenantId() != null ? tenantInfo.getSelectedTenantId() : tenantInfo.getFirstTenantId()) : null;
+    }
+
+    private ResponseEntity<?> tenantNotFound() {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "Tenant no encontrado");
+        error.put("message", "No se pudo determinar el tenant del usuario");
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
+    }
+}
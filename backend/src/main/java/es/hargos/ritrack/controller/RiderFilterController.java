@@ -7,12 +7,21 @@ import es.hargos.ritrack.dto.RiderSummaryDto;
 import es.hargos.ritrack.service.RiderFilterService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Controlador simplificado para búsqueda y filtrado de riders
@@ -23,9 +32,13 @@ public class RiderFilterController {
 
     private static final Logger logger = LoggerFactory.getLogger(RiderFilterController.class);
     private final RiderFilterService riderFilterService;
+    private final long streamTimeoutMs;
 
-    public RiderFilterController(RiderFilterService riderFilterService) {
+    public RiderFilterController(RiderFilterService riderFilterService,
+                                 @Value("${api.search-timeout-seconds:15}") long searchTimeoutSeconds) {
         this.riderFilterService = riderFilterService;
+        // Margen sobre el timeout de búsqueda para poder enviar el evento final
+        this.streamTimeoutMs = (searchTimeoutSeconds + 5) * 1000;
     }
 
     /**
@@ -42,11 +55,17 @@ public class RiderFilterController {
      * - isWorking: si está trabajando (true/false)
      * - companyId: ID de la empresa
      *
+     * Paginación:
+     * - page/size: página (desde 0) y tamaño (1-100, por defecto 10)
+     * - cursor: valor de nextCursor de la respuesta anterior; continúa justo después del último
+     *   rider devuelto (recomendado para páginas profundas). Si se indica, page se ignora.
+     *
      * Ejemplos:
      * GET /api/v1/riders/search?name=Juan&page=0&size=10
      * GET /api/v1/riders/search?status=working&cityId=123
      * GET /api/v1/riders/search?contractType=FULL_TIME&isWorking=true
      * GET /api/v1/riders/search?riderId=1234
+     * GET /api/v1/riders/search?size=50&cursor=MTo0MjorSnVhbg
      */
     @GetMapping("/search")
     public ResponseEntity<?> searchRiders(
@@ -61,7 +80,8 @@ public class RiderFilterController {
             @RequestParam(required = false) Boolean isWorking,
             @RequestParam(required = false) Integer companyId,
             @RequestParam(defaultValue = "0") Integer page,
-            @RequestParam(defaultValue = "10") Integer size) {
+            @RequestParam(defaultValue = "10") Integer size,
+            @RequestParam(required = false) String cursor) {
 
         // Extraer tenantId y userId del contexto
         TenantContext.TenantInfo tenantInfo = TenantContext.getCurrentContext();
@@ -96,6 +116,7 @@ public class RiderFilterController {
                     .companyId(companyId)
                     .page(page)
                     .size(size)
+                    .cursor(cursor)
                     .build();
 
             logger.info("Tenant {}, User {}: Búsqueda de riders: {}", tenantId, userId, filters);
@@ -103,6 +124,8 @@ public class RiderFilterController {
             PaginatedResponseDto<RiderSummaryDto> result = riderFilterService.searchRiders(tenantId, userId, filters);
             return ResponseEntity.ok(result);
 
+        } catch (IllegalArgumentException e) {
+            return invalidCursor(e);
         } catch (Exception e) {
             logger.error("Error en búsqueda de riders: {}", e.getMessage(), e);
             return ResponseEntity.internalServerError().build();
@@ -141,9 +164,153 @@ public class RiderFilterController {
             PaginatedResponseDto<RiderSummaryDto> result = riderFilterService.searchRiders(tenantId, userId, filters);
             return ResponseEntity.ok(result);
 
+        } catch (IllegalArgumentException e) {
+            return invalidCursor(e);
         } catch (Exception e) {
             logger.error("Error en búsqueda de riders (POST): {}", e.getMessage(), e);
             return ResponseEntity.internalServerError().build();
         }
     }
+
+    /**
+     * Número de riders que cumplen los filtros (mismos parámetros que /search, sin paginación).
+     * Reutiliza el resultado fusionado de una búsqueda reciente con los mismos filtros.
+     *
+     * GET /api/v1/riders/search/count?status=working&cityId=123
+     */
+    @GetMapping("/search/count")
+    public ResponseEntity<?> countRiders(RiderFilterDto filters) {
+        TenantContext.TenantInfo tenantInfo = TenantContext.getCurrentContext();
+        Long tenantId = tenantInfo != null ? (tenantInfo.getSelectedTenantId() != null ? tenantInfo.getSelectedTenantId() : tenantInfo.getFirstTenantId()) : null;
+        Long userId = tenantInfo != null ? tenantInfo.getUserId() : null;
+
+        if (tenantId == null || userId == null) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Tenant no encontrado");
+            error.put("message", "No se pudo determinar el tenant o el usuario");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
+        }
+
+        try {
+            long total = riderFilterService.countRiders(tenantId, userId, filters);
+            return ResponseEntity.ok(Map.of("totalElements", total));
+
+        } catch (Exception e) {
+            logger.error("Error contando riders: {}", e.getMessage(), e);
+            Map<String, String> error = new HashMap<>();
+            error.put("error", "Error contando riders");
+            error.put("message", e.getMessage());
+            return ResponseEntity.internalServerError().body(error);
+        }
+    }
+
+    /**
+     * Búsqueda en streaming (Server-Sent Events): mismos filtros que /search, sin paginación.
+     *
+     * Eventos:
+     * - "riders": {source, cityId, riders[]} según termina cada ciudad de Live o Rooster
+     *   (source "cache" si se reutiliza una búsqueda reciente). Un rider enviado desde Rooster
+     *   puede volver a llegar desde Live: sustituir por riderId.
+     * - "totals": {totalElements, live, roosterUnique, failedSources, durationMs, fromCache}, y se cierra
+     * - "error": {error, message}, y se cierra
+     *
+     * GET /api/v1/riders/search/stream?status=working
+     */
+    @GetMapping(value = "/search/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamRiders(RiderFilterDto filters) {
+        TenantContext.TenantInfo tenantInfo = TenantContext.getCurrentContext();
+        Long tenantId = tenantInfo != null ? (tenantInfo.getSelectedTenantId() != null ? tenantInfo.getSelectedTenantId() : tenantInfo.getFirstTenantId()) : null;
+        Long userId = tenantInfo != null ? tenantInfo.getUserId() : null;
+
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+
+        if (tenantId == null || userId == null) {
+            sendErrorAndClose(emitter, "Tenant no encontrado", "No se pudo determinar el tenant o el usuario");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(emitter);
+        }
+
+        // Un único escritor por stream: emitter.send bloquea si el cliente va lento, y no debe hacerlo
+        // en los hilos de la búsqueda (que entregan con el lock de fusión tomado). Orden FIFO.
+        ExecutorService writer = Executors.newSingleThreadExecutor(Thread.ofVirtual().name("RiderStream-", 0).factory());
+        AtomicBoolean closed = new AtomicBoolean();
+
+        try {
+            CompletableFuture<RiderFilterService.SearchTotals> search = riderFilterService.streamRiders(tenantId, userId, filters,
+                    batch -> enqueue(writer, closed, () -> send(emitter, "riders", batch)));
+
+            // Cliente desconectado, timeout o error de escritura: se cancela la búsqueda y no se escribe más
+            Runnable cancel = () -> {
+                if (closed.compareAndSet(false, true)) {
+                    search.cancel(true);
+                    writer.shutdownNow();
+                }
+            };
+            emitter.onCompletion(cancel);
+            emitter.onTimeout(cancel);
+            emitter.onError(error -> cancel.run());
+
+            search.whenComplete((totals, error) -> {
+                if (search.isCancelled()) {
+                    return;
+                }
+                if (error != null) {
+                    logger.error("Tenant {}: Error en búsqueda en streaming: {}", tenantId, error.getMessage());
+                    enqueue(writer, closed, () -> sendErrorAndClose(emitter, "Error en búsqueda de riders", error.getMessage()));
+                } else {
+                    enqueue(writer, closed, () -> {
+                        send(emitter, "totals", totals);
+                        emitter.complete();
+                    });
+                }
+                writer.shutdown();
+            });
+        } catch (Exception e) {
+            logger.error("Tenant {}: Error iniciando búsqueda en streaming: {}", tenantId, e.getMessage(), e);
+            writer.shutdownNow();
+            sendErrorAndClose(emitter, "Error en búsqueda de riders", e.getMessage());
+        }
+
+        return ResponseEntity.ok(emitter);
+    }
+
+    private void enqueue(ExecutorService writer, AtomicBoolean closed, Runnable write) {
+        if (closed.get()) {
+            return;
+        }
+        try {
+            writer.execute(() -> {
+                if (!closed.get()) {
+                    write.run();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Stream ya cerrado
+            logger.debug("Evento descartado, stream cerrado");
+        }
+    }
+
+    private void send(SseEmitter emitter, String event, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            // Cliente desconectado o emitter ya cerrado (timeout)
+            logger.debug("No se pudo enviar evento '{}': {}", event, e.getMessage());
+        }
+    }
+
+    private void sendErrorAndClose(SseEmitter emitter, String error, String message) {
+        Map<String, String> body = new HashMap<>();
+        body.put("error", error);
+        body.put("message", message);
+        send(emitter, "error", body);
+        emitter.complete();
+    }
+
+    private ResponseEntity<?> invalidCursor(IllegalArgumentException e) {
+        logger.warn("Búsqueda de riders con parámetros inválidos: {}", e.getMessage());
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "Parámetros inválidos");
+        error.put("message", e.getMessage());
+        return ResponseEntity.badRequest().body(error);
+    }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package es.hargos.ritrack.controller;
 
 import es.hargos.ritrack.context.TenantContext;
 import es.hargos.ritrack.dto.RiderLocationDto;
+import es.hargos.ritrack.service.LiveCitySnapshotStore;
 import es.hargos.ritrack.service.RiderLocationService;
 import es.hargos.ritrack.websocket.RiderLocationWebSocketHandler;
 import org.slf4j.Logger;
@@ -20,6 +21,9 @@ import java.util.Map;
  *
  * NOTA: Para búsquedas y filtros de riders, usar RiderFilterController (/api/v1/riders/search)
  * Este controlador se enfoca únicamente en ubicaciones geográficas y tiempo real
+ *
+ * Las lecturas se sirven desde LiveCitySnapshotStore (publicado por el poller cada 30 s),
+ * sin llamadas a Glovo salvo que el snapshot de una ciudad falte o esté caducado.
  */
 @RestController
 @RequestMapping("/api/v1/rider-locations")
@@ -29,11 +33,14 @@ public class RiderLocationController {
 
     private final RiderLocationService riderLocationService;
     private final RiderLocationWebSocketHandler webSocketHandler;
+    private final LiveCitySnapshotStore liveSnapshots;
 
     public RiderLocationController(RiderLocationService riderLocationService,
-                                   RiderLocationWebSocketHandler webSocketHandler) {
+                                   RiderLocationWebSocketHandler webSocketHandler,
+                                   LiveCitySnapshotStore liveSnapshots) {
         this.riderLocationService = riderLocationService;
         this.webSocketHandler = webSocketHandler;
+        this.liveSnapshots = liveSnapshots;
     }
 
     /**
@@ -310,6 +317,16 @@ public class RiderLocationController {
                     allLocations.stream().filter(r -> !"not_working".equals(r.getStatus())).count());
             stats.put("last_check", System.currentTimeMillis());
 
+            // Versión de los datos servidos: snapshot más antiguo del tenant
+            Map<Integer, LiveCitySnapshotStore.LiveCitySnapshot> snapshots = liveSnapshots.getTenant(tenantId);
+            snapshots.values().stream()
+                    .min(java.util.Comparator.comparing(LiveCitySnapshotStore.LiveCitySnapshot::publishedAt))
+                    .ifPresent(oldest -> {
+                        stats.put("snapshot_sequence", oldest.sequence());
+                        stats.put("snapshot_published_at", oldest.publishedAt().toEpochMilli());
+                        stats.put("snapshot_age_ms", oldest.ageMillis());
+                    });
+
             return ResponseEntity.ok(stats);
         } catch (Exception e) {
             logger.error("Tenant {}: Error obteniendo estadísticas: {}", tenantId, e.getMessage());
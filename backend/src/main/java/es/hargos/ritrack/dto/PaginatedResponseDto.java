@@ -1,5 +1,6 @@
 package es.hargos.ritrack.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -21,6 +22,10 @@ public class PaginatedResponseDto<T> {
     private Boolean last;
     private Boolean empty;
 
+    // Cursor para pedir la página siguiente (solo en búsquedas que lo soportan; null si no hay más)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
+
     public PaginatedResponseDto() {}
 
     public PaginatedResponseDto(List<T> content, Integer page, Integer size, Long totalElements) {
@@ -14,6 +14,9 @@ import lombok.ToString;
 @ToString
 public class RiderFilterDto {
 
+    public static final int DEFAULT_PAGE_SIZE = 10;
+    public static final int MAX_PAGE_SIZE = 100;
+
     private String name;               // Filtro por nombre (contiene, case insensitive)
     private Integer riderId;           // Filtro por employee_id específico
     private String phone;              // Filtro por teléfono (contiene)
@@ -30,14 +33,16 @@ public class RiderFilterDto {
     private Integer page = 0;          // Página (empezando en 0)
 
     @Builder.Default
-    private Integer size = 10;         // Tamaño de página (siempre 10)
+    private Integer size = DEFAULT_PAGE_SIZE; // Tamaño de página (1-100)
+
+    private String cursor;             // Cursor opaco (nextCursor de la respuesta anterior); si viene, se ignora page
 
     /**
      * Constructor sin argumentos para compatibilidad
      */
     public RiderFilterDto() {
         this.page = 0;
-        this.size = 10;
+        this.size = DEFAULT_PAGE_SIZE;
     }
 
     /**
@@ -45,7 +50,7 @@ public class RiderFilterDto {
      */
     public RiderFilterDto(String name, Integer riderId, String phone, String email, String status,
                           Integer cityId, String contractType, Boolean hasActiveDelivery,
-                          Boolean isWorking, Integer companyId, Integer page, Integer size) {
+                          Boolean isWorking, Integer companyId, Integer page, Integer size, String cursor) {
         this.name = name;
         this.riderId = riderId;
         this.phone = phone;
@@ -57,7 +62,8 @@ public class RiderFilterDto {
         this.isWorking = isWorking;
         this.companyId = companyId;
         this.page = page != null ? page : 0;
-        this.size = 10;
+        this.size = size != null ? size : DEFAULT_PAGE_SIZE;
+        this.cursor = cursor;
     }
 
     /**
@@ -68,10 +74,13 @@ public class RiderFilterDto {
     }
 
     /**
-     * Siempre devuelve 10 como tamaño de página
+     * Tamaño de página solicitado, limitado a 1..MAX_PAGE_SIZE
      */
     public Integer getSize() {
-        return 10;
+        if (size == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
     }
 
     /**
@@ -99,7 +99,10 @@ public class RiderSummaryDto {
         // Tipo de contrato desde employeeData
         String contractType = null;
         Integer cityId = null;
-        if (employeeData instanceof Map) {
+        if (employeeData instanceof RoosterEmployeeDto employee) {
+            cityId = employee.summaryCityId();
+            contractType = employee.contractType();
+        } else if (employeeData instanceof Map) {
             @SuppressWarnings("unchecked")
             Map<String, Object> empMap = (Map<String, Object>) employeeData;
 
@@ -128,6 +131,9 @@ public class RiderSummaryDto {
      * Crea RiderSummaryDto desde datos de Rooster API
      */
     public static RiderSummaryDto fromRoosterApiData(Object employeeData) {
+        if (employeeData instanceof RoosterEmployeeDto employee) {
+            return fromRoosterEmployee(employee);
+        }
         if (!(employeeData instanceof Map)) {
             return null;
         }
@@ -161,6 +167,19 @@ public class RiderSummaryDto {
                 employeeId, name, phone, email, contractType, "not_working", 0, null, cityId);
     }
 
+    /**
+     * Crea RiderSummaryDto desde el registro compacto de Rooster (caché)
+     */
+    public static RiderSummaryDto fromRoosterEmployee(RoosterEmployeeDto employee) {
+        if (employee == null) {
+            return null;
+        }
+
+        return new RiderSummaryDto(
+                employee.id(), employee.name(), employee.phoneNumber(), employee.email(),
+                employee.contractType(), "not_working", 0, null, employee.summaryCityId());
+    }
+
     /**
      * Verifica si el rider está activo (trabajando)
      */
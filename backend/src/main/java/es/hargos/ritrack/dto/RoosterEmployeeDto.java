@@ -0,0 +1,82 @@
+package es.hargos.ritrack.dto;
+
+import java.util.Map;
+
+/**
+ * Empleado de Rooster en formato compacto e inmutable.
+ * Solo contiene los campos que RiTrack usa (búsqueda, unicidad, ciudad y contrato),
+ * en lugar del árbol completo de Maps que devuelve /v3/external/employees.
+ *
+ * @param id             employee id
+ * @param name           nombre del rider
+ * @param email          email
+ * @param phoneNumber    phone_number
+ * @param cityId         city_id del empleado
+ * @param contractCityId active_contract.city_id
+ * @param contractType   active_contract.contract.type (FULL_TIME, PART_TIME...)
+ */
+public record RoosterEmployeeDto(
+        Integer id,
+        String name,
+        String email,
+        String phoneNumber,
+        Integer cityId,
+        Integer contractCityId,
+        String contractType) {
+
+    /**
+     * Construye el DTO desde la respuesta JSON de Rooster para un único empleado
+     * (p.ej. la respuesta de creación). Null si no hay datos.
+     */
+    public static RoosterEmployeeDto fromApiMap(Map<String, Object> data) {
+        if (data == null) {
+            return null;
+        }
+
+        Integer contractCityId = null;
+        String contractType = null;
+        if (data.get("active_contract") instanceof Map<?, ?> activeContract) {
+            contractCityId = toInteger(activeContract.get("city_id"));
+            if (activeContract.get("contract") instanceof Map<?, ?> contract && contract.get("type") != null) {
+                contractType = contract.get("type").toString().intern();
+            }
+        }
+
+        return new RoosterEmployeeDto(
+                toInteger(data.get("id")),
+                data.get("name") != null ? data.get("name").toString() : null,
+                data.get("email") != null ? data.get("email").toString() : null,
+                data.get("phone_number") != null ? data.get("phone_number").toString() : null,
+                toInteger(data.get("city_id")),
+                contractCityId,
+                contractType);
+    }
+
+    private static Integer toInteger(Object value) {
+        if (value instanceof Number number) {
+            return number.intValue();
+        }
+        if (value instanceof String text) {
+            try {
+                return Integer.valueOf(text.trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Ciudad a mostrar en resúmenes: city_id, o la del contrato activo si no existe
+     */
+    public Integer summaryCityId() {
+        return cityId != null ? cityId : contractCityId;
+    }
+
+    /**
+     * Ciudad operativa: la del contrato activo tiene prioridad sobre city_id
+     */
+    public Integer operationalCityId() {
+        return contractCityId != null ? contractCityId : cityId;
+    }
+}
@@ -0,0 +1,22 @@
+package es.hargos.ritrack.exception;
+
+/**
+ * Excepción lanzada cuando GlovoClient rechaza una llamada sin enviarla:
+ * circuit breaker del tenant abierto o bulkhead del tenant sin hueco.
+ *
+ * Permite a los llamadores (pollers, búsquedas) fallar rápido para ese tenant
+ * sin bloquear hilos compartidos con el resto de tenants.
+ */
+public class GlovoUnavailableException extends RuntimeException {
+
+    private final Long tenantId;
+
+    public GlovoUnavailableException(Long tenantId, String message) {
+        super(message);
+        this.tenantId = tenantId;
+    }
+
+    public Long getTenantId() {
+        return tenantId;
+    }
+}
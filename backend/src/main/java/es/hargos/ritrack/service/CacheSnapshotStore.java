@@ -0,0 +1,219 @@
+package es.hargos.ritrack.service;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Persistencia en disco del último snapshot bueno de los cachés de datos maestros
+ * (empleados Rooster, starting points...), para que un reinicio o despliegue no
+ * obligue a recargar todo desde Glovo en el primer uso.
+ *
+ * Formato: un fichero JSON comprimido con GZIP por (caché, tenant):
+ *   {dir}/{name}-tenant-{tenantId}.json.gz  →  {"savedAt": epochMillis, "data": ...}
+ *
+ * La escritura va a un fichero temporal y se renombra (atómico si el sistema de ficheros
+ * lo permite): un proceso que muere a mitad de escritura nunca deja un snapshot corrupto.
+ * Los fallos de lectura/escritura solo se registran; el caché funciona igual sin snapshot.
+ * Snapshots más antiguos que max-age-hours no se restauran.
+ *
+ * Los snapshots incluyen datos personales de los riders (nombre, email, teléfono) sin cifrar:
+ * deshabilitado por defecto; al habilitarlo hay que indicar cache.snapshot.dir explícitamente.
+ * El directorio se crea solo para el propietario (700) y cada fichero con permisos 600.
+ */
+@Service
+public class CacheSnapshotStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheSnapshotStore.class);
+
+    private static final String SUFFIX = ".json.gz";
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Path directory;
+    private final Duration maxAge;
+
+    public CacheSnapshotStore(ObjectMapper objectMapper,
+                              @Value("${cache.snapshot.enabled:false}") boolean enabled,
+                              @Value("${cache.snapshot.dir:}") String directory,
+                              @Value("${cache.snapshot.max-age-hours:72}") long maxAgeHours) {
+        this.objectMapper = objectMapper;
+        this.maxAge = Duration.ofHours(maxAgeHours);
+
+        if (enabled && (directory == null || directory.isBlank())) {
+            logger.warn("Snapshots de caché deshabilitados: cache.snapshot.enabled=true sin cache.snapshot.dir");
+            enabled = false;
+        }
+        this.enabled = enabled;
+        this.directory = enabled ? Paths.get(directory).toAbsolutePath().normalize() : null;
+
+        logger.info("Snapshots de caché {}{}", enabled ? "habilitados - directorio: " : "deshabilitados",
+                enabled ? this.directory : "");
+    }
+
+    /**
+     * Snapshot leído de disco junto con el momento en que se guardó
+     */
+    public record StoredSnapshot<T>(Instant savedAt, T data) {
+
+        public Duration age() {
+            return Duration.between(savedAt, Instant.now());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Guarda el snapshot de un tenant, sustituyendo el anterior
+     */
+    public void save(String name, Long tenantId, Object data) {
+        if (!enabled) {
+            return;
+        }
+
+        Path target = file(name, tenantId);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            createPrivateDirectory();
+
+            ObjectNode envelope = objectMapper.createObjectNode();
+            envelope.put("savedAt", System.currentTimeMillis());
+            envelope.set("data", objectMapper.valueToTree(data));
+
+            createPrivateFile(temp);
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp))) {
+                objectMapper.writeValue(out, envelope);
+            }
+
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            logger.debug("Tenant {}: Snapshot '{}' guardado ({} bytes)", tenantId, name, Files.size(target));
+
+        } catch (Exception e) {
+            logger.warn("Tenant {}: No se pudo guardar el snapshot '{}': {}", tenantId, name, e.getMessage());
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Se sobrescribe en el siguiente guardado
+            }
+        }
+    }
+
+    private void createPrivateDirectory() throws IOException {
+        if (Files.isDirectory(directory)) {
+            return;
+        }
+        if (isPosix()) {
+            Files.createDirectories(directory,
+                    PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        } else {
+            Files.createDirectories(directory);
+        }
+    }
+
+    /**
+     * Crea (o vacía) el fichero temporal con permisos solo para el propietario antes de escribir datos
+     */
+    private void createPrivateFile(Path path) throws IOException {
+        Files.deleteIfExists(path);
+        if (isPosix()) {
+            Files.createFile(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } else {
+            Files.createFile(path);
+        }
+    }
+
+    private boolean isPosix() {
+        return directory.getFileSystem().supportedFileAttributeViews().contains("posix");
+    }
+
+    /**
+     * Lee el snapshot de un tenant; vacío si no existe, es demasiado antiguo,
+     * está deshabilitado o no se puede leer
+     */
+    public <T> Optional<StoredSnapshot<T>> load(String name, Long tenantId, JavaType type) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+
+        Path source = file(name, tenantId);
+        if (!Files.isRegularFile(source)) {
+            return Optional.empty();
+        }
+
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(source))) {
+            JsonNode envelope = objectMapper.readTree(in);
+            Instant savedAt = Instant.ofEpochMilli(envelope.path("savedAt").asLong());
+            if (savedAt.plus(maxAge).isBefore(Instant.now())) {
+                logger.info("Tenant {}: Snapshot '{}' del {} demasiado antiguo, se ignora", tenantId, name, savedAt);
+                return Optional.empty();
+            }
+            T data = objectMapper.convertValue(envelope.get("data"), type);
+            return Optional.of(new StoredSnapshot<>(savedAt, data));
+
+        } catch (Exception e) {
+            logger.warn("Tenant {}: Snapshot '{}' ilegible, se descarta: {}", tenantId, name, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Elimina todos los snapshots de un tenant (baja de tenant)
+     */
+    public void deleteTenant(Long tenantId) {
+        if (!enabled || !Files.isDirectory(directory)) {
+            return;
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*-tenant-" + tenantId + SUFFIX)) {
+            for (Path path : files) {
+                Files.deleteIfExists(path);
+            }
+            logger.info("Tenant {}: Snapshots de caché eliminados", tenantId);
+        } catch (IOException e) {
+            logger.warn("Tenant {}: No se pudieron eliminar los snapshots de caché: {}", tenantId, e.getMessage());
+        }
+    }
+
+    public JavaType listType(Class<?> elementType) {
+        return objectMapper.getTypeFactory().constructCollectionType(List.class, elementType);
+    }
+
+    public JavaType mapOfListsType(Class<?> keyType, Class<?> elementType) {
+        return objectMapper.getTypeFactory().constructMapType(Map.class,
+                objectMapper.getTypeFactory().constructType(keyType), listType(elementType));
+    }
+
+    private Path file(String name, Long tenantId) {
+        return directory.resolve(name + "-tenant-" + tenantId + SUFFIX);
+    }
+}
@@ -0,0 +1,242 @@
+package es.hargos.ritrack.service;
+
+import es.hargos.ritrack.context.TenantContext;
+import es.hargos.ritrack.entity.TenantEntity;
+import es.hargos.ritrack.repository.TenantRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Precarga de cachés al arrancar, tenant a tenant.
+ *
+ * Para cada tenant activo que pasa isTenantReady():
+ * - Empleados Rooster (si no se restauraron ya desde el snapshot en disco)
+ * - Starting points de cada ciudad activa
+ * - Datos maestros: contratos, tipos de vehículo y ciudades (si no se restauraron desde disco)
+ *
+ * Escalonado: un tenant tras otro, con pausa entre tenants y entre peticiones de
+ * starting points (prioridad LOW), para no agotar el presupuesto de Glovo de golpe.
+ *
+ * Readiness: el health indicator "cacheWarmupService" forma parte solo del grupo readiness
+ * (ver HealthProbesConfig) y está OUT_OF_SERVICE desde el arranque hasta que termina la
+ * precarga, así /actuator/health/readiness devuelve 503 sin ventana previa en la que se
+ * acepte tráfico. Al superar max-duration pasa a UP y los tenants pendientes se siguen
+ * precargando en segundo plano. El agregado /actuator/health sigue respondiendo 200.
+ */
+@Service
+public class CacheWarmupService implements HealthIndicator {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheWarmupService.class);
+
+    private enum Phase { PENDING, WARMING, DONE, DISABLED }
+
+    private final TenantRepository tenantRepository;
+    private final TenantOnboardingService onboardingService;
+    private final TenantSettingsService tenantSettingsService;
+    private final RoosterCacheService roosterCacheService;
+    private final CityService cityService;
+    private final MasterDataCacheService masterDataCache;
+
+    private final boolean enabled;
+    private final long tenantDelayMs;
+    private final long requestDelayMs;
+    private final Duration maxDuration;
+
+    private final ExecutorService warmupExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Cache-Warmup");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private final AtomicBoolean trafficReleased = new AtomicBoolean(false);
+    private final AtomicInteger tenantsTotal = new AtomicInteger();
+    private final AtomicInteger tenantsWarmed = new AtomicInteger();
+    private final AtomicInteger tenantsFailed = new AtomicInteger();
+    private volatile Phase phase = Phase.PENDING;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+
+    public CacheWarmupService(TenantRepository tenantRepository,
+                              TenantOnboardingService onboardingService,
+                              TenantSettingsService tenantSettingsService,
+                              RoosterCacheService roosterCacheService,
+                              CityService cityService,
+                              MasterDataCacheService masterDataCache,
+                              @Value("${cache.warmup.enabled:true}") boolean enabled,
+                              @Value("${cache.warmup.tenant-delay-ms:2000}") long tenantDelayMs,
+                              @Value("${cache.warmup.request-delay-ms:250}") long requestDelayMs,
+                              @Value("${cache.warmup.max-duration-seconds:180}") long maxDurationSeconds) {
+        this.tenantRepository = tenantRepository;
+        this.onboardingService = onboardingService;
+        this.tenantSettingsService = tenantSettingsService;
+        this.roosterCacheService = roosterCacheService;
+        this.cityService = cityService;
+        this.masterDataCache = masterDataCache;
+        this.enabled = enabled;
+        this.tenantDelayMs = tenantDelayMs;
+        this.requestDelayMs = requestDelayMs;
+        this.maxDuration = Duration.ofSeconds(maxDurationSeconds);
+        if (!enabled) {
+            this.phase = Phase.DISABLED;
+        }
+    }
+
+    /**
+     * Spring Boot publica ACCEPTING_TRAFFIC justo después de ApplicationReadyEvent (y después
+     * de restaurar los snapshots en disco). En ese momento se lanza la precarga en su propio
+     * hilo; hasta que termina, el health indicator mantiene el grupo readiness en 503.
+     */
+    @EventListener
+    public void onReadinessChange(AvailabilityChangeEvent<ReadinessState> event) {
+        if (!enabled || event.getState() != ReadinessState.ACCEPTING_TRAFFIC || !started.compareAndSet(false, true)) {
+            return;
+        }
+        warmupExecutor.execute(this::warmUpAllTenants);
+    }
+
+    private void warmUpAllTenants() {
+        phase = Phase.WARMING;
+        startedAt = Instant.now();
+
+        try {
+            List<TenantEntity> readyTenants = tenantRepository.findByIsActive(true).stream()
+                    .filter(tenant -> onboardingService.isTenantReady(tenant.getId()))
+                    .toList();
+            tenantsTotal.set(readyTenants.size());
+
+            logger.info("Precarga de cachés: {} tenants configurados", readyTenants.size());
+
+            for (int i = 0; i < readyTenants.size(); i++) {
+                if (i > 0) {
+                    Thread.sleep(tenantDelayMs);
+                }
+                warmUpTenant(readyTenants.get(i));
+
+                if (!trafficReleased.get() && Duration.between(startedAt, Instant.now()).compareTo(maxDuration) > 0) {
+                    logger.warn("Precarga de cachés: superado el máximo de {} s, aceptando tráfico " +
+                            "({} de {} tenants precargados)", maxDuration.toSeconds(), i + 1, readyTenants.size());
+                    releaseTraffic();
+                }
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Precarga de cachés interrumpida");
+        } catch (Exception e) {
+            logger.error("Error en la precarga de cachés: {}", e.getMessage(), e);
+        } finally {
+            phase = Phase.DONE;
+            finishedAt = Instant.now();
+            releaseTraffic();
+            logger.info("Precarga de cachés completada en {} ms: {} tenants OK, {} con errores",
+                    Duration.between(startedAt, finishedAt).toMillis(), tenantsWarmed.get(), tenantsFailed.get());
+        }
+    }
+
+    private void warmUpTenant(TenantEntity tenant) throws InterruptedException {
+        Long tenantId = tenant.getId();
+        long start = System.currentTimeMillis();
+
+        // Configurar TenantContext para este hilo (necesario para Hibernate multi-tenant)
+        TenantContext.setCurrentContext(TenantContext.TenantInfo.builder()
+                .selectedTenantId(tenantId)
+                .tenantIds(List.of(tenantId))
+                .schemaNames(List.of(tenant.getSchemaName()))
+                .tenantNames(List.of(tenant.getName()))
+                .build());
+        try {
+            boolean failed = false;
+
+            // Empleados Rooster: si ya se restauraron desde disco solo se revalidan en segundo plano
+            if (roosterCacheService.getSnapshotIfLoaded(tenantId) == null) {
+                try {
+                    roosterCacheService.getSnapshot(tenantId);
+                } catch (Exception e) {
+                    failed = true;
+                    logger.warn("Tenant {}: Error precargando empleados Rooster: {}", tenantId, e.getMessage());
+                }
+            }
+
+            // Starting points de cada ciudad activa (cacheados 30 días)
+            for (Integer cityId : tenantSettingsService.getActiveCityIds(tenantId)) {
+                try {
+                    cityService.getStartingPoints(tenantId, cityId);
+                } catch (Exception e) {
+                    failed = true;
+                    logger.warn("Tenant {}, Ciudad {}: Error precargando starting points: {}",
+                            tenantId, cityId, e.getMessage());
+                }
+                Thread.sleep(requestDelayMs);
+            }
+
+            // Datos maestros (contratos, tipos de vehículo, ciudades)
+            for (MasterDataCacheService.MasterDataType type : MasterDataCacheService.MasterDataType.values()) {
+                try {
+                    masterDataCache.get(tenantId, type);
+                } catch (Exception e) {
+                    failed = true;
+                    logger.warn("Tenant {}: Error precargando {}: {}", tenantId, type, e.getMessage());
+                }
+                Thread.sleep(requestDelayMs);
+            }
+
+            if (failed) {
+                tenantsFailed.incrementAndGet();
+            } else {
+                tenantsWarmed.incrementAndGet();
+            }
+            logger.info("Tenant {}: Cachés precargados en {} ms", tenant.getName(), System.currentTimeMillis() - start);
+
+        } finally {
+            TenantContext.clear();
+        }
+    }
+
+    private void releaseTraffic() {
+        if (trafficReleased.compareAndSet(false, true)) {
+            logger.info("Precarga de cachés: readiness UP, aceptando tráfico");
+        }
+    }
+
+    /**
+     * Estado de la precarga: OUT_OF_SERVICE desde el arranque hasta terminar (o superar el máximo).
+     * En el grupo readiness da 503; en el agregado /actuator/health se mapea a 200.
+     */
+    @Override
+    public Health health() {
+        Health.Builder builder = enabled && !trafficReleased.get()
+                ? Health.outOfService()
+                : Health.up();
+
+        return builder
+                .withDetail("phase", phase.name())
+                .withDetail("tenantsTotal", tenantsTotal.get())
+                .withDetail("tenantsWarmed", tenantsWarmed.get())
+                .withDetail("tenantsFailed", tenantsFailed.get())
+                .withDetail("startedAt", String.valueOf(startedAt))
+                .withDetail("finishedAt", String.valueOf(finishedAt))
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        warmupExecutor.shutdownNow();
+    }
+}
@@ -1,29 +1,74 @@
 package es.hargos.ritrack.service;
 
 import es.hargos.ritrack.client.GlovoClient;
+import es.hargos.ritrack.config.CacheConfig;
 import es.hargos.ritrack.dto.StartingPointDto;
+import es.hargos.ritrack.entity.TenantEntity;
+import es.hargos.ritrack.repository.TenantRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PreDestroy;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 /**
  * Service for city-related operations
  * Provides starting points and other city data
+ *
+ * Starting points of each tenant are also persisted to disk (CacheSnapshotStore)
+ * and restored into the "starting-points" cache on startup.
  */
 @Service
 public class CityService {
 
     private static final Logger logger = LoggerFactory.getLogger(CityService.class);
 
+    private static final String SNAPSHOT_NAME = "starting-points";
+
     @Autowired
     private GlovoClient glovoClient;
 
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private CacheSnapshotStore snapshotStore;
+
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    // Proxy propio: las llamadas internas a getStartingPoints deben pasar por @Cacheable
+    @Lazy
+    @Autowired
+    private CityService self;
+
+    // Disk snapshots are written off the request thread. Cities fetched while a tenant's write is
+    // still queued are merged into that same write instead of re-serialising the tenant each time.
+    private final ExecutorService snapshotExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "StartingPoints-Snapshot");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ConcurrentMap<Long, Map<Integer, List<StartingPointDto>>> pendingSnapshots = new ConcurrentHashMap<>();
+
     /**
      * Get all starting points for a city
      *
@@ -32,10 +77,10 @@ public class CityService {
      * @return List of starting points
      * @throws Exception if API call fails
      *
-     * Cache: 30 days TTL (starting points rarely change)
+     * Cache: 30 days TTL (starting points rarely change), see CacheConfig
      * Key: "tenantId-cityId" to ensure tenant isolation
      */
-    @Cacheable(value = "starting-points", key = "#tenantId + '-' + #cityId")
+    @Cacheable(value = CacheConfig.STARTING_POINTS, key = "#tenantId + '-' + #cityId")
     public List<StartingPointDto> getStartingPoints(Long tenantId, Integer cityId) throws Exception {
         logger.info("Tenant {}: Fetching starting points for city {} from Glovo API", tenantId, cityId);
 
@@ -61,6 +106,8 @@ public class CityService {
             logger.info("Tenant {}: Retrieved {} starting points for city {}",
                 tenantId, startingPoints.size(), cityId);
 
+            persistStartingPoints(tenantId, cityId, startingPoints);
+
             return startingPoints;
 
         } catch (Exception e) {
@@ -79,9 +126,100 @@ public class CityService {
      * @throws Exception if API call fails
      */
     public List<Integer> getStartingPointIds(Long tenantId, Integer cityId) throws Exception {
-        List<StartingPointDto> startingPoints = getStartingPoints(tenantId, cityId);
+        List<StartingPointDto> startingPoints = self.getStartingPoints(tenantId, cityId);
         return startingPoints.stream()
             .map(StartingPointDto::getId)
             .collect(Collectors.toList());
     }
+
+    /**
+     * Queue a disk snapshot of the tenant's starting points (asynchronous, one write per burst)
+     */
+    private void persistStartingPoints(Long tenantId, Integer cityId, List<StartingPointDto> startingPoints) {
+        if (!snapshotStore.isEnabled()) {
+            return;
+        }
+
+        boolean[] queued = {false};
+        pendingSnapshots.compute(tenantId, (id, pending) -> {
+            if (pending == null) {
+                pending = new ConcurrentHashMap<>();
+                queued[0] = true;
+            }
+            pending.put(cityId, startingPoints);
+            return pending;
+        });
+        if (!queued[0]) {
+            return;
+        }
+
+        try {
+            snapshotExecutor.execute(() -> writeStartingPoints(tenantId));
+        } catch (RejectedExecutionException e) {
+            pendingSnapshots.remove(tenantId);
+            logger.debug("Tenant {}: Starting points snapshot not saved (executor shut down)", tenantId);
+        }
+    }
+
+    /**
+     * Persist all cached starting points of the tenant plus the cities fetched since the write was queued
+     */
+    private void writeStartingPoints(Long tenantId) {
+        Map<Integer, List<StartingPointDto>> fetched = pendingSnapshots.remove(tenantId);
+        if (fetched == null) {
+            return;
+        }
+
+        Map<Integer, List<StartingPointDto>> byCity = new HashMap<>();
+        if (cacheManager.getCache(CacheConfig.STARTING_POINTS) instanceof CaffeineCache cache) {
+            String prefix = tenantId + "-";
+            cache.getNativeCache().asMap().forEach((key, value) -> {
+                String keyStr = key.toString();
+                if (keyStr.startsWith(prefix) && value instanceof List<?> list) {
+                    try {
+                        @SuppressWarnings("unchecked")
+                        List<StartingPointDto> points = (List<StartingPointDto>) list;
+                        byCity.put(Integer.valueOf(keyStr.substring(prefix.length())), points);
+                    } catch (NumberFormatException ignored) {
+                        // Not a "tenantId-cityId" key
+                    }
+                }
+            });
+        }
+        byCity.putAll(fetched);
+
+        snapshotStore.save(SNAPSHOT_NAME, tenantId, byCity);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        snapshotExecutor.shutdown();
+    }
+
+    /**
+     * Restore persisted starting points of every active tenant into the cache on startup
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void restoreStartingPoints() {
+        Cache cache = cacheManager.getCache(CacheConfig.STARTING_POINTS);
+        if (!snapshotStore.isEnabled() || cache == null) {
+            return;
+        }
+
+        for (TenantEntity tenant : tenantRepository.findByIsActive(true)) {
+            Long tenantId = tenant.getId();
+            Optional<CacheSnapshotStore.StoredSnapshot<Map<Integer, List<StartingPointDto>>>> stored =
+                snapshotStore.load(SNAPSHOT_NAME, tenantId,
+                    snapshotStore.mapOfListsType(Integer.class, StartingPointDto.class));
+
+            stored.ifPresent(snapshot -> {
+                if (snapshot.data() == null) {
+                    return;
+                }
+                snapshot.data().forEach((cityId, points) -> cache.putIfAbsent(tenantId + "-" + cityId, points));
+                logger.info("Tenant {}: Restored starting points for {} cities from disk snapshot",
+                    tenantId, snapshot.data().size());
+            });
+        }
+    }
 }
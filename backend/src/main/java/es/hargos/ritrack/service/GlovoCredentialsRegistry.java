@@ -0,0 +1,87 @@
+package es.hargos.ritrack.service;
+
+import es.hargos.ritrack.entity.GlovoCredentialsEntity;
+import es.hargos.ritrack.repository.GlovoCredentialsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registro en memoria de credenciales Glovo activas por tenant.
+ *
+ * GlovoClient y TenantTokenService consultan las credenciales (base URLs, client_id,
+ * key_id, ruta del .pem) en cada llamada HTTP. Se cargan de BD una sola vez por tenant
+ * y se sirven desde memoria; también se recuerda la ausencia de credenciales activas.
+ *
+ * Invalidación: onboarding (provisionTenant / updateTenantConfiguration) y endpoints
+ * de administración que modifican o eliminan credenciales. Si hay transacción activa,
+ * se invalida de nuevo tras el commit para no recargar la versión antigua.
+ */
+@Service
+public class GlovoCredentialsRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(GlovoCredentialsRegistry.class);
+
+    private final GlovoCredentialsRepository credentialsRepository;
+
+    // Optional.empty() = tenant sin credenciales activas (evita consultar BD en cada llamada)
+    private final ConcurrentMap<Long, Optional<GlovoCredentialsEntity>> credentialsByTenant = new ConcurrentHashMap<>();
+
+    public GlovoCredentialsRegistry(GlovoCredentialsRepository credentialsRepository) {
+        this.credentialsRepository = credentialsRepository;
+    }
+
+    /**
+     * Credenciales activas del tenant (desde memoria)
+     */
+    public Optional<GlovoCredentialsEntity> findActiveCredentials(Long tenantId) {
+        return credentialsByTenant.computeIfAbsent(tenantId, id -> {
+            Optional<GlovoCredentialsEntity> credentials = credentialsRepository.findByTenantIdAndIsActive(id, true);
+            logger.debug("Tenant {}: Credenciales Glovo cargadas en registro (presentes: {})",
+                    id, credentials.isPresent());
+            return credentials;
+        });
+    }
+
+    /**
+     * Credenciales activas del tenant o RuntimeException si no existen
+     */
+    public GlovoCredentialsEntity getActiveCredentials(Long tenantId) {
+        return findActiveCredentials(tenantId)
+                .orElseThrow(() -> new RuntimeException(
+                        "No active Glovo credentials found for tenant " + tenantId
+                ));
+    }
+
+    /**
+     * Invalida las credenciales de un tenant (también tras el commit si hay transacción)
+     */
+    public void invalidate(Long tenantId) {
+        credentialsByTenant.remove(tenantId);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    credentialsByTenant.remove(tenantId);
+                }
+            });
+        }
+
+        logger.info("Tenant {}: Credenciales Glovo invalidadas en registro", tenantId);
+    }
+
+    /**
+     * Invalida todo el registro
+     */
+    public void invalidateAll() {
+        credentialsByTenant.clear();
+        logger.info("Registro de credenciales Glovo vaciado");
+    }
+}
@@ -0,0 +1,207 @@
+package es.hargos.ritrack.service;
+
+import es.hargos.ritrack.dto.RiderLocationDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Almacén compartido de la última foto Live API por (tenant, ciudad).
+ *
+ * RiderLocationService.updateAllTenantsLocations() descarga cada 30 s todas las ciudades
+ * activas de cada tenant y publica aquí el resultado. Búsqueda (RiderFilterService) y los
+ * endpoints de /api/v1/rider-locations leen de este almacén sin llamar a Glovo.
+ *
+ * Cada snapshot es inmutable y lleva publishedAt + sequence (monótona global), así un
+ * lector sabe qué versión está sirviendo. Un snapshot más antiguo que max-age se considera
+ * caducado (p.ej. el poller falla para esa ciudad) y el lector vuelve a consultar la API.
+ */
+@Service
+public class LiveCitySnapshotStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(LiveCitySnapshotStore.class);
+
+    private final ConcurrentMap<Long, ConcurrentMap<Integer, LiveCitySnapshot>> snapshotsByTenant = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleReads = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private final Duration maxAge;
+
+    public LiveCitySnapshotStore(@Value("${live.snapshot.max-age-seconds:90}") long maxAgeSeconds) {
+        this.maxAge = Duration.ofSeconds(maxAgeSeconds);
+    }
+
+    /**
+     * Foto de una ciudad tal y como la devolvió Live API en un ciclo del poller.
+     *
+     * @param riders    filas crudas de la API (para búsqueda)
+     * @param locations las mismas filas convertidas a RiderLocationDto (para ubicaciones)
+     */
+    public record LiveCitySnapshot(
+            Long tenantId,
+            Integer cityId,
+            long sequence,
+            Instant publishedAt,
+            List<Map<String, Object>> riders,
+            List<RiderLocationDto> locations) {
+
+        public long ageMillis() {
+            return Duration.between(publishedAt, Instant.now()).toMillis();
+        }
+    }
+
+    /**
+     * Publica la foto de una ciudad, sustituyendo la anterior
+     */
+    public LiveCitySnapshot publish(Long tenantId, Integer cityId,
+                                   List<Map<String, Object>> riders,
+                                   List<RiderLocationDto> locations) {
+        LiveCitySnapshot snapshot = new LiveCitySnapshot(
+                tenantId,
+                cityId,
+                sequence.incrementAndGet(),
+                Instant.now(),
+                riders != null ? Collections.unmodifiableList(riders) : List.of(),
+                locations != null ? Collections.unmodifiableList(locations) : List.of());
+
+        snapshotsByTenant.computeIfAbsent(tenantId, id -> new ConcurrentHashMap<>()).put(cityId, snapshot);
+        published.increment();
+
+        logger.debug("Tenant {}, Ciudad {}: Snapshot live #{} publicado ({} riders)",
+                tenantId, cityId, snapshot.sequence(), snapshot.riders().size());
+        return snapshot;
+    }
+
+    /**
+     * Snapshot de la ciudad si existe y no ha superado max-age; null en caso contrario
+     */
+    public LiveCitySnapshot getFresh(Long tenantId, Integer cityId) {
+        LiveCitySnapshot snapshot = get(tenantId, cityId);
+        if (snapshot == null) {
+            misses.increment();
+            return null;
+        }
+        if (isStale(snapshot)) {
+            staleReads.increment();
+            return null;
+        }
+        hits.increment();
+        return snapshot;
+    }
+
+    /**
+     * Snapshots de todas las ciudades indicadas del tenant, solo si todas existen y están frescas
+     * (foto completa del tenant para la búsqueda de todas las ciudades); null en caso contrario
+     */
+    public Map<Integer, LiveCitySnapshot> getFreshAll(Long tenantId, Collection<Integer> cityIds) {
+        Map<Integer, LiveCitySnapshot> tenantSnapshots = snapshotsByTenant.get(tenantId);
+        if (tenantSnapshots == null || cityIds.isEmpty()) {
+            return null;
+        }
+        Map<Integer, LiveCitySnapshot> result = new LinkedHashMap<>();
+        for (Integer cityId : cityIds) {
+            LiveCitySnapshot snapshot = tenantSnapshots.get(cityId);
+            if (snapshot == null || isStale(snapshot)) {
+                return null;
+            }
+            result.put(cityId, snapshot);
+        }
+        hits.add(result.size());
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Último snapshot publicado de la ciudad, sin comprobar antigüedad
+     */
+    public LiveCitySnapshot get(Long tenantId, Integer cityId) {
+        Map<Integer, LiveCitySnapshot> tenantSnapshots = snapshotsByTenant.get(tenantId);
+        return tenantSnapshots != null ? tenantSnapshots.get(cityId) : null;
+    }
+
+    /**
+     * Todos los snapshots publicados de un tenant (vista inmutable por cityId)
+     */
+    public Map<Integer, LiveCitySnapshot> getTenant(Long tenantId) {
+        Map<Integer, LiveCitySnapshot> tenantSnapshots = snapshotsByTenant.get(tenantId);
+        return tenantSnapshots != null ? Map.copyOf(tenantSnapshots) : Map.of();
+    }
+
+    /**
+     * Versión de los datos live del tenant: secuencia del último snapshot publicado
+     * en cualquiera de sus ciudades (0 si no hay ninguno)
+     */
+    public long getTenantVersion(Long tenantId) {
+        Map<Integer, LiveCitySnapshot> tenantSnapshots = snapshotsByTenant.get(tenantId);
+        if (tenantSnapshots == null) {
+            return 0L;
+        }
+        long version = 0L;
+        for (LiveCitySnapshot snapshot : tenantSnapshots.values()) {
+            version = Math.max(version, snapshot.sequence());
+        }
+        return version;
+    }
+
+    public boolean isStale(LiveCitySnapshot snapshot) {
+        return snapshot.publishedAt().plus(maxAge).isBefore(Instant.now());
+    }
+
+    /**
+     * Elimina los snapshots de un tenant (baja de tenant o cambio de credenciales)
+     */
+    public void removeTenant(Long tenantId) {
+        if (snapshotsByTenant.remove(tenantId) != null) {
+            logger.info("Tenant {}: Snapshots live eliminados", tenantId);
+        }
+    }
+
+    /**
+     * Mantiene solo las ciudades indicadas (ciudades desactivadas en la configuración del tenant)
+     */
+    public void retainCities(Long tenantId, Collection<Integer> cityIds) {
+        Map<Integer, LiveCitySnapshot> tenantSnapshots = snapshotsByTenant.get(tenantId);
+        if (tenantSnapshots != null) {
+            tenantSnapshots.keySet().retainAll(cityIds);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        List<Map<String, Object>> tenants = new ArrayList<>();
+
+        snapshotsByTenant.forEach((tenantId, cities) -> {
+            Map<String, Object> tenantStats = new LinkedHashMap<>();
+            tenantStats.put("tenantId", tenantId);
+            tenantStats.put("cities", cities.size());
+            tenantStats.put("riders", cities.values().stream().mapToInt(s -> s.riders().size()).sum());
+            tenantStats.put("staleCities", cities.values().stream().filter(this::isStale).count());
+            tenantStats.put("oldestAgeMs", cities.values().stream()
+                    .mapToLong(LiveCitySnapshot::ageMillis).max().orElse(0L));
+            tenants.add(tenantStats);
+        });
+
+        long reads = hits.sum() + staleReads.sum() + misses.sum();
+        stats.put("maxAgeSeconds", maxAge.toSeconds());
+        stats.put("currentSequence", sequence.get());
+        stats.put("published", published.sum());
+        stats.put("hits", hits.sum());
+        stats.put("staleReads", staleReads.sum());
+        stats.put("misses", misses.sum());
+        stats.put("hitRate", reads > 0 ? String.format("%.2f%%", hits.sum() * 100.0 / reads) : "0.00%");
+        stats.put("tenants", tenants);
+        return stats;
+    }
+}
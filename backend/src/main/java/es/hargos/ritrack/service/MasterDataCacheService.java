@@ -0,0 +1,359 @@
+package es.hargos.ritrack.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import es.hargos.ritrack.client.GlovoClient;
+import es.hargos.ritrack.entity.TenantEntity;
+import es.hargos.ritrack.repository.TenantRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché por tenant de datos maestros de Glovo: contratos, tipos de vehículo y ciudades.
+ *
+ * - TTL largo (12 h por defecto) con refresco en segundo plano: los lectores nunca esperan
+ *   salvo en la primera carga del tenant
+ * - Detección de cambios: cada recarga compara el contenido con el anterior; si no cambia
+ *   se conserva la misma lista y versión, si cambia se incrementa la versión y se registra
+ * - refresh(tenantId) fuerza la recarga inmediata (endpoint manual) e indica qué cambió
+ * - Persistencia en disco (CacheSnapshotStore) y restauración al arrancar, igual que Rooster
+ *
+ * Además guarda durante unos minutos las ciudades/contratos consultados en el wizard de
+ * onboarding (aún sin tenant), para que validar y provisionar no repitan las mismas llamadas.
+ */
+@Service
+public class MasterDataCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MasterDataCacheService.class);
+
+    private static final String SNAPSHOT_NAME = "master-data";
+
+    public enum MasterDataType { CONTRACTS, VEHICLE_TYPES, CITIES }
+
+    /**
+     * Datos maestros de un tipo para un tenant
+     *
+     * @param version   se incrementa solo cuando el contenido cambia
+     * @param changedAt última vez que se detectó un cambio
+     */
+    public record MasterDataEntry(List<Object> items, int contentHash, long version,
+                                  Instant fetchedAt, Instant changedAt) {
+    }
+
+    private record Key(Long tenantId, MasterDataType type) {
+    }
+
+    private final GlovoClient glovoClient;
+    private final CacheSnapshotStore snapshotStore;
+    private final TenantRepository tenantRepository;
+    private final long ttlHours;
+    private final LoadingCache<Key, MasterDataEntry> cache;
+    private final Cache<String, List<Map<String, Object>>> onboardingLookups;
+    private final ExecutorService refreshExecutor;
+
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder changesDetected = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+
+    public MasterDataCacheService(GlovoClient glovoClient,
+                                  CacheSnapshotStore snapshotStore,
+                                  TenantRepository tenantRepository,
+                                  @Value("${cache.master-data.ttl-hours:12}") long ttlHours,
+                                  @Value("${cache.master-data.max-entries:3000}") long maxEntries,
+                                  @Value("${cache.master-data.onboarding-ttl-minutes:15}") long onboardingTtlMinutes) {
+        this.glovoClient = glovoClient;
+        this.snapshotStore = snapshotStore;
+        this.tenantRepository = tenantRepository;
+        this.ttlHours = ttlHours;
+
+        this.refreshExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "MasterData-Refresh");
+            t.setDaemon(true);
+            return t;
+        });
+
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .refreshAfterWrite(ttlHours, TimeUnit.HOURS)
+                .expireAfterAccess(7, TimeUnit.DAYS)
+                .executor(refreshExecutor)
+                .recordStats()
+                .build(new MasterDataLoader());
+
+        this.onboardingLookups = Caffeine.newBuilder()
+                .maximumSize(500)
+                .expireAfterWrite(onboardingTtlMinutes, TimeUnit.MINUTES)
+                .build();
+
+        logger.info("Caché de datos maestros configurado - refresco: {} h, máximo: {} entradas", ttlHours, maxEntries);
+    }
+
+    /**
+     * Carga desde Glovo; en las recargas compara con el contenido anterior
+     */
+    private class MasterDataLoader implements CacheLoader<Key, MasterDataEntry> {
+
+        @Override
+        public MasterDataEntry load(Key key) throws Exception {
+            return compareAndBuild(key, null, fetch(key));
+        }
+
+        @Override
+        public MasterDataEntry reload(Key key, MasterDataEntry oldValue) throws Exception {
+            return compareAndBuild(key, oldValue, fetch(key));
+        }
+    }
+
+    private List<Object> fetch(Key key) throws Exception {
+        try {
+            List<Object> items = switch (key.type()) {
+                case CONTRACTS -> glovoClient.getContracts(key.tenantId());
+                case VEHICLE_TYPES -> glovoClient.getVehicleTypes(key.tenantId());
+                case CITIES -> glovoClient.getCities(key.tenantId());
+            };
+            loads.increment();
+            return items != null ? Collections.unmodifiableList(new ArrayList<>(items)) : List.of();
+        } catch (Exception e) {
+            loadFailures.increment();
+            throw e;
+        }
+    }
+
+    private MasterDataEntry compareAndBuild(Key key, MasterDataEntry previous, List<Object> items) {
+        Instant now = Instant.now();
+        int hash = items.hashCode();
+
+        if (previous != null && previous.contentHash() == hash && previous.items().equals(items)) {
+            return new MasterDataEntry(previous.items(), hash, previous.version(), now, previous.changedAt());
+        }
+
+        MasterDataEntry entry = new MasterDataEntry(items, hash,
+                previous != null ? previous.version() + 1 : 1, now, now);
+
+        if (previous != null) {
+            changesDetected.increment();
+            logger.info("Tenant {}: Cambios detectados en {} ({} → {} elementos, versión {})",
+                    key.tenantId(), key.type(), previous.items().size(), items.size(), entry.version());
+        } else {
+            logger.info("Tenant {}: Cargados {} elementos de {}", key.tenantId(), items.size(), key.type());
+        }
+
+        persistSnapshot(key.tenantId(), key.type(), entry);
+        return entry;
+    }
+
+    // ===============================================
+    // LECTURA
+    // ===============================================
+
+    public List<Object> getContracts(Long tenantId) throws Exception {
+        return get(tenantId, MasterDataType.CONTRACTS).items();
+    }
+
+    public List<Object> getVehicleTypes(Long tenantId) throws Exception {
+        return get(tenantId, MasterDataType.VEHICLE_TYPES).items();
+    }
+
+    public List<Object> getCities(Long tenantId) throws Exception {
+        return get(tenantId, MasterDataType.CITIES).items();
+    }
+
+    /**
+     * Entrada de un tipo. Solo bloquea en la primera carga del tenant.
+     */
+    public MasterDataEntry get(Long tenantId, MasterDataType type) throws Exception {
+        try {
+            return cache.get(new Key(tenantId, type));
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof Exception ex) {
+                throw ex;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * IDs presentes en un tipo de datos maestros (campo "id" de cada elemento)
+     */
+    public Set<Integer> getIds(Long tenantId, MasterDataType type) throws Exception {
+        Set<Integer> ids = new HashSet<>();
+        for (Object item : get(tenantId, type).items()) {
+            if (item instanceof Map<?, ?> map && map.get("id") instanceof Number id) {
+                ids.add(id.intValue());
+            }
+        }
+        return ids;
+    }
+
+    // ===============================================
+    // REFRESCO MANUAL E INVALIDACIÓN
+    // ===============================================
+
+    /**
+     * Recarga inmediatamente todos los tipos del tenant desde Glovo.
+     *
+     * @return Por tipo: changed, version, items (o error si la recarga falló)
+     */
+    public Map<String, Object> refresh(Long tenantId) {
+        Map<String, Object> result = new LinkedHashMap<>();
+
+        for (MasterDataType type : MasterDataType.values()) {
+            Key key = new Key(tenantId, type);
+            Map<String, Object> typeResult = new LinkedHashMap<>();
+            try {
+                MasterDataEntry previous = cache.getIfPresent(key);
+                MasterDataEntry entry = compareAndBuild(key, previous, fetch(key));
+                cache.put(key, entry);
+
+                typeResult.put("changed", previous == null || previous.version() != entry.version());
+                typeResult.put("version", entry.version());
+                typeResult.put("items", entry.items().size());
+            } catch (Exception e) {
+                typeResult.put("error", e.getMessage());
+                logger.warn("Tenant {}: Error refrescando {}: {}", tenantId, type, e.getMessage());
+            }
+            result.put(type.name(), typeResult);
+        }
+
+        return result;
+    }
+
+    /**
+     * Olvida los datos maestros del tenant (cambio de credenciales o baja)
+     */
+    public void invalidate(Long tenantId) {
+        for (MasterDataType type : MasterDataType.values()) {
+            cache.invalidate(new Key(tenantId, type));
+        }
+        logger.info("Tenant {}: Datos maestros invalidados", tenantId);
+    }
+
+    // ===============================================
+    // ONBOARDING (SIN TENANT)
+    // ===============================================
+
+    /**
+     * Resultado reciente de una consulta del wizard de onboarding (null si no hay).
+     * La clave es la huella de las credenciales validadas (clientId + keyId + contenido del .pem):
+     * otro .pem para el mismo clientId no reutiliza nada.
+     */
+    public List<Map<String, Object>> getOnboardingLookup(String roosterBaseUrl, String credentialsFingerprint,
+                                                         MasterDataType type) {
+        return onboardingLookups.getIfPresent(onboardingKey(roosterBaseUrl, credentialsFingerprint, type));
+    }
+
+    public void putOnboardingLookup(String roosterBaseUrl, String credentialsFingerprint, MasterDataType type,
+                                    List<Map<String, Object>> items) {
+        if (items != null) {
+            onboardingLookups.put(onboardingKey(roosterBaseUrl, credentialsFingerprint, type), List.copyOf(items));
+        }
+    }
+
+    private String onboardingKey(String roosterBaseUrl, String credentialsFingerprint, MasterDataType type) {
+        return roosterBaseUrl + "|" + credentialsFingerprint + "|" + type;
+    }
+
+    // ===============================================
+    // PERSISTENCIA
+    // ===============================================
+
+    private void persistSnapshot(Long tenantId, MasterDataType changedType, MasterDataEntry changedEntry) {
+        if (!snapshotStore.isEnabled()) {
+            return;
+        }
+
+        Map<MasterDataType, List<Object>> data = new EnumMap<>(MasterDataType.class);
+        for (MasterDataType type : MasterDataType.values()) {
+            MasterDataEntry entry = type == changedType ? changedEntry : cache.getIfPresent(new Key(tenantId, type));
+            if (entry != null) {
+                data.put(type, entry.items());
+            }
+        }
+
+        try {
+            refreshExecutor.execute(() -> snapshotStore.save(SNAPSHOT_NAME, tenantId, data));
+        } catch (RejectedExecutionException e) {
+            logger.debug("Tenant {}: Snapshot de datos maestros no guardado (executor cerrado)", tenantId);
+        }
+    }
+
+    /**
+     * Restaura al arrancar los datos maestros en disco de cada tenant activo y los
+     * revalida en segundo plano (un único hilo de refresco)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void restoreSnapshots() {
+        if (!snapshotStore.isEnabled()) {
+            return;
+        }
+
+        for (TenantEntity tenant : tenantRepository.findByIsActive(true)) {
+            Long tenantId = tenant.getId();
+            Optional<CacheSnapshotStore.StoredSnapshot<Map<MasterDataType, List<Object>>>> stored =
+                    snapshotStore.load(SNAPSHOT_NAME, tenantId,
+                            snapshotStore.mapOfListsType(MasterDataType.class, Object.class));
+
+            stored.ifPresent(snapshot -> {
+                if (snapshot.data() == null) {
+                    return;
+                }
+                snapshot.data().forEach((type, items) -> {
+                    Key key = new Key(tenantId, type);
+                    List<Object> restored = Collections.unmodifiableList(new ArrayList<>(items));
+                    cache.asMap().putIfAbsent(key, new MasterDataEntry(restored, restored.hashCode(), 1,
+                            snapshot.savedAt(), snapshot.savedAt()));
+                    cache.refresh(key);
+                });
+                logger.info("Tenant {}: Datos maestros restaurados desde disco ({})", tenantId, snapshot.data().keySet());
+            });
+        }
+    }
+
+    // ===============================================
+    // MONITOREO
+    // ===============================================
+
+    public Map<String, Object> getStats() {
+        Map<Long, Map<String, Object>> tenants = new TreeMap<>();
+        cache.asMap().forEach((key, entry) -> {
+            Map<String, Object> typeStats = new LinkedHashMap<>();
+            typeStats.put("items", entry.items().size());
+            typeStats.put("version", entry.version());
+            typeStats.put("fetchedAt", entry.fetchedAt());
+            typeStats.put("changedAt", entry.changedAt());
+            tenants.computeIfAbsent(key.tenantId(), id -> new LinkedHashMap<>()).put(key.type().name(), typeStats);
+        });
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("ttlHours", ttlHours);
+        result.put("entries", cache.estimatedSize());
+        result.put("loads", loads.sum());
+        result.put("loadFailures", loadFailures.sum());
+        result.put("changesDetected", changesDetected.sum());
+        result.put("onboardingLookups", onboardingLookups.estimatedSize());
+        result.put("tenants", tenants);
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+}
@@ -2,17 +2,31 @@ package es.hargos.ritrack.service;
 
 import io.github.bucket4j.Bandwidth;
 import io.github.bucket4j.Bucket;
+import io.github.bucket4j.BucketConfiguration;
 import io.github.bucket4j.Refill;
+import io.github.bucket4j.TokensInheritanceStrategy;
+import jakarta.annotation.PreDestroy;
 import lombok.Data;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Rate Limiter Service using Bucket4j to control requests to Glovo API.
@@ -28,10 +42,32 @@ import java.util.concurrent.ConcurrentMap;
  * - ...
  * - Total capacity: 20 × 900 = 18,000 req/min
  *
- * Priority levels per tenant:
+ * Priority levels per tenant (guaranteed minimums):
  * 1. HIGH: User-facing requests (searches, filters, detail views) - 400 req/min
  * 2. MEDIUM: WebSocket location updates - 300 req/min
  * 3. LOW: Background sync operations - 200 req/min
+ *
+ * Budgets are work-conserving: a priority that has used its guarantee borrows
+ * tokens from priorities with nothing waiting (LOW lends first, HIGH keeps a small
+ * reserve). HIGH may also preempt lower priorities' tokens even when they have
+ * waiting requests. The 900 req/min tenant cap is never exceeded.
+ *
+ * Adaptive tenant limit (AIMD):
+ * - A 429 from Glovo halves the tenant limit (floor 100 req/min) and pauses the
+ *   whole tenant for Retry-After / RateLimit-Reset (2s if Glovo sends no header)
+ * - At most one decrease per 5s, so a burst of 429s from in-flight requests counts once
+ * - After 60s without 429s the limit grows by 50 req/min every 30s, back up to 900
+ *
+ * Live API pagination pacing per tenant: 4 req/s (Glovo allows 5 req/s), scheduled
+ * through a token bucket instead of fixed sleeps between pages.
+ *
+ * Request queueing per tenant:
+ * - Requests that cannot get a token wait in a per-tenant queue ordered by priority
+ *   (HIGH, then MEDIUM, then LOW; FIFO within the same priority)
+ * - The queue is drained exactly when the buckets refill (no sleep-and-retry polling)
+ * - Each queued request has a deadline; on expiry it fails with RateLimitExceededException
+ * - Bounded queue: when full, the newest lower-priority request is shed to admit a
+ *   higher-priority one, otherwise the incoming request is rejected immediately
  */
 @Service
 public class RateLimitService {
@@ -42,11 +78,60 @@ public class RateLimitService {
     private static final int TENANT_LIMIT = 900;
     private static final Duration REFILL_DURATION = Duration.ofMinutes(1);
 
+    // Live API pagination pacing: 4 req/s per tenant (safety margin under Glovo's 5 req/s)
+    private static final int LIVE_PAGES_PER_SECOND = 4;
+    private static final Duration LIVE_PACING_MAX_WAIT = Duration.ofSeconds(30);
+
+    // Max requests waiting per tenant (all priorities); beyond this, load is shed
+    private static final int MAX_QUEUED_PER_TENANT = 500;
+
+    // Max time a request may wait in the queue, by priority
+    private static final Map<RequestPriority, Duration> DEFAULT_MAX_WAIT = Map.of(
+        RequestPriority.HIGH, Duration.ofSeconds(5),
+        RequestPriority.MEDIUM, Duration.ofSeconds(10),
+        RequestPriority.LOW, Duration.ofSeconds(30)
+    );
+
+    // HIGH tokens that are never lent to other priorities (a search always finds capacity)
+    private static final Map<RequestPriority, Long> LENDING_RESERVE = Map.of(
+        RequestPriority.HIGH, 50L,
+        RequestPriority.MEDIUM, 0L,
+        RequestPriority.LOW, 0L
+    );
+
+    // AIMD: multiplicative decrease on 429, additive increase while Glovo stays quiet
+    private static final int MIN_TENANT_LIMIT = 100;
+    private static final int LIMIT_INCREASE_STEP = 50;
+    private static final Duration LIMIT_INCREASE_INTERVAL = Duration.ofSeconds(30);
+    private static final Duration QUIET_PERIOD_BEFORE_INCREASE = Duration.ofSeconds(60);
+    private static final Duration DECREASE_COOLDOWN = Duration.ofSeconds(5);
+    private static final Duration DEFAULT_THROTTLE_PAUSE = Duration.ofSeconds(2);
+    private static final Duration MAX_THROTTLE_PAUSE = Duration.ofMinutes(5);
+
+    // Minimum delay between queue wake-ups (avoids busy rescheduling)
+    private static final long MIN_WAKE_UP_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
     // Buckets per tenant
     private final ConcurrentMap<Long, TenantBuckets> tenantBucketsMap;
 
+    // Pending permits per tenant, ordered by priority
+    private final ConcurrentMap<Long, TenantQueue> tenantQueues = new ConcurrentHashMap<>();
+
+    // Live pagination pacing buckets per tenant
+    private final ConcurrentMap<Long, Bucket> livePacingBuckets = new ConcurrentHashMap<>();
+
+    // Scheduler for queue wake-ups and pacing (async callers never sleep)
+    private final ScheduledExecutorService retryScheduler;
+
     public RateLimitService() {
         this.tenantBucketsMap = new ConcurrentHashMap<>();
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "RateLimit-Async");
+            t.setDaemon(true);
+            return t;
+        });
+        this.retryScheduler.scheduleAtFixedRate(this::increaseLimits,
+            LIMIT_INCREASE_INTERVAL.toMillis(), LIMIT_INCREASE_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -56,6 +141,7 @@ public class RateLimitService {
     static class TenantBuckets {
         private final Bucket globalBucket;
         private final Map<RequestPriority, Bucket> priorityBuckets;
+        private final AdaptiveLimit adaptiveLimit = new AdaptiveLimit();
 
         public TenantBuckets(Bucket globalBucket, Map<RequestPriority, Bucket> priorityBuckets) {
             this.globalBucket = globalBucket;
@@ -63,6 +149,128 @@ public class RateLimitService {
         }
     }
 
+    /**
+     * Current tenant limit as learned from Glovo 429s. Mutations are synchronized on the instance.
+     */
+    static final class AdaptiveLimit {
+        private volatile int limit = TENANT_LIMIT;
+        private volatile long pausedUntilNanos = System.nanoTime();
+        private long lastThrottledNanos = System.nanoTime() - QUIET_PERIOD_BEFORE_INCREASE.toNanos();
+        private long lastDecreaseNanos = System.nanoTime() - DECREASE_COOLDOWN.toNanos();
+        private long throttleEvents;
+
+        long remainingPauseNanos() {
+            return Math.max(0, pausedUntilNanos - System.nanoTime());
+        }
+    }
+
+    /**
+     * A request waiting for a token
+     */
+    static final class PendingPermit {
+        private final RequestPriority priority;
+        private final long deadlineNanos;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        PendingPermit(RequestPriority priority, long deadlineNanos) {
+            this.priority = priority;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+
+    /**
+     * Waiting requests for a single tenant. Guarded by its own monitor.
+     */
+    static final class TenantQueue {
+        private final Map<RequestPriority, ArrayDeque<PendingPermit>> queues = new EnumMap<>(RequestPriority.class);
+        private int size;
+        private ScheduledFuture<?> wakeUp;
+        private long wakeUpAtNanos;
+
+        private long granted;
+        private long borrowed;
+        private long preempted;
+        private long shed;
+        private long expired;
+
+        TenantQueue() {
+            for (RequestPriority priority : RequestPriority.values()) {
+                queues.put(priority, new ArrayDeque<>());
+            }
+        }
+
+        void add(PendingPermit pending) {
+            queues.get(pending.priority).addLast(pending);
+            size++;
+        }
+
+        /**
+         * Removes the newest request with lower priority than the given one, if any
+         */
+        PendingPermit evictLowerThan(RequestPriority priority) {
+            RequestPriority[] priorities = RequestPriority.values();
+            for (int i = priorities.length - 1; i > priority.ordinal(); i--) {
+                PendingPermit victim = queues.get(priorities[i]).pollLast();
+                if (victim != null) {
+                    size--;
+                    return victim;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Drops cancelled requests and collects expired ones.
+         * Returns the nanos until the earliest remaining deadline (Long.MAX_VALUE if empty).
+         */
+        long purge(long now, List<PendingPermit> expiredOut) {
+            long untilEarliestDeadline = Long.MAX_VALUE;
+            for (ArrayDeque<PendingPermit> deque : queues.values()) {
+                var it = deque.iterator();
+                while (it.hasNext()) {
+                    PendingPermit pending = it.next();
+                    if (pending.future.isDone()) {
+                        it.remove();
+                        size--;
+                    } else if (pending.deadlineNanos - now <= 0) {
+                        it.remove();
+                        size--;
+                        expired++;
+                        expiredOut.add(pending);
+                    } else {
+                        untilEarliestDeadline = Math.min(untilEarliestDeadline, pending.deadlineNanos - now);
+                    }
+                }
+            }
+            return untilEarliestDeadline;
+        }
+
+        void recordGrant(Grant grant) {
+            if (grant.granted()) {
+                granted++;
+            }
+            if (grant == Grant.BORROWED) {
+                borrowed++;
+            } else if (grant == Grant.PREEMPTED) {
+                preempted++;
+            }
+        }
+
+        List<PendingPermit> drainAll() {
+            List<PendingPermit> all = new ArrayList<>(size);
+            for (ArrayDeque<PendingPermit> deque : queues.values()) {
+                all.addAll(deque);
+                deque.clear();
+            }
+            size = 0;
+            if (wakeUp != null) {
+                wakeUp.cancel(false);
+                wakeUp = null;
+            }
+            return all;
+        }
+    }
+
     /**
      * Get or create buckets for a tenant
      */
@@ -111,7 +319,7 @@ public class RateLimitService {
     }
 
     /**
-     * Attempt to consume a token for a specific tenant with priority.
+     * Attempt to consume a token for a specific tenant with priority (without queueing).
      *
      * @param tenantId Tenant ID
      * @param priority Request priority level
@@ -119,25 +327,89 @@ public class RateLimitService {
      */
     public boolean tryConsume(Long tenantId, RequestPriority priority) {
         TenantBuckets buckets = getOrCreateBuckets(tenantId);
+        TenantQueue queue = tenantQueues.computeIfAbsent(tenantId, id -> new TenantQueue());
 
-        // Check global limit for this tenant first
-        if (!buckets.getGlobalBucket().tryConsume(1)) {
-            log.warn("Rate limit exceeded for tenant {} (900 req/min)", tenantId);
-            return false;
+        Grant grant;
+        synchronized (queue) {
+            grant = tryGrant(buckets, priority, queue);
+            queue.recordGrant(grant);
         }
 
-        // Check priority-specific limit
-        Bucket priorityBucket = buckets.getPriorityBuckets().get(priority);
-        if (priorityBucket != null && !priorityBucket.tryConsume(1)) {
+        if (grant == Grant.PAUSED) {
+            log.warn("Tenant {} paused after Glovo 429", tenantId);
+            return false;
+        }
+        if (grant == Grant.NO_GLOBAL) {
+            log.warn("Rate limit exceeded for tenant {} ({} req/min)", tenantId, buckets.getAdaptiveLimit().limit);
+            return false;
+        }
+        if (grant == Grant.NO_CAPACITY) {
             log.warn("{} priority rate limit exceeded for tenant {}", priority, tenantId);
-            // Refund global bucket token
-            buckets.getGlobalBucket().addTokens(1);
             return false;
         }
-
         return true;
     }
 
+    /**
+     * Outcome of a token request
+     */
+    enum Grant {
+        OWN,         // From the priority's own guarantee
+        BORROWED,    // From an idle priority's unused guarantee
+        PREEMPTED,   // HIGH took a lower priority's token while it had waiters
+        PAUSED,      // Tenant paused after a Glovo 429
+        NO_GLOBAL,   // Tenant budget exhausted
+        NO_CAPACITY; // Own guarantee used and nothing can be borrowed
+
+        boolean granted() {
+            return this == OWN || this == BORROWED || this == PREEMPTED;
+        }
+    }
+
+    /**
+     * Takes one tenant token plus either the priority's own token or one borrowed from
+     * another priority. Lenders are tried from LOW upwards; a lender must be idle (no
+     * waiting requests) unless the borrower is HIGH, which preempts lower priorities.
+     * Must be called while holding the tenant queue monitor.
+     */
+    private Grant tryGrant(TenantBuckets buckets, RequestPriority priority, TenantQueue queue) {
+        if (buckets.getAdaptiveLimit().remainingPauseNanos() > 0) {
+            return Grant.PAUSED;
+        }
+
+        Bucket global = buckets.getGlobalBucket();
+        if (!global.tryConsume(1)) {
+            return Grant.NO_GLOBAL;
+        }
+
+        if (buckets.getPriorityBuckets().get(priority).tryConsume(1)) {
+            return Grant.OWN;
+        }
+
+        RequestPriority[] priorities = RequestPriority.values();
+        for (int i = priorities.length - 1; i >= 0; i--) {
+            RequestPriority lender = priorities[i];
+            if (lender == priority) {
+                continue;
+            }
+
+            boolean lenderIdle = queue.queues.get(lender).isEmpty();
+            boolean preempt = priority == RequestPriority.HIGH && lender.ordinal() > priority.ordinal();
+            if (!lenderIdle && !preempt) {
+                continue;
+            }
+
+            Bucket lenderBucket = buckets.getPriorityBuckets().get(lender);
+            if (lenderBucket.getAvailableTokens() > LENDING_RESERVE.get(lender) && lenderBucket.tryConsume(1)) {
+                return lenderIdle ? Grant.BORROWED : Grant.PREEMPTED;
+            }
+        }
+
+        // Nothing to borrow: give the tenant token back
+        global.addTokens(1);
+        return Grant.NO_CAPACITY;
+    }
+
     /**
      * Attempt to consume a token with HIGH priority (default for user requests)
      */
@@ -146,56 +418,320 @@ public class RateLimitService {
     }
 
     /**
-     * Execute a request with rate limiting and retry logic.
+     * Execute a request with rate limiting.
+     * The calling thread waits (without polling) until its queued permit is granted
+     * by the tenant queue, or fails once maxWait has elapsed.
      *
      * @param tenantId Tenant ID
      * @param priority Request priority
      * @param requestSupplier Lambda that executes the actual API call
-     * @param maxRetries Maximum retry attempts
+     * @param maxWait Maximum time to wait in the queue for a token
      * @return Result from requestSupplier
-     * @throws RateLimitExceededException if rate limit exceeded after retries
+     * @throws RateLimitExceededException if no token was granted in time or the queue is full
+     * @throws RuntimeException thrown by requestSupplier, unchanged (checked exceptions are wrapped)
      */
     public <T> T executeWithRateLimit(Long tenantId,
                                        RequestPriority priority,
                                        RequestSupplier<T> requestSupplier,
-                                       int maxRetries) throws RateLimitExceededException {
-        int attempts = 0;
-
-        while (attempts < maxRetries) {
-            if (tryConsume(tenantId, priority)) {
-                try {
-                    return requestSupplier.execute();
-                } catch (Exception e) {
-                    log.error("Error executing rate-limited request for tenant {}", tenantId, e);
-                    throw new RuntimeException("Request execution failed for tenant " + tenantId, e);
+                                       Duration maxWait) throws RateLimitExceededException {
+        awaitPermit(acquireAsync(tenantId, priority, maxWait));
+
+        try {
+            return requestSupplier.execute();
+        } catch (RuntimeException e) {
+            // 404, 429, bulkhead lleno...: el llamador decide cómo registrarlo
+            throw e;
+        } catch (Exception e) {
+            log.error("Error executing rate-limited request for tenant {}", tenantId, e);
+            throw new RuntimeException("Request execution failed for tenant " + tenantId, e);
+        }
+    }
+
+    /**
+     * Execute with the default queue wait for the given priority
+     */
+    public <T> T executeWithRateLimit(Long tenantId, RequestPriority priority, RequestSupplier<T> requestSupplier)
+            throws RateLimitExceededException {
+        return executeWithRateLimit(tenantId, priority, requestSupplier, DEFAULT_MAX_WAIT.get(priority));
+    }
+
+    /**
+     * Execute with HIGH priority and its default queue wait
+     */
+    public <T> T executeWithRateLimit(Long tenantId, RequestSupplier<T> requestSupplier)
+            throws RateLimitExceededException {
+        return executeWithRateLimit(tenantId, RequestPriority.HIGH, requestSupplier);
+    }
+
+    private void awaitPermit(CompletableFuture<Void> permit) throws RateLimitExceededException {
+        try {
+            permit.get();
+        } catch (InterruptedException e) {
+            // Leave the queue; a permit granted concurrently is simply not used
+            permit.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Rate limit wait interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RateLimitExceededException rateLimitException) {
+                throw rateLimitException;
+            }
+            throw new RuntimeException("Rate limit wait failed", e.getCause());
+        }
+    }
+
+    /**
+     * Non-blocking permit acquisition with the default queue wait for the priority.
+     */
+    public CompletableFuture<Void> acquireAsync(Long tenantId, RequestPriority priority) {
+        return acquireAsync(tenantId, priority, DEFAULT_MAX_WAIT.get(priority));
+    }
+
+    /**
+     * Non-blocking permit acquisition.
+     * The request is queued by priority and the returned future completes as soon as
+     * the tenant buckets have a token for it. Cancelling the future leaves the queue.
+     *
+     * @param tenantId Tenant ID
+     * @param priority Request priority
+     * @param maxWait Maximum time to wait in the queue
+     * @return Future completed when the permit is granted, or exceptionally with
+     *         RateLimitExceededException on timeout or when shed from a full queue
+     */
+    public CompletableFuture<Void> acquireAsync(Long tenantId, RequestPriority priority, Duration maxWait) {
+        TenantQueue queue = tenantQueues.computeIfAbsent(tenantId, id -> new TenantQueue());
+        PendingPermit pending = new PendingPermit(priority, System.nanoTime() + maxWait.toNanos());
+
+        List<PendingPermit> granted = new ArrayList<>();
+        List<PendingPermit> expired = new ArrayList<>();
+        PendingPermit evicted = null;
+
+        synchronized (queue) {
+            if (queue.size >= MAX_QUEUED_PER_TENANT) {
+                queue.purge(System.nanoTime(), expired);
+            }
+            if (queue.size >= MAX_QUEUED_PER_TENANT) {
+                evicted = queue.evictLowerThan(priority);
+                queue.shed++;
+                if (evicted == null) {
+                    log.warn("Rate limit queue full for tenant {} ({} waiting), rejecting {} request",
+                        tenantId, queue.size, priority);
+                    pending.future.completeExceptionally(new RateLimitExceededException(
+                        "Rate limit queue full for tenant " + tenantId));
                 }
             }
+            if (!pending.future.isDone()) {
+                queue.add(pending);
+                dispatch(tenantId, queue, granted, expired);
+            }
+        }
+
+        if (evicted != null) {
+            log.warn("Rate limit queue full for tenant {}, shedding {} request for {} request",
+                tenantId, evicted.priority, priority);
+            evicted.future.completeExceptionally(new RateLimitExceededException(
+                "Rate limit queue full for tenant " + tenantId + ", " + evicted.priority + " request shed"));
+        }
+        failExpired(tenantId, expired);
+        granted.forEach(p -> p.future.complete(null));
 
-            attempts++;
+        return pending.future;
+    }
+
+    /**
+     * Grants tokens to queued requests in priority order and schedules the next wake-up.
+     * Must be called while holding the queue monitor; futures are completed by the caller.
+     */
+    private void dispatch(Long tenantId, TenantQueue queue,
+                          List<PendingPermit> grantedOut, List<PendingPermit> expiredOut) {
+        long now = System.nanoTime();
+        long untilEarliestDeadline = queue.purge(now, expiredOut);
+        if (queue.size == 0) {
+            return;
+        }
 
-            if (attempts < maxRetries) {
-                // Wait before retry (exponential backoff)
-                long waitTimeMs = (long) Math.pow(2, attempts) * 100; // 200ms, 400ms, 800ms...
-                try {
-                    Thread.sleep(waitTimeMs);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    throw new RuntimeException("Rate limit wait interrupted", e);
+        TenantBuckets buckets = getOrCreateBuckets(tenantId);
+        long waitNanos = Long.MAX_VALUE;
+
+        priorities:
+        for (RequestPriority priority : RequestPriority.values()) {
+            ArrayDeque<PendingPermit> deque = queue.queues.get(priority);
+            while (!deque.isEmpty()) {
+                // Take the head out first so this priority does not count as idle lender to itself
+                PendingPermit head = deque.pollFirst();
+                Grant grant = tryGrant(buckets, priority, queue);
+
+                if (!grant.granted()) {
+                    deque.addFirst(head);
+                    if (grant == Grant.PAUSED) {
+                        waitNanos = Math.min(waitNanos, buckets.getAdaptiveLimit().remainingPauseNanos());
+                        break priorities;
+                    }
+                    if (grant == Grant.NO_GLOBAL) {
+                        // Tenant budget exhausted: nothing else can go until it refills
+                        waitNanos = Math.min(waitNanos, nanosToRefill(buckets.getGlobalBucket()));
+                        break priorities;
+                    }
+                    waitNanos = Math.min(waitNanos, nanosToRefill(buckets.getPriorityBuckets().get(priority)));
+                    continue priorities;
                 }
+
+                grantedOut.add(head);
+                queue.size--;
+                queue.recordGrant(grant);
             }
         }
 
-        throw new RateLimitExceededException(
-            "Rate limit exceeded for tenant " + tenantId + " after " + maxRetries + " attempts"
-        );
+        if (queue.size > 0) {
+            scheduleWakeUp(tenantId, queue, Math.min(waitNanos, untilEarliestDeadline));
+        }
+    }
+
+    private static long nanosToRefill(Bucket bucket) {
+        return bucket.estimateAbilityToConsume(1).getNanosToWaitForRefill();
+    }
+
+    private void scheduleWakeUp(Long tenantId, TenantQueue queue, long delayNanos) {
+        long delay = Math.max(delayNanos, MIN_WAKE_UP_NANOS);
+        long wakeUpAt = System.nanoTime() + delay;
+
+        if (queue.wakeUp != null && !queue.wakeUp.isDone() && queue.wakeUpAtNanos - wakeUpAt <= 0) {
+            return;
+        }
+        if (queue.wakeUp != null) {
+            queue.wakeUp.cancel(false);
+        }
+
+        queue.wakeUpAtNanos = wakeUpAt;
+        queue.wakeUp = retryScheduler.schedule(() -> drain(tenantId, queue), delay, TimeUnit.NANOSECONDS);
     }
 
     /**
-     * Execute with HIGH priority and 3 retries (default)
+     * Scheduled wake-up: grants whatever the refilled buckets allow.
+     * Permits are completed asynchronously so callers' continuations never run on the scheduler thread.
      */
-    public <T> T executeWithRateLimit(Long tenantId, RequestSupplier<T> requestSupplier)
-            throws RateLimitExceededException {
-        return executeWithRateLimit(tenantId, RequestPriority.HIGH, requestSupplier, 3);
+    private void drain(Long tenantId, TenantQueue queue) {
+        List<PendingPermit> granted = new ArrayList<>();
+        List<PendingPermit> expired = new ArrayList<>();
+
+        synchronized (queue) {
+            queue.wakeUp = null;
+            dispatch(tenantId, queue, granted, expired);
+        }
+
+        failExpired(tenantId, expired);
+        granted.forEach(p -> p.future.completeAsync(() -> null));
+    }
+
+    private void failExpired(Long tenantId, List<PendingPermit> expired) {
+        for (PendingPermit pending : expired) {
+            log.debug("Rate limit wait expired for tenant {} ({} priority)", tenantId, pending.priority);
+            pending.future.completeExceptionally(new RateLimitExceededException(
+                "Rate limit exceeded for tenant " + tenantId + ": no token available within the " +
+                pending.priority + " wait limit"));
+        }
+    }
+
+    /**
+     * Glovo answered 429 for this tenant: halve its limit and pause it.
+     *
+     * @param tenantId Tenant ID
+     * @param retryAfter Wait requested by Glovo (Retry-After / RateLimit-Reset), or null if not sent
+     */
+    public void onRateLimited(Long tenantId, Duration retryAfter) {
+        TenantBuckets buckets = getOrCreateBuckets(tenantId);
+        AdaptiveLimit adaptive = buckets.getAdaptiveLimit();
+
+        Duration pause = retryAfter != null && !retryAfter.isNegative() ? retryAfter : DEFAULT_THROTTLE_PAUSE;
+        if (pause.compareTo(MAX_THROTTLE_PAUSE) > 0) {
+            pause = MAX_THROTTLE_PAUSE;
+        }
+
+        int previousLimit;
+        int newLimit;
+        synchronized (adaptive) {
+            long now = System.nanoTime();
+            adaptive.throttleEvents++;
+            adaptive.lastThrottledNanos = now;
+            adaptive.pausedUntilNanos = Math.max(adaptive.pausedUntilNanos, now + pause.toNanos());
+
+            previousLimit = adaptive.limit;
+            if (now - adaptive.lastDecreaseNanos < DECREASE_COOLDOWN.toNanos()) {
+                // Same burst of 429s: already backed off
+                return;
+            }
+            adaptive.lastDecreaseNanos = now;
+            newLimit = Math.max(MIN_TENANT_LIMIT, previousLimit / 2);
+            adaptive.limit = newLimit;
+            // Scale remaining tokens down with the limit (no leftover burst at the old rate)
+            applyTenantLimit(buckets, newLimit, TokensInheritanceStrategy.PROPORTIONALLY);
+        }
+
+        log.warn("Glovo 429 for tenant {}: limit {} -> {} req/min, paused for {} ms",
+            tenantId, previousLimit, newLimit, pause.toMillis());
+    }
+
+    /**
+     * Additive increase: tenants without recent 429s recover 50 req/min per interval
+     */
+    private void increaseLimits() {
+        long now = System.nanoTime();
+
+        tenantBucketsMap.forEach((tenantId, buckets) -> {
+            AdaptiveLimit adaptive = buckets.getAdaptiveLimit();
+            int newLimit;
+            synchronized (adaptive) {
+                if (adaptive.limit >= TENANT_LIMIT
+                        || now - adaptive.lastThrottledNanos < QUIET_PERIOD_BEFORE_INCREASE.toNanos()) {
+                    return;
+                }
+                newLimit = Math.min(TENANT_LIMIT, adaptive.limit + LIMIT_INCREASE_STEP);
+                adaptive.limit = newLimit;
+                applyTenantLimit(buckets, newLimit, TokensInheritanceStrategy.AS_IS);
+            }
+            log.info("Tenant {}: rate limit increased to {} req/min", tenantId, newLimit);
+        });
+    }
+
+    private void applyTenantLimit(TenantBuckets buckets, int limit, TokensInheritanceStrategy strategy) {
+        BucketConfiguration configuration = BucketConfiguration.builder()
+            .addLimit(Bandwidth.builder()
+                .capacity(limit)
+                .refillIntervally(limit, REFILL_DURATION)
+                .build())
+            .build();
+        buckets.getGlobalBucket().replaceConfiguration(configuration, strategy);
+    }
+
+    /**
+     * Current adaptive limit for a tenant (req/min)
+     */
+    public int getCurrentLimit(Long tenantId) {
+        return getOrCreateBuckets(tenantId).getAdaptiveLimit().limit;
+    }
+
+    /**
+     * Pacing slot for Live API page requests (4 req/s per tenant).
+     * The returned future completes when the token bucket schedules the request,
+     * so concurrent page fetches are spread evenly instead of sleeping 250ms between pages.
+     *
+     * @param tenantId Tenant ID
+     * @return Future completed when the request may be sent, or exceptionally with
+     *         RateLimitExceededException if no slot is available within 30 seconds
+     */
+    public CompletableFuture<Void> acquireLivePageSlot(Long tenantId) {
+        Bucket pacing = livePacingBuckets.computeIfAbsent(tenantId, id -> Bucket.builder()
+            .addLimit(Bandwidth.builder()
+                .capacity(LIVE_PAGES_PER_SECOND)
+                .refillGreedy(LIVE_PAGES_PER_SECOND, Duration.ofSeconds(1))
+                .build())
+            .build());
+
+        return pacing.asScheduler()
+            .tryConsume(1, LIVE_PACING_MAX_WAIT, retryScheduler)
+            .thenCompose(granted -> granted
+                ? CompletableFuture.<Void>completedFuture(null)
+                : CompletableFuture.<Void>failedFuture(new RateLimitExceededException(
+                    "Live API pacing timeout for tenant " + tenantId)));
     }
 
     /**
@@ -216,13 +752,63 @@ public class RateLimitService {
     }
 
     /**
-     * Clear rate limit buckets for a tenant (useful when tenant is deleted)
+     * Queue state per tenant (for monitoring)
+     */
+    public Map<Long, Map<String, Object>> getQueueMetrics() {
+        Map<Long, Map<String, Object>> metrics = new LinkedHashMap<>();
+
+        tenantQueues.forEach((tenantId, queue) -> {
+            Map<String, Object> tenantMetrics = new LinkedHashMap<>();
+            synchronized (queue) {
+                Map<String, Integer> waiting = new LinkedHashMap<>();
+                queue.queues.forEach((priority, deque) -> waiting.put(priority.name(), deque.size()));
+                tenantMetrics.put("waiting", waiting);
+                tenantMetrics.put("granted", queue.granted);
+                tenantMetrics.put("borrowed", queue.borrowed);
+                tenantMetrics.put("preempted", queue.preempted);
+                tenantMetrics.put("shed", queue.shed);
+                tenantMetrics.put("expired", queue.expired);
+            }
+            TenantBuckets buckets = getOrCreateBuckets(tenantId);
+            AdaptiveLimit adaptive = buckets.getAdaptiveLimit();
+            tenantMetrics.put("availableTokens", buckets.getGlobalBucket().getAvailableTokens());
+            tenantMetrics.put("currentLimit", adaptive.limit);
+            tenantMetrics.put("pausedMs", TimeUnit.NANOSECONDS.toMillis(adaptive.remainingPauseNanos()));
+            synchronized (adaptive) {
+                tenantMetrics.put("throttleEvents", adaptive.throttleEvents);
+            }
+            metrics.put(tenantId, tenantMetrics);
+        });
+
+        return metrics;
+    }
+
+    /**
+     * Clear rate limit buckets for a tenant (useful when tenant is deleted).
+     * Requests still waiting in its queue fail with RateLimitExceededException.
      */
     public void clearBuckets(Long tenantId) {
         tenantBucketsMap.remove(tenantId);
+        livePacingBuckets.remove(tenantId);
+
+        TenantQueue queue = tenantQueues.remove(tenantId);
+        if (queue != null) {
+            List<PendingPermit> pending;
+            synchronized (queue) {
+                pending = queue.drainAll();
+            }
+            pending.forEach(p -> p.future.completeExceptionally(new RateLimitExceededException(
+                "Rate limit buckets cleared for tenant " + tenantId)));
+        }
+
         log.info("Cleared rate limit buckets for tenant {}", tenantId);
     }
 
+    @PreDestroy
+    public void shutdown() {
+        retryScheduler.shutdownNow();
+    }
+
     /**
      * Request priority levels
      */
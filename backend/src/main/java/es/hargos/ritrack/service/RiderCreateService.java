@@ -2,6 +2,7 @@ package es.hargos.ritrack.service;
 
 import es.hargos.ritrack.client.GlovoClient;
 import es.hargos.ritrack.dto.RiderCreateDto;
+import es.hargos.ritrack.dto.RoosterEmployeeDto;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,6 +26,7 @@ public class RiderCreateService {
     private final RoosterCacheService roosterCache;
     private final TenantSettingsService tenantSettingsService;
     private final CityService cityService;
+    private final MasterDataCacheService masterDataCache;
     private final RiderLimitService riderLimitService;
     private final es.hargos.ritrack.repository.TenantRepository tenantRepository;
 
@@ -36,12 +38,14 @@ public class RiderCreateService {
                               RoosterCacheService roosterCache,
                               TenantSettingsService tenantSettingsService,
                               CityService cityService,
+                              MasterDataCacheService masterDataCache,
                               RiderLimitService riderLimitService,
                               es.hargos.ritrack.repository.TenantRepository tenantRepository) {
         this.glovoClient = glovoClient;
         this.roosterCache = roosterCache;
         this.tenantSettingsService = tenantSettingsService;
         this.cityService = cityService;
+        this.masterDataCache = masterDataCache;
         this.riderLimitService = riderLimitService;
         this.tenantRepository = tenantRepository;
     }
@@ -85,22 +89,13 @@ public class RiderCreateService {
     }
 
     private void validateUniqueConstraints(Long tenantId, String email, String phone) throws Exception {
-        List<?> employees = roosterCache.getAllEmployees(tenantId);
-        if (employees == null) return;
-
-        for (Object emp : employees) {
-            if (emp instanceof Map) {
-                Map<?, ?> empMap = (Map<?, ?>) emp;
-                String existingEmail = (String) empMap.get("email");
-                String existingPhone = (String) empMap.get("phone_number");
+        RoosterSnapshot snapshot = roosterCache.getSnapshot(tenantId);
 
-                if (existingEmail != null && existingEmail.equalsIgnoreCase(email)) {
-                    throw new IllegalArgumentException("Tenant " + tenantId + ": El email " + email + " ya está en uso por otro rider");
-                }
-                if (existingPhone != null && existingPhone.equals(phone)) {
-                    throw new IllegalArgumentException("Tenant " + tenantId + ": El teléfono " + phone + " ya está en uso por otro rider");
-                }
-            }
+        if (snapshot.findByEmail(email) != null) {
+            throw new IllegalArgumentException("Tenant " + tenantId + ": El email " + email + " ya está en uso por otro rider");
+        }
+        if (snapshot.findByPhone(phone) != null) {
+            throw new IllegalArgumentException("Tenant " + tenantId + ": El teléfono " + phone + " ya está en uso por otro rider");
         }
     }
 
@@ -173,19 +168,62 @@ public class RiderCreateService {
         // Construir payload con valores por defecto
         Map<String, Object> payload = buildCreatePayload(tenantId, createData);
 
+        // Contrato y tipos de vehículo deben existir en Glovo (datos maestros cacheados)
+        validateMasterData(tenantId, payload);
+
         // Log de valores asignados
         logAssignedValues(tenantId, payload);
 
         // Enviar a la API
         Object result = glovoClient.createEmployee(tenantId, payload);
 
-        // Limpiar caché para reflejar cambios
+        // Reflejar el nuevo rider al instante (unicidad y numeración) y refrescar el caché
+        if (result instanceof Map<?, ?> created) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> createdData = (Map<String, Object>) created;
+            roosterCache.recordCreatedEmployee(tenantId, RoosterEmployeeDto.fromApiMap(createdData));
+        }
         roosterCache.clearCache(tenantId);
         logger.info("Tenant {}: Rider creado exitosamente y caché actualizado", tenantId);
 
         return (Map<String, Object>) result;
     }
 
+    /**
+     * Comprueba contract_id y vehicle_type_ids contra los datos maestros cacheados del tenant,
+     * para rechazar antes de llamar a Glovo. Si los datos maestros no están disponibles no se
+     * bloquea la creación: Glovo validará igualmente.
+     */
+    @SuppressWarnings("unchecked")
+    private void validateMasterData(Long tenantId, Map<String, Object> payload) {
+        Set<Integer> contractIds;
+        Set<Integer> vehicleTypeIds;
+        try {
+            contractIds = masterDataCache.getIds(tenantId, MasterDataCacheService.MasterDataType.CONTRACTS);
+            vehicleTypeIds = masterDataCache.getIds(tenantId, MasterDataCacheService.MasterDataType.VEHICLE_TYPES);
+        } catch (Exception e) {
+            logger.warn("Tenant {}: Datos maestros no disponibles, se omite la validación previa: {}",
+                    tenantId, e.getMessage());
+            return;
+        }
+
+        Map<String, Object> contract = (Map<String, Object>) payload.get("contract");
+        Object contractId = contract != null ? contract.get("contract_id") : null;
+        if (contractId instanceof Integer id && !contractIds.isEmpty() && !contractIds.contains(id)) {
+            throw new IllegalArgumentException("Tenant " + tenantId + ": El contrato " + id + " no existe en Glovo");
+        }
+
+        List<Integer> requestedVehicleTypes = (List<Integer>) payload.get("vehicle_type_ids");
+        if (requestedVehicleTypes != null && !vehicleTypeIds.isEmpty()) {
+            for (Integer vehicleTypeId : requestedVehicleTypes) {
+                if (vehicleTypeId != null && !vehicleTypeIds.contains(vehicleTypeId)) {
+                    throw new IllegalArgumentException("Tenant " + tenantId + ": El tipo de vehículo "
+                            + vehicleTypeId + " no existe en Glovo");
+                }
+            }
+        }
+    }
+
     /**
      * Construye el payload con valores por defecto bien definidos
      */
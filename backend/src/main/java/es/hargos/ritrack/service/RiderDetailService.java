@@ -2,6 +2,7 @@ package es.hargos.ritrack.service;
 
 import es.hargos.ritrack.client.GlovoClient;
 import es.hargos.ritrack.dto.RiderDetailDto;
+import es.hargos.ritrack.dto.RoosterEmployeeDto;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,6 +11,7 @@ import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 /**
@@ -22,10 +24,12 @@ public class RiderDetailService {
     private static final Logger logger = LoggerFactory.getLogger(RiderDetailService.class);
 
     private final GlovoClient glovoClient;
+    private final RoosterCacheService roosterCache;
 
     @Autowired
-    public RiderDetailService(GlovoClient glovoClient) {
+    public RiderDetailService(GlovoClient glovoClient, RoosterCacheService roosterCache) {
         this.glovoClient = glovoClient;
+        this.roosterCache = roosterCache;
     }
 
     /**
@@ -39,16 +43,20 @@ public class RiderDetailService {
         logger.info("Tenant {}: Obteniendo detalles completos para rider {}", tenantId, riderId);
 
         try {
-            // PASO 1: Obtener datos de Rooster API
-            Object roosterData = glovoClient.getEmployeeById(tenantId, riderId);
+            // PASO 1: Lanzar Rooster y Live en paralelo (no bloquean hilos mientras esperan)
+            CompletableFuture<Map<String, Object>> roosterFuture = glovoClient.getEmployeeByIdAsync(tenantId, riderId);
+            CompletableFuture<Map<String, Object>> liveFuture = glovoClient.getRiderLiveDataAsync(tenantId, riderId);
+
+            Object roosterData = roosterFuture.join();
 
             if (roosterData == null) {
                 logger.warn("Tenant {}: No se encontraron datos de Rooster para rider {}", tenantId, riderId);
+                liveFuture.cancel(false);
                 return createEmptyRiderDetail(riderId, "NONE");
             }
 
-            // PASO 2: Obtener datos de Live API directamente sin city_id
-            Object liveData = glovoClient.getRiderLiveData(tenantId, riderId);
+            // PASO 2: Datos de Live API (ya en curso)
+            Object liveData = liveFuture.join();
 
             // PASO 3: Combinar datos de ambas fuentes
             RiderDetailDto riderDetail = combineRoosterAndLiveData(roosterData, liveData);
@@ -534,9 +542,11 @@ public class RiderDetailService {
         logger.info("Tenant {}: Obteniendo detalles para rider {} (cityId {} ignorado)", tenantId, riderId, cityId);
 
         try {
-            // Obtener datos de ambas APIs (cityId ya no es necesario para Live)
-            Object roosterData = glovoClient.getEmployeeById(tenantId, riderId);
-            Object liveData = glovoClient.getRiderLiveData(tenantId, riderId);
+            // Obtener datos de ambas APIs en paralelo (cityId ya no es necesario para Live)
+            CompletableFuture<Map<String, Object>> roosterFuture = glovoClient.getEmployeeByIdAsync(tenantId, riderId);
+            CompletableFuture<Map<String, Object>> liveFuture = glovoClient.getRiderLiveDataAsync(tenantId, riderId);
+            Object roosterData = roosterFuture.join();
+            Object liveData = liveFuture.join();
 
             // Combinar datos
             if (roosterData == null && liveData == null) {
@@ -585,7 +595,8 @@ public class RiderDetailService {
     }
 
     /**
-     * Obtiene solo el cityId del rider desde Rooster API
+     * Obtiene solo el cityId del rider: del snapshot de Rooster en caché si está cargado,
+     * si no desde Rooster API
      * Útil para operaciones que solo necesitan saber la ciudad (ej: desbloquear)
      *
      * @param tenantId ID del tenant
@@ -596,6 +607,17 @@ public class RiderDetailService {
     public Integer getRiderCityId(Long tenantId, Integer riderId) throws Exception {
         logger.info("Tenant {}: Obteniendo cityId para rider {}", tenantId, riderId);
 
+        // Snapshot de Rooster ya cargado: búsqueda por id sin llamar a la API
+        RoosterSnapshot snapshot = roosterCache.getSnapshotIfLoaded(tenantId);
+        if (snapshot != null) {
+            RoosterEmployeeDto cached = snapshot.findById(riderId);
+            if (cached != null && cached.cityId() != null) {
+                logger.debug("Tenant {}: Rider {} tiene cityId {} (snapshot v{})",
+                    tenantId, riderId, cached.cityId(), snapshot.getVersion());
+                return cached.cityId();
+            }
+        }
+
         try {
             Object roosterData = glovoClient.getEmployeeById(tenantId, riderId);
 
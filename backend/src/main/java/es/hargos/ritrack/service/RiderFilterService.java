@@ -1,5 +1,9 @@
 package es.hargos.ritrack.service;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import es.hargos.ritrack.client.GlovoClient;
 import es.hargos.ritrack.dto.*;
 import org.slf4j.Logger;
@@ -9,10 +13,22 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PreDestroy;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -20,29 +36,18 @@ public class RiderFilterService {
 
     private static final Logger logger = LoggerFactory.getLogger(RiderFilterService.class);
 
-    // Thread pool COMPARTIDO para todos los usuarios
-    private static final int CORE_POOL_SIZE = 20;
-    private static final int MAX_POOL_SIZE = 50;
-    private static final ExecutorService SHARED_EXECUTOR = new ThreadPoolExecutor(
-            CORE_POOL_SIZE,
-            MAX_POOL_SIZE,
-            60L, TimeUnit.SECONDS,
-            new LinkedBlockingQueue<>(200),
-            new ThreadFactory() {
-                private final AtomicInteger counter = new AtomicInteger(0);
-                @Override
-                public Thread newThread(Runnable r) {
-                    Thread thread = new Thread(r);
-                    thread.setName("RiderSearch-" + counter.incrementAndGet());
-                    thread.setDaemon(true);
-                    return thread;
-                }
-            },
-            new ThreadPoolExecutor.CallerRunsPolicy() // Si está lleno, ejecuta en el thread del llamador
-    );
+    // Executor COMPARTIDO para el fan-out de I/O (Live por ciudad, Rooster): un virtual thread por tarea.
+    // La concurrencia no la limita el tamaño de un pool sino los semáforos explícitos (API_SEMAPHORE);
+    // el trabajo de CPU (conversión/filtrado de Rooster) sigue en ROOSTER_POOL.
+    private static final ExecutorService SHARED_EXECUTOR = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("RiderSearch-", 0).factory());
+
+    // Riders por evento en la búsqueda en streaming
+    private static final int STREAM_BATCH_SIZE = 500;
 
     // Control de concurrencia para API
-    private static final Semaphore API_SEMAPHORE = new Semaphore(20); // Max 20 llamadas API simultáneas
+    private static final int MAX_CONCURRENT_API_CALLS = 20;
+    private static final Semaphore API_SEMAPHORE = new Semaphore(MAX_CONCURRENT_API_CALLS);
 
     // Pool compartido para procesamiento de Rooster (reutilizado en lugar de crear uno nuevo cada vez)
     private static final java.util.concurrent.ForkJoinPool ROOSTER_POOL = new java.util.concurrent.ForkJoinPool(
@@ -58,40 +63,83 @@ public class RiderFilterService {
     private final AtomicInteger totalSearches = new AtomicInteger(0);
     private final AtomicInteger cacheHits = new AtomicInteger(0);
     private final AtomicInteger cacheMisses = new AtomicInteger(0);
+    private final AtomicInteger snapshotHits = new AtomicInteger(0);
+    private final AtomicInteger allCitiesHits = new AtomicInteger(0);
+    private final AtomicInteger allCitiesMisses = new AtomicInteger(0);
+    private final AtomicInteger sessionHits = new AtomicInteger(0);
+    private final AtomicInteger sessionMisses = new AtomicInteger(0);
 
     private final GlovoClient glovoClient;
     private final RoosterCacheService roosterCache;
     private final TenantSettingsService tenantSettingsService;
     private final UserCityService userCityService;
+    private final LiveCitySnapshotStore liveSnapshots;
+
+    // Caché temporal para Live API: riders por (tenant, ciudad). Las búsquedas de todas las ciudades
+    // del tenant se sirven de golpe desde los snapshots del poller si están todos frescos; si no,
+    // ciudad a ciudad (snapshot, esta caché o llamada a Glovo)
+    private final Cache<CityKey, List<Map<String, Object>>> cityRidersCache;
+
+    // Resultados fusionados por búsqueda (paginación y conteo sobre el mismo array)
+    private final AsyncCache<SearchKey, SearchResult> searchResults;
 
-    // Caché temporal para Live API
-    private final Map<String, CachedLiveData> liveCache = new ConcurrentHashMap<>();
-    private final long LIVE_CACHE_TTL;
+    // Índices de texto por lista de filas Live (clave por identidad: cada snapshot/caché nuevo se reindexa)
+    private final Cache<List<Map<String, Object>>, RiderSearchIndex> liveSearchIndexes;
 
     // Timeouts configurables
     private final long SEARCH_TIMEOUT_SECONDS;
     private final long CITY_TIMEOUT_SECONDS;
 
+    // Cifra los cursores: la clave de ordenación lleva el nombre del rider
+    private final CursorCodec cursorCodec;
+
     @Autowired
     public RiderFilterService(
             GlovoClient glovoClient,
             RoosterCacheService roosterCache,
             TenantSettingsService tenantSettingsService,
             UserCityService userCityService,
+            LiveCitySnapshotStore liveSnapshots,
             @Value("${cache.live.city.ttl-seconds:30}") long liveTtlSeconds,
+            @Value("${cache.live.city.max-riders:200000}") long liveMaxRiders,
+            @Value("${cache.live.search-index.max-entries:2000}") long liveMaxSearchIndexes,
+            @Value("${search.session.ttl-seconds:20}") long sessionTtlSeconds,
+            @Value("${search.session.max-riders:500000}") long sessionMaxRiders,
             @Value("${api.search-timeout-seconds:15}") long searchTimeoutSeconds,
-            @Value("${api.city-timeout-seconds:3}") long cityTimeoutSeconds) {
+            @Value("${api.city-timeout-seconds:3}") long cityTimeoutSeconds,
+            @Value("${search.cursor.secret:}") String cursorSecret) {
 
         this.glovoClient = glovoClient;
         this.roosterCache = roosterCache;
         this.tenantSettingsService = tenantSettingsService;
         this.userCityService = userCityService;
-        this.LIVE_CACHE_TTL = liveTtlSeconds * 1000;
+        this.liveSnapshots = liveSnapshots;
+        this.cityRidersCache = Caffeine.newBuilder()
+                .expireAfterWrite(liveTtlSeconds, TimeUnit.SECONDS)
+                .maximumWeight(liveMaxRiders)
+                .weigher((CityKey key, List<Map<String, Object>> riders) -> Math.max(1, riders.size()))
+                .recordStats()
+                .build();
+        this.searchResults = Caffeine.newBuilder()
+                .expireAfterWrite(sessionTtlSeconds, TimeUnit.SECONDS)
+                .maximumWeight(sessionMaxRiders)
+                .weigher((SearchKey key, SearchResult result) -> Math.max(1, result.riders().size()))
+                .buildAsync();
+        this.liveSearchIndexes = Caffeine.newBuilder()
+                .weakKeys()
+                .maximumSize(liveMaxSearchIndexes)
+                .build();
         this.SEARCH_TIMEOUT_SECONDS = searchTimeoutSeconds;
         this.CITY_TIMEOUT_SECONDS = cityTimeoutSeconds;
+        if (cursorSecret == null || cursorSecret.isBlank()) {
+            logger.info("search.cursor.secret sin configurar: los cursores de paginación solo valen en esta instancia");
+            this.cursorCodec = CursorCodec.random();
+        } else {
+            this.cursorCodec = new CursorCodec(cursorSecret);
+        }
 
-        logger.info("Servicio iniciado - Pool: {}-{} threads, API limit: 20, Timeouts: {}s/{}s",
-                CORE_POOL_SIZE, MAX_POOL_SIZE, searchTimeoutSeconds, cityTimeoutSeconds);
+        logger.info("Servicio iniciado - Executor: virtual threads, API limit: {}, Rooster pool: {} threads, Timeouts: {}s/{}s",
+                MAX_CONCURRENT_API_CALLS, ROOSTER_POOL.getParallelism(), searchTimeoutSeconds, cityTimeoutSeconds);
     }
 
     /**
@@ -99,6 +147,9 @@ public class RiderFilterService {
      * Aplicar filtro automático de ciudades si el usuario tiene asignaciones
      */
     public PaginatedResponseDto<RiderSummaryDto> searchRiders(Long tenantId, Long userId, RiderFilterDto filters) {
+        // Cursor inválido: IllegalArgumentException antes de lanzar ninguna llamada
+        SortKey after = filters.getCursor() != null ? cursorCodec.decode(filters.getCursor()) : null;
+
         int currentActive = activeSearches.incrementAndGet();
         long startTime = System.currentTimeMillis();
 
@@ -107,25 +158,7 @@ public class RiderFilterService {
             logger.warn("⚠️ Alta concurrencia: {} búsquedas activas", currentActive);
         }
 
-        // NUEVO: Aplicar filtro automático de ciudades por usuario
-        List<Long> userCityIds = userCityService.getUserCityIds(userId);
-        if (userCityIds != null && !userCityIds.isEmpty()) {
-            logger.info("🔒 Usuario ID {} tiene {} ciudades asignadas - Aplicando filtro automático: {}",
-                    userId, userCityIds.size(), userCityIds);
-
-            // Si el usuario ya tiene un filtro de ciudad específico, verificar que esté en sus ciudades asignadas
-            if (filters.getCityId() != null) {
-                if (!userCityIds.contains(filters.getCityId().longValue())) {
-                    logger.warn("⚠️ Usuario ID {} intentó filtrar por ciudad {} que no tiene asignada. Aplicando restricción.",
-                            userId, filters.getCityId());
-                    // El usuario no puede ver esa ciudad, forzar a sus ciudades asignadas
-                    filters.setCityId(null);
-                }
-            }
-            // Nota: El filtro de ciudades se aplica más abajo en getLiveRiders() y getRoosterRiders()
-        } else {
-            logger.debug("Usuario ID {} no tiene restricciones de ciudades - Puede ver todas", userId);
-        }
+        List<Long> userCityIds = applyUserCityScope(userId, filters);
 
         logger.info("🔍 Tenant {}, User {} [Thread {}] Iniciando búsqueda - Filtros: {}",
                 tenantId,
@@ -134,42 +167,10 @@ public class RiderFilterService {
                 filters.hasFilters() ? filters.getFilterDescription() : "SIN FILTROS");
 
         try {
-            // Verificar si el pool está saturado
-            ThreadPoolExecutor executor = (ThreadPoolExecutor) SHARED_EXECUTOR;
-            if (executor.getQueue().size() > 100) {
-                logger.warn("⚠️ Cola de ejecución alta: {} tareas pendientes", executor.getQueue().size());
-            }
-
-            // Ejecutar Live y Rooster EN PARALELO con timeout
-            // NUEVO: Pasar userCityIds para aplicar filtro de ciudades
-            CompletableFuture<List<RiderSummaryDto>> liveFuture = CompletableFuture
-                    .supplyAsync(() -> getLiveRiders(tenantId, filters, userCityIds), SHARED_EXECUTOR)
-                    .orTimeout(SEARCH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
-
-            CompletableFuture<List<RiderSummaryDto>> roosterFuture = CompletableFuture
-                    .supplyAsync(() -> getRoosterRiders(tenantId, filters, userCityIds), SHARED_EXECUTOR)
-                    .orTimeout(SEARCH_TIMEOUT_SECONDS - 2, TimeUnit.SECONDS);
-
-            // Esperar ambos resultados
-            List<RiderSummaryDto> liveRiders = liveFuture.join();
-            List<RiderSummaryDto> roosterRiders = roosterFuture.join();
-
-            // Combinar y eliminar duplicados
-            Set<Integer> liveIds = liveRiders.stream()
-                    .map(RiderSummaryDto::getRiderId)
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toSet());
-
-            List<RiderSummaryDto> allRiders = new ArrayList<>(liveRiders);
-
-            // Agregar solo riders de Rooster que no están en Live
-            long roosterUnique = roosterRiders.stream()
-                    .filter(r -> !liveIds.contains(r.getRiderId()))
-                    .peek(allRiders::add)
-                    .count();
+            SearchResult merged = getMergedResults(tenantId, userCityIds, filters);
 
             // Ordenar eficientemente
-            PaginatedResponseDto<RiderSummaryDto> result = optimizedPagination(allRiders, filters);
+            PaginatedResponseDto<RiderSummaryDto> result = optimizedPagination(merged.riders(), filters, after, cursorCodec);
 
             // Métricas
             long duration = System.currentTimeMillis() - startTime;
@@ -178,8 +179,8 @@ public class RiderFilterService {
 
             logger.info("✅ Tenant {} [Usuario {}] Búsqueda completada en {}ms | Live: {} | Rooster únicos: {} | Total: {} | Cache hit rate: {}%",
                     tenantId,
-                    Thread.currentThread().getId(),
-                    duration, liveRiders.size(), roosterUnique,
+                    userId,
+                    duration, merged.liveCount(), merged.roosterUnique(),
                     result.getTotalElements(),
                     calculateHitRate());
 
@@ -193,75 +194,367 @@ public class RiderFilterService {
         } catch (CompletionException e) {
             if (e.getCause() instanceof TimeoutException) {
                 logger.error("❌ Timeout en búsqueda después de {}s", SEARCH_TIMEOUT_SECONDS);
-                return new PaginatedResponseDto<>(List.of(), filters.getPage(), 10, 0L);
+                return new PaginatedResponseDto<>(List.of(), filters.getPage(), filters.getSize(), 0L);
             }
             throw e;
         } catch (Exception e) {
             logger.error("❌ Error en búsqueda: {}", e.getMessage(), e);
-            return new PaginatedResponseDto<>(List.of(), filters.getPage(), 10, 0L);
+            return new PaginatedResponseDto<>(List.of(), filters.getPage(), filters.getSize(), 0L);
         } finally {
             activeSearches.decrementAndGet();
         }
     }
 
     /**
-     * Obtiene riders de Live API con caché y control de concurrencia
-     * NUEVO: Aplica filtro de ciudades del usuario si están asignadas
+     * Número de riders que cumplen los filtros (mismo resultado fusionado que searchRiders)
      */
-    private List<RiderSummaryDto> getLiveRiders(Long tenantId, RiderFilterDto filters, List<Long> userCityIds) {
-        long startTime = System.currentTimeMillis();
-        List<RiderSummaryDto> results = Collections.synchronizedList(new ArrayList<>());
+    public long countRiders(Long tenantId, Long userId, RiderFilterDto filters) {
+        List<Long> userCityIds = applyUserCityScope(userId, filters);
+        return getMergedResults(tenantId, userCityIds, filters).riders().size();
+    }
+
+    /**
+     * Ciudades asignadas al usuario; si filtra por una ciudad que no tiene asignada, se quita ese filtro
+     */
+    private List<Long> applyUserCityScope(Long userId, RiderFilterDto filters) {
+        // NUEVO: Aplicar filtro automático de ciudades por usuario
+        List<Long> userCityIds = userCityService.getUserCityIds(userId);
+        if (userCityIds != null && !userCityIds.isEmpty()) {
+            logger.debug("🔒 Usuario ID {} tiene {} ciudades asignadas - Aplicando filtro automático: {}",
+                    userId, userCityIds.size(), userCityIds);
+
+            // Si el usuario ya tiene un filtro de ciudad específico, verificar que esté en sus ciudades asignadas
+            if (filters.getCityId() != null) {
+                if (!userCityIds.contains(filters.getCityId().longValue())) {
+                    logger.warn("⚠️ Usuario ID {} intentó filtrar por ciudad {} que no tiene asignada. Aplicando restricción.",
+                            userId, filters.getCityId());
+                    // El usuario no puede ver esa ciudad, forzar a sus ciudades asignadas
+                    filters.setCityId(null);
+                }
+            }
+            // Nota: El filtro de ciudades se aplica más abajo en getLiveRiders() y getRoosterRiders()
+        } else {
+            logger.debug("Usuario ID {} no tiene restricciones de ciudades - Puede ver todas", userId);
+        }
+        return userCityIds;
+    }
+
+    /**
+     * Resultado fusionado (Live + Rooster únicos) de la búsqueda.
+     *
+     * Se reutiliza durante search.session.ttl-seconds mientras no cambien el alcance de ciudades,
+     * los filtros ni las versiones de los snapshots Rooster/Live: cambiar de página, pedir más
+     * filas o contar no vuelve a consultar ni a fusionar nada. Peticiones simultáneas con la
+     * misma clave esperan a una única ejecución. Un resultado con fuentes fallidas (ciudad o
+     * Rooster sin responder) o una excepción no se conserva: la siguiente petición reintenta.
+     */
+    private SearchResult getMergedResults(Long tenantId, List<Long> userCityIds, RiderFilterDto filters) {
+        SearchKey key = sessionKey(tenantId, userCityIds, filters);
+
+        // La búsqueda se ejecuta en el hilo que llega primero, fuera del lock del caché
+        CompletableFuture<SearchResult> created = new CompletableFuture<>();
+        CompletableFuture<SearchResult> existing = searchResults.asMap().putIfAbsent(key, created);
+        if (existing != null) {
+            sessionHits.incrementAndGet();
+            return existing.join();
+        }
+        sessionMisses.incrementAndGet();
 
         try {
-            List<Integer> cityIds;
+            SearchResult result = runSearch(tenantId, filters, userCityIds);
+            created.complete(result);
+            if (result.failedSources() > 0) {
+                // Resultado parcial: se entrega a quien lo esperaba pero no se reutiliza
+                searchResults.asMap().remove(key, created);
+                logger.warn("Tenant {}: {} fuentes sin responder, resultado parcial no cacheado",
+                        tenantId, result.failedSources());
+            }
+            return result;
+        } catch (RuntimeException e) {
+            // Un futuro fallido se elimina del caché: la siguiente petición reintenta
+            created.completeExceptionally(e);
+            throw e;
+        }
+    }
 
-            // NUEVO: Aplicar filtro de ciudades del usuario
-            if (userCityIds != null && !userCityIds.isEmpty()) {
-                // Usuario tiene restricción de ciudades
-                cityIds = userCityIds.stream()
-                        .map(Long::intValue)
-                        .collect(Collectors.toList());
-                logger.debug("Filtrando Live API por ciudades del usuario: {}", cityIds);
-            } else if (filters.getCityId() != null) {
-                // Usuario sin restricción + filtro manual de ciudad
-                cityIds = List.of(filters.getCityId());
-            } else {
-                // Intentar usar caché completo
-                String allCitiesKey = "all-cities-data";
-                CachedLiveData allCitiesCache = liveCache.get(allCitiesKey);
-
-                if (allCitiesCache != null && !allCitiesCache.isExpired()) {
-                    cacheHits.incrementAndGet();
-                    logger.debug("💾 CACHE HIT TOTAL: Todas las ciudades desde caché");
-
-                    @SuppressWarnings("unchecked")
-                    Map<Integer, List<Map<String, Object>>> allData =
-                            (Map<Integer, List<Map<String, Object>>>) allCitiesCache.data;
-
-                    // Procesar en paralelo desde caché
-                    allData.entrySet().parallelStream().forEach(entry -> {
-                        Integer cityId = entry.getKey();
-                        entry.getValue().forEach(riderData -> {
-                            RiderSummaryDto rider = createRiderFromLiveData(tenantId, riderData, cityId);
-                            if (rider != null && matchesLiveFilters(rider, filters)) {
-                                results.add(rider);
+    private SearchKey sessionKey(Long tenantId, List<Long> userCityIds, RiderFilterDto filters) {
+        RoosterSnapshot rooster = roosterCache.getSnapshotIfLoaded(tenantId);
+        return new SearchKey(
+                tenantId,
+                userCityIds != null ? userCityIds.stream().sorted().toList() : List.of(),
+                FilterKey.of(filters),
+                rooster != null ? rooster.getVersion() : 0L,
+                liveSnapshots.getTenantVersion(tenantId));
+    }
+
+    /**
+     * Variante en streaming de searchRiders: entrega los riders por lotes a medida que termina
+     * cada fuente (cada ciudad de Live, y Rooster) en lugar de esperar a la más lenta.
+     *
+     * - Si hay un resultado fusionado reciente con la misma clave, se entrega entero (source "cache")
+     * - Las ciudades con snapshot del poller se entregan antes de lanzar ninguna llamada
+     * - Rooster solo entrega los riders que aún no han llegado desde Live; si uno llega después
+     *   desde Live, vuelve a enviarse con los datos en vivo (el cliente sustituye por riderId)
+     * - Los lotes se entregan de uno en uno (nunca en paralelo), ordenados y de como mucho
+     *   STREAM_BATCH_SIZE riders. onBatch se invoca con el lock de la búsqueda tomado, así que
+     *   no debe bloquear: el controller solo encola el evento para su escritor SSE
+     * Al terminar, el resultado fusionado se guarda como si fuera una búsqueda normal, para que
+     * la paginación y el conteo posteriores no repitan nada (salvo si alguna ciudad falló).
+     * Cancelar el futuro devuelto (cliente desconectado) deja de entregar lotes y las fuentes
+     * que aún no han empezado ya no llaman a Glovo; el resultado parcial no se guarda.
+     *
+     * @return futuro con los totales deduplicados, completado cuando han terminado todas las fuentes
+     */
+    public CompletableFuture<SearchTotals> streamRiders(Long tenantId, Long userId, RiderFilterDto filters,
+                                                        Consumer<RiderBatch> onBatch) {
+        long startTime = System.currentTimeMillis();
+        List<Long> userCityIds = applyUserCityScope(userId, filters);
+        SearchKey key = sessionKey(tenantId, userCityIds, filters);
+
+        CompletableFuture<SearchResult> cached = searchResults.getIfPresent(key);
+        if (cached != null && cached.isDone() && !cached.isCompletedExceptionally()) {
+            sessionHits.incrementAndGet();
+            SearchResult result = cached.join();
+            emitBatches(onBatch, "cache", null, result.riders());
+            return CompletableFuture.completedFuture(new SearchTotals(result.riders().size(), result.liveCount(),
+                    result.roosterUnique(), 0, System.currentTimeMillis() - startTime, true));
+        }
+        sessionMisses.incrementAndGet();
+        activeSearches.incrementAndGet();
+
+        logger.info("🔍 Tenant {}, User {} Iniciando búsqueda en streaming - Filtros: {}",
+                tenantId, userId, filters.hasFilters() ? filters.getFilterDescription() : "SIN FILTROS");
+
+        // Estado compartido entre fuentes: siempre bajo 'lock' (también serializa las entregas,
+        // para que un rider de Live nunca llegue al cliente antes que su versión de Rooster).
+        // ReentrantLock y no synchronized: se toma desde virtual threads
+        ReentrantLock lock = new ReentrantLock();
+        List<RiderSummaryDto> liveRiders = new ArrayList<>();
+        Set<Integer> liveIds = new HashSet<>();
+        List<RiderSummaryDto> roosterRiders = new ArrayList<>();
+        AtomicInteger failedSources = new AtomicInteger();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Consumer<RiderBatch> deliver = batch -> {
+            if (!cancelled.get()) {
+                onBatch.accept(batch);
+            }
+        };
+
+        BiConsumer<Integer, List<RiderSummaryDto>> onLiveCity = (cityId, riders) -> {
+            lock.lock();
+            try {
+                liveRiders.addAll(riders);
+                riders.forEach(rider -> liveIds.add(rider.getRiderId()));
+                emitBatches(deliver, "live", cityId, riders);
+            } finally {
+                lock.unlock();
+            }
+        };
+
+        List<CompletableFuture<Void>> sources = new ArrayList<>();
+
+        for (Integer cityId : resolveLiveCityIds(tenantId, filters, userCityIds)) {
+            LiveCitySnapshotStore.LiveCitySnapshot snapshot = liveSnapshots.getFresh(tenantId, cityId);
+            if (snapshot != null) {
+                snapshotHits.incrementAndGet();
+                onLiveCity.accept(cityId, filterCityRiders(tenantId, cityId, snapshot.riders(), filters));
+                continue;
+            }
+
+            sources.add(CompletableFuture
+                    .supplyAsync(() -> {
+                        checkNotCancelled(cancelled);
+                        return processCityWithRateLimit(tenantId, cityId, filters, cancelled);
+                    }, SHARED_EXECUTOR)
+                    .orTimeout(CITY_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .handle((riders, error) -> {
+                        if (error != null) {
+                            failedSources.incrementAndGet();
+                            if (!cancelled.get()) {
+                                logger.warn("⏱️ Tenant {}, Ciudad {}: Sin datos Live en streaming: {}",
+                                        tenantId, cityId, error.getMessage());
                             }
-                        });
-                    });
+                        } else {
+                            onLiveCity.accept(cityId, riders);
+                        }
+                        return null;
+                    }));
+        }
+
+        sources.add(CompletableFuture
+                .supplyAsync(() -> {
+                    checkNotCancelled(cancelled);
+                    return getRoosterRiders(tenantId, filters, userCityIds, failedSources);
+                }, SHARED_EXECUTOR)
+                .orTimeout(SEARCH_TIMEOUT_SECONDS - 2, TimeUnit.SECONDS)
+                .handle((riders, error) -> {
+                    if (error != null) {
+                        failedSources.incrementAndGet();
+                        if (!cancelled.get()) {
+                            logger.warn("Tenant {}: Sin datos Rooster en streaming: {}", tenantId, error.getMessage());
+                        }
+                        return null;
+                    }
+                    lock.lock();
+                    try {
+                        roosterRiders.addAll(riders);
+                        emitBatches(deliver, "rooster", null, riders.stream()
+                                .filter(rider -> !liveIds.contains(rider.getRiderId()))
+                                .collect(Collectors.toList()));
+                    } finally {
+                        lock.unlock();
+                    }
+                    return null;
+                }));
+
+        CompletableFuture<SearchTotals> search = CompletableFuture.allOf(sources.toArray(new CompletableFuture[0]))
+                .thenApply(done -> {
+                    SearchResult result;
+                    lock.lock();
+                    try {
+                        List<RiderSummaryDto> merged = new ArrayList<>(liveRiders);
+                        long roosterUnique = roosterRiders.stream()
+                                .filter(rider -> !liveIds.contains(rider.getRiderId()))
+                                .peek(merged::add)
+                                .count();
+                        result = new SearchResult(Collections.unmodifiableList(merged), liveRiders.size(), roosterUnique,
+                                failedSources.get());
+                    } finally {
+                        lock.unlock();
+                    }
+
+                    // Cancelada: las fuentes pendientes no llegaron a consultarse, el resultado puede ser parcial
+                    if (failedSources.get() == 0 && !cancelled.get()) {
+                        searchResults.put(key, CompletableFuture.completedFuture(result));
+                    }
 
                     long duration = System.currentTimeMillis() - startTime;
-                    logger.debug("Live desde CACHE: {} riders en {}ms", results.size(), duration);
+                    totalSearchTime.addAndGet(duration);
+                    totalSearches.incrementAndGet();
+                    logger.info("✅ Tenant {} [Usuario {}] Búsqueda en streaming completada en {}ms | Live: {} | Rooster únicos: {} | Fuentes fallidas: {}",
+                            tenantId, userId, duration, result.liveCount(), result.roosterUnique(), failedSources.get());
+
+                    return new SearchTotals(result.riders().size(), result.liveCount(), result.roosterUnique(),
+                            failedSources.get(), duration, false);
+                })
+                .whenComplete((totals, error) -> activeSearches.decrementAndGet());
+
+        // Cancelación desde fuera (cliente desconectado): las fuentes pendientes ya no llaman a Glovo
+        search.whenComplete((totals, error) -> {
+            if (search.isCancelled()) {
+                cancelled.set(true);
+                logger.info("Tenant {} [Usuario {}] Búsqueda en streaming cancelada por el cliente", tenantId, userId);
+            }
+        });
+        return search;
+    }
+
+    private static void checkNotCancelled(AtomicBoolean cancelled) {
+        if (cancelled.get()) {
+            throw new CancellationException("Búsqueda en streaming cancelada");
+        }
+    }
+
+    private void emitBatches(Consumer<RiderBatch> onBatch, String source, Integer cityId, List<RiderSummaryDto> riders) {
+        if (riders.isEmpty()) {
+            return;
+        }
+        List<RiderSummaryDto> sorted = new ArrayList<>(riders);
+        sorted.sort(RiderFilterService::compareRiders);
+        for (int from = 0; from < sorted.size(); from += STREAM_BATCH_SIZE) {
+            List<RiderSummaryDto> batch = sorted.subList(from, Math.min(from + STREAM_BATCH_SIZE, sorted.size()));
+            try {
+                onBatch.accept(new RiderBatch(source, cityId, List.copyOf(batch)));
+            } catch (Exception e) {
+                // No debería ocurrir (onBatch solo encola): no se corta el resto de fuentes
+                logger.debug("No se pudo entregar lote de riders ({}): {}", source, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Ejecuta Live y Rooster en paralelo y fusiona (sin ordenar: lo hace la paginación)
+     */
+    private SearchResult runSearch(Long tenantId, RiderFilterDto filters, List<Long> userCityIds) {
+        // Verificar si hay muchas llamadas esperando permiso de API
+        if (API_SEMAPHORE.getQueueLength() > 100) {
+            logger.warn("⚠️ Cola de permisos API alta: {} tareas esperando", API_SEMAPHORE.getQueueLength());
+        }
+
+        // Ciudades Live o Rooster que no han respondido: el resultado es parcial
+        AtomicInteger failedSources = new AtomicInteger();
+
+        // Ejecutar Live y Rooster EN PARALELO con timeout
+        // NUEVO: Pasar userCityIds para aplicar filtro de ciudades
+        CompletableFuture<List<RiderSummaryDto>> liveFuture = CompletableFuture
+                .supplyAsync(() -> getLiveRiders(tenantId, filters, userCityIds, failedSources), SHARED_EXECUTOR)
+                .orTimeout(SEARCH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        CompletableFuture<List<RiderSummaryDto>> roosterFuture = CompletableFuture
+                .supplyAsync(() -> getRoosterRiders(tenantId, filters, userCityIds, failedSources), SHARED_EXECUTOR)
+                .orTimeout(SEARCH_TIMEOUT_SECONDS - 2, TimeUnit.SECONDS);
+
+        // Esperar ambos resultados
+        List<RiderSummaryDto> liveRiders = liveFuture.join();
+        List<RiderSummaryDto> roosterRiders = roosterFuture.join();
+
+        // Combinar y eliminar duplicados
+        Set<Integer> liveIds = liveRiders.stream()
+                .map(RiderSummaryDto::getRiderId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+
+        List<RiderSummaryDto> allRiders = new ArrayList<>(liveRiders);
+
+        // Agregar solo riders de Rooster que no están en Live
+        long roosterUnique = roosterRiders.stream()
+                .filter(r -> !liveIds.contains(r.getRiderId()))
+                .peek(allRiders::add)
+                .count();
+
+        return new SearchResult(Collections.unmodifiableList(allRiders), liveRiders.size(), roosterUnique,
+                failedSources.get());
+    }
+
+    /**
+     * Obtiene riders de Live API con caché y control de concurrencia
+     * NUEVO: Aplica filtro de ciudades del usuario si están asignadas
+     * Cada ciudad que falla o supera el timeout se cuenta en failedSources.
+     */
+    private List<RiderSummaryDto> getLiveRiders(Long tenantId, RiderFilterDto filters, List<Long> userCityIds,
+                                                AtomicInteger failedSources) {
+        long startTime = System.currentTimeMillis();
+        List<RiderSummaryDto> results = Collections.synchronizedList(new ArrayList<>());
+
+        try {
+            List<Integer> cityIds = resolveLiveCityIds(tenantId, filters, userCityIds);
+
+            if (isAllTenantCities(filters, userCityIds)) {
+                // Camino rápido: foto completa del tenant publicada por el poller (solo este tenant)
+                Map<Integer, LiveCitySnapshotStore.LiveCitySnapshot> allSnapshots = liveSnapshots.getFreshAll(tenantId, cityIds);
+                if (allSnapshots != null) {
+                    allCitiesHits.incrementAndGet();
+                    allSnapshots.values().parallelStream().forEach(snapshot ->
+                            results.addAll(filterCityRiders(tenantId, snapshot.cityId(), snapshot.riders(), filters)));
+                    logger.debug("💾 Tenant {}: Todas las ciudades ({}) desde snapshots: {} riders en {}ms", tenantId,
+                            allSnapshots.size(), results.size(), System.currentTimeMillis() - startTime);
                     return results;
                 }
-
-                cacheMisses.incrementAndGet();
-                cityIds = tenantSettingsService.getActiveCityIds(tenantId);
+                allCitiesMisses.incrementAndGet();
             }
 
             // Procesar ciudades con límite de concurrencia
             List<CompletableFuture<List<RiderSummaryDto>>> futures = new ArrayList<>();
 
             for (Integer cityId : cityIds) {
+                // Snapshot publicado por el poller de ubicaciones: sin llamada a Glovo ni hilo extra
+                LiveCitySnapshotStore.LiveCitySnapshot snapshot = liveSnapshots.getFresh(tenantId, cityId);
+                if (snapshot != null) {
+                    snapshotHits.incrementAndGet();
+                    results.addAll(filterCityRiders(tenantId, cityId, snapshot.riders(), filters));
+                    continue;
+                }
+
                 CompletableFuture<List<RiderSummaryDto>> future = CompletableFuture
                         .supplyAsync(() -> processCityWithRateLimit(tenantId, cityId, filters), SHARED_EXECUTOR)
                         .orTimeout(CITY_TIMEOUT_SECONDS, TimeUnit.SECONDS);
@@ -273,6 +566,7 @@ public class RiderFilterService {
                 try {
                     results.addAll(future.join());
                 } catch (CompletionException e) {
+                    failedSources.incrementAndGet();
                     if (e.getCause() instanceof TimeoutException) {
                         logger.warn("⏱️ Timeout procesando ciudad");
                     } else {
@@ -281,25 +575,53 @@ public class RiderFilterService {
                 }
             }
 
-            // Cachear resultado completo si es búsqueda general
-            if (filters.getCityId() == null && !cityIds.isEmpty()) {
-                cacheAllCitiesData(cityIds);
-            }
-
             long duration = System.currentTimeMillis() - startTime;
             logger.debug("Live API procesado: {} riders en {}ms", results.size(), duration);
 
         } catch (Exception e) {
+            failedSources.incrementAndGet();
             logger.error("Error obteniendo riders de Live: {}", e.getMessage());
         }
 
         return results;
     }
 
+    private static boolean isAllTenantCities(RiderFilterDto filters, List<Long> userCityIds) {
+        return (userCityIds == null || userCityIds.isEmpty()) && filters.getCityId() == null;
+    }
+
+    /**
+     * Ciudades Live a consultar: las asignadas al usuario, la del filtro o todas las activas del tenant
+     */
+    private List<Integer> resolveLiveCityIds(Long tenantId, RiderFilterDto filters, List<Long> userCityIds) {
+        // NUEVO: Aplicar filtro de ciudades del usuario
+        if (userCityIds != null && !userCityIds.isEmpty()) {
+            // Usuario tiene restricción de ciudades
+            List<Integer> cityIds = userCityIds.stream()
+                    .map(Long::intValue)
+                    .collect(Collectors.toList());
+            logger.debug("Filtrando Live API por ciudades del usuario: {}", cityIds);
+            return cityIds;
+        }
+        if (filters.getCityId() != null) {
+            // Usuario sin restricción + filtro manual de ciudad
+            return List.of(filters.getCityId());
+        }
+        return tenantSettingsService.getActiveCityIds(tenantId);
+    }
+
     /**
      * Procesa una ciudad con control de rate limiting
      */
     private List<RiderSummaryDto> processCityWithRateLimit(Long tenantId, Integer cityId, RiderFilterDto filters) {
+        return processCityWithRateLimit(tenantId, cityId, filters, null);
+    }
+
+    /**
+     * Igual, pero si la búsqueda en streaming se cancela mientras espera permiso ya no llama a Glovo
+     */
+    private List<RiderSummaryDto> processCityWithRateLimit(Long tenantId, Integer cityId, RiderFilterDto filters,
+                                                           AtomicBoolean cancelled) {
         try {
             // Adquirir permiso para llamar a la API
             boolean acquired = API_SEMAPHORE.tryAcquire(2, TimeUnit.SECONDS);
@@ -309,6 +631,9 @@ public class RiderFilterService {
             }
 
             try {
+                if (cancelled != null) {
+                    checkNotCancelled(cancelled);
+                }
                 return processCity(tenantId, cityId, filters);
             } finally {
                 API_SEMAPHORE.release();
@@ -317,144 +642,132 @@ public class RiderFilterService {
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             logger.error("Interrumpido procesando ciudad {}", cityId);
-            return new ArrayList<>();
+            throw new CompletionException(e);
         }
     }
 
     /**
-     * Procesa una ciudad específica
+     * Procesa una ciudad específica. Los errores se propagan (CompletionException) para que la
+     * búsqueda sepa que la ciudad falta y no guarde un resultado parcial.
      */
     private List<RiderSummaryDto> processCity(Long tenantId, Integer cityId, RiderFilterDto filters) {
-        List<RiderSummaryDto> cityResults = new ArrayList<>();
-
         try {
-            List<Map<String, Object>> cityRiders = getCachedCityRiders(tenantId, cityId);
+            return filterCityRiders(tenantId, cityId, getCachedCityRiders(tenantId, cityId), filters);
+        } catch (Exception e) {
+            logger.debug("Error procesando ciudad {}: {}", cityId, e.getMessage());
+            throw e instanceof CompletionException completion ? completion : new CompletionException(e);
+        }
+    }
+
+    /**
+     * Convierte y filtra las filas Live de una ciudad.
+     * Con filtros de texto solo se convierten las filas que devuelve el índice de la ciudad.
+     */
+    private List<RiderSummaryDto> filterCityRiders(Long tenantId, Integer cityId,
+                                                   List<Map<String, Object>> cityRiders,
+                                                   RiderFilterDto filters) {
+        List<RiderSummaryDto> cityResults = new ArrayList<>();
 
+        if (!hasTextFilters(filters)) {
             for (Map<String, Object> riderData : cityRiders) {
-                RiderSummaryDto rider = createRiderFromLiveData(tenantId, riderData, cityId);
-                if (rider != null && matchesLiveFilters(rider, filters)) {
-                    cityResults.add(rider);
-                }
+                addLiveRider(cityResults, tenantId, riderData, cityId, filters);
             }
+            return cityResults;
+        }
 
-        } catch (Exception e) {
-            logger.debug("Error procesando ciudad {}: {}", cityId, e.getMessage());
+        BitSet matches = liveSearchIndexes.get(cityRiders, RiderSearchIndex::forLiveRows)
+                .match(filters.getName(), filters.getEmail(), filters.getPhone());
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            addLiveRider(cityResults, tenantId, cityRiders.get(i), cityId, filters);
         }
 
         return cityResults;
     }
 
+    private void addLiveRider(List<RiderSummaryDto> cityResults, Long tenantId, Map<String, Object> riderData,
+                              Integer cityId, RiderFilterDto filters) {
+        RiderSummaryDto rider = createRiderFromLiveData(tenantId, riderData, cityId);
+        if (rider != null && matchesLiveFilters(rider, filters)) {
+            cityResults.add(rider);
+        }
+    }
+
+    private static boolean hasTextFilters(RiderFilterDto filters) {
+        return RiderSearchIndex.hasTextFilters(filters.getName(), filters.getEmail(), filters.getPhone());
+    }
+
     /**
      * Obtiene riders de una ciudad con caché
      */
     private List<Map<String, Object>> getCachedCityRiders(Long tenantId, Integer cityId) throws Exception {
-        String cacheKey = "tenant-" + tenantId + "-city-" + cityId;
-        CachedLiveData cached = liveCache.get(cacheKey);
+        CityKey cacheKey = new CityKey(tenantId, cityId);
+        List<Map<String, Object>> cached = cityRidersCache.getIfPresent(cacheKey);
 
-        if (cached != null && !cached.isExpired()) {
+        if (cached != null) {
             cacheHits.incrementAndGet();
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> data = (List<Map<String, Object>>) cached.data;
-            return data;
+            return cached;
         }
 
         cacheMisses.incrementAndGet();
         List<Map<String, Object>> cityRiders = getAllRidersFromCity(tenantId, cityId);
-        liveCache.put(cacheKey, new CachedLiveData(cityRiders));
-
-        // Limpiar cachés expirados ocasionalmente
-        if (Math.random() < 0.05) { // 5% de probabilidad
-            cleanExpiredCaches();
-        }
+        cityRidersCache.put(cacheKey, cityRiders);
 
         return cityRiders;
     }
 
-    // Throttling para respetar límite de Live API: 4 req/s (margen de seguridad)
-    private static final int SAFE_REQ_PER_SECOND = 4;
-    private static final long THROTTLE_DELAY_MS = 1000 / SAFE_REQ_PER_SECOND; // 250ms
-
     /**
-     * Obtiene todos los riders de una ciudad desde Live API con throttling.
+     * Obtiene todos los riders de una ciudad desde Live API.
      *
-     * THROTTLING: Respeta límite de 4 req/s (margen de seguridad del límite de 5 req/s de Glovo).
-     * Aplica delay de 250ms entre páginas para garantizar que no se exceda el rate limit.
+     * Delegado al motor de paginación de GlovoClient: lee total_pages / is_last de la
+     * primera página y pide el resto en paralelo, respetando 4 req/s por tenant.
      */
     private List<Map<String, Object>> getAllRidersFromCity(Long tenantId, Integer cityId) throws Exception {
-        List<Map<String, Object>> allRiders = new ArrayList<>();
-        int page = 0;
-        boolean hasMore = true;
-
-        while (hasMore && page < 50) {
-            long startTime = System.currentTimeMillis();
-
-            Object response = glovoClient.getRidersByCity(tenantId, cityId, page, 100, "employee_id");
-
-            if (response instanceof Map) {
-                @SuppressWarnings("unchecked")
-                Map<String, Object> responseMap = (Map<String, Object>) response;
-
-                @SuppressWarnings("unchecked")
-                List<Map<String, Object>> content = (List<Map<String, Object>>) responseMap.get("content");
-
-                if (content != null && !content.isEmpty()) {
-                    allRiders.addAll(content);
-                    Boolean isLast = (Boolean) responseMap.get("is_last");
-                    hasMore = isLast != null && !isLast;
-                    page++;
-
-                    // THROTTLING: Esperar entre páginas para respetar límite de 4 req/s
-                    if (hasMore && page < 50) {
-                        long elapsed = System.currentTimeMillis() - startTime;
-                        long sleepTime = THROTTLE_DELAY_MS - elapsed;
-
-                        if (sleepTime > 0) {
-                            try {
-                                logger.debug("Tenant {}, Ciudad {}: Throttling {}ms antes de página {}",
-                                    tenantId, cityId, sleepTime, page);
-                                Thread.sleep(sleepTime);
-                            } catch (InterruptedException e) {
-                                Thread.currentThread().interrupt();
-                                logger.warn("Tenant {}, Ciudad {}: Throttling interrumpido", tenantId, cityId);
-                                hasMore = false;
-                            }
-                        }
-                    }
-                } else {
-                    hasMore = false;
-                }
-            } else {
-                hasMore = false;
-            }
-        }
-
-        return allRiders;
+        return glovoClient.getAllRidersFromCity(tenantId, cityId, 100, "employee_id");
     }
 
     /**
      * Obtiene riders de Rooster desde caché
      * NUEVO: Aplica filtro de ciudades del usuario si están asignadas
      */
-    private List<RiderSummaryDto> getRoosterRiders(Long tenantId, RiderFilterDto filters, List<Long> userCityIds) {
+    private List<RiderSummaryDto> getRoosterRiders(Long tenantId, RiderFilterDto filters, List<Long> userCityIds,
+                                                   AtomicInteger failedSources) {
         long startTime = System.currentTimeMillis();
         List<RiderSummaryDto> results = new ArrayList<>();
 
         try {
-            List<?> allEmployees = roosterCache.getAllEmployees(tenantId);
+            RoosterSnapshot snapshot = roosterCache.getSnapshot(tenantId);
 
-            if (allEmployees == null || allEmployees.isEmpty()) {
+            if (snapshot.size() == 0) {
                 return results;
             }
 
-            // NUEVO: Convertir userCityIds a Integer para comparación
-            List<Integer> userCityIdsInt = null;
-            if (userCityIds != null && !userCityIds.isEmpty()) {
-                userCityIdsInt = userCityIds.stream()
+            // Con filtros de texto: candidatos desde el índice de búsqueda del snapshot
+            // (y de ellos, solo los de las ciudades del usuario)
+            List<RoosterEmployeeDto> allEmployees;
+            if (hasTextFilters(filters)) {
+                BitSet matches = snapshot.getSearchIndex()
+                        .match(filters.getName(), filters.getEmail(), filters.getPhone());
+                Set<Integer> allowedCities = userCityIds != null && !userCityIds.isEmpty()
+                        ? userCityIds.stream().map(Long::intValue).collect(Collectors.toSet())
+                        : null;
+                List<RoosterEmployeeDto> employees = snapshot.getEmployees();
+                allEmployees = new ArrayList<>(matches.cardinality());
+                for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+                    RoosterEmployeeDto employee = employees.get(i);
+                    if (allowedCities == null || allowedCities.contains(employee.operationalCityId())) {
+                        allEmployees.add(employee);
+                    }
+                }
+            } else if (userCityIds != null && !userCityIds.isEmpty()) {
+                // NUEVO: Con ciudades del usuario, recorrer solo sus ciudades (índice por ciudad)
+                List<Integer> userCityIdsInt = userCityIds.stream()
                         .map(Long::intValue)
                         .collect(Collectors.toList());
                 logger.debug("Filtrando Rooster por ciudades del usuario: {}", userCityIdsInt);
+                allEmployees = snapshot.getEmployeesInCities(userCityIdsInt);
+            } else {
+                allEmployees = snapshot.getEmployees();
             }
-            final List<Integer> finalUserCityIds = userCityIdsInt;
 
             // Usar parallel stream con pool compartido (reutilizado en lugar de crear uno nuevo)
             try {
@@ -462,9 +775,9 @@ public class RiderFilterService {
                         allEmployees.parallelStream()
                                 .map(emp -> {
                                     try {
-                                        RiderSummaryDto rider = RiderSummaryDto.fromRoosterApiData(emp);
+                                        RiderSummaryDto rider = RiderSummaryDto.fromRoosterEmployee(emp);
                                         if (rider != null) {
-                                            rider.setCityId(extractCityFromEmployee(emp));
+                                            rider.setCityId(emp.operationalCityId());
                                         }
                                         return rider;
                                     } catch (Exception e) {
@@ -473,28 +786,24 @@ public class RiderFilterService {
                                 })
                                 .filter(Objects::nonNull)
                                 .filter(rider -> matchesRoosterFilters(rider, filters))
-                                .filter(rider -> {
-                                    // Aplicar filtro de ciudades del usuario
-                                    if (finalUserCityIds != null && !finalUserCityIds.isEmpty()) {
-                                        return rider.getCityId() != null && finalUserCityIds.contains(rider.getCityId());
-                                    }
-                                    return true; // Sin restricción de ciudades
-                                })
                                 .collect(Collectors.toList())
                 ).get(5, TimeUnit.SECONDS);
             } catch (java.util.concurrent.TimeoutException e) {
+                failedSources.incrementAndGet();
                 logger.warn("Timeout procesando Rooster data para tenant {}", tenantId);
                 results = new ArrayList<>();
             } catch (java.util.concurrent.ExecutionException e) {
+                failedSources.incrementAndGet();
                 logger.error("Error procesando Rooster: {}", e.getMessage());
                 results = new ArrayList<>();
             }
 
             long duration = System.currentTimeMillis() - startTime;
-            logger.debug("Rooster: {} riders filtrados de {} totales en {}ms",
-                    results.size(), allEmployees.size(), duration);
+            logger.debug("Rooster: {} riders filtrados de {} candidatos ({} totales) en {}ms",
+                    results.size(), allEmployees.size(), snapshot.size(), duration);
 
         } catch (Exception e) {
+            failedSources.incrementAndGet();
             logger.error("Error obteniendo riders de Rooster: {}", e.getMessage());
         }
 
@@ -502,35 +811,72 @@ public class RiderFilterService {
     }
 
     /**
-     * Paginación optimizada - solo ordena lo necesario
+     * Paginación con selección top-K: nunca ordena la lista completa.
+     *
+     * - page/size: se conservan solo los (page+1)*size primeros en un heap acotado
+     * - cursor: solo los posteriores a la clave del cursor, size+1 en el heap (O(n log size)
+     *   sea cual sea la profundidad)
+     * En ambos casos nextCursor apunta al último rider devuelto si quedan más.
      */
-    private PaginatedResponseDto<RiderSummaryDto> optimizedPagination(
+    static PaginatedResponseDto<RiderSummaryDto> optimizedPagination(
             List<RiderSummaryDto> allRiders,
-            RiderFilterDto filters) {
+            RiderFilterDto filters,
+            SortKey after,
+            CursorCodec cursorCodec) {
 
         int page = filters.getPage();
-        int size = 10;
+        int size = filters.getSize();
+        long total = allRiders.size();
+
+        if (after != null) {
+            List<RiderSummaryDto> next = topK(allRiders, size + 1, after);
+            boolean hasMore = next.size() > size;
+            List<RiderSummaryDto> content = hasMore ? new ArrayList<>(next.subList(0, size)) : next;
+
+            PaginatedResponseDto<RiderSummaryDto> response = new PaginatedResponseDto<>(content, page, size, total);
+            response.setFirst(false);
+            response.setLast(!hasMore);
+            response.setNextCursor(hasMore ? cursorCodec.encode(SortKey.of(content.get(size - 1))) : null);
+            return response;
+        }
 
-        // Si hay pocos resultados, ordenar todo
-        if (allRiders.size() <= 100) {
-            allRiders.sort(this::compareRiders);
-            return PaginatedResponseDto.of(allRiders, page, size);
+        long start = (long) page * size;
+        if (start >= total) {
+            return new PaginatedResponseDto<>(List.of(), page, size, total);
         }
 
-        // Para muchos resultados, usar ordenamiento parcial
-        int start = page * size;
-        int end = Math.min(start + size * 3, allRiders.size()); // Ordenar 3 páginas adelante
+        List<RiderSummaryDto> top = topK(allRiders, (int) Math.min(start + size, total), null);
+        List<RiderSummaryDto> content = new ArrayList<>(top.subList((int) start, top.size()));
 
-        // Ordenar solo la porción necesaria
-        List<RiderSummaryDto> sorted = allRiders.stream()
-                .sorted(this::compareRiders)
-                .skip(start)
-                .limit(size)
-                .collect(Collectors.toList());
+        PaginatedResponseDto<RiderSummaryDto> response = new PaginatedResponseDto<>(content, page, size, total);
+        if (!response.getLast()) {
+            response.setNextCursor(cursorCodec.encode(SortKey.of(content.get(content.size() - 1))));
+        }
+        return response;
+    }
+
+    /**
+     * Los k primeros según compareRiders (solo los posteriores a 'after' si se indica), ya ordenados
+     */
+    private static List<RiderSummaryDto> topK(List<RiderSummaryDto> riders, int k, SortKey after) {
+        // Max-heap de tamaño k: la cima es el peor de los k mejores vistos hasta ahora
+        PriorityQueue<RiderSummaryDto> heap = new PriorityQueue<>(k + 1, (a, b) -> compareRiders(b, a));
+
+        for (RiderSummaryDto rider : riders) {
+            if (after != null && after.compareTo(rider) >= 0) {
+                continue;
+            }
+            if (heap.size() < k) {
+                heap.add(rider);
+            } else if (compareRiders(rider, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(rider);
+            }
+        }
 
-        return new PaginatedResponseDto<>(
-                sorted, page, size, (long) allRiders.size()
-        );
+        List<RiderSummaryDto> result = new ArrayList<>(heap);
+        result.sort(RiderFilterService::compareRiders);
+        return result;
     }
 
     /**
@@ -538,7 +884,7 @@ public class RiderFilterService {
      */
     private RiderSummaryDto createRiderFromLiveData(Long tenantId, Map<String, Object> riderData, Integer cityId) {
         Integer employeeId = (Integer) riderData.get("employee_id");
-        Object employeeData = findEmployeeInCache(tenantId, employeeId);
+        RoosterEmployeeDto employeeData = findEmployeeInCache(tenantId, employeeId);
 
         RiderSummaryDto rider = RiderSummaryDto.fromLiveApiData(riderData, employeeData);
         if (rider != null) {
@@ -548,71 +894,18 @@ public class RiderFilterService {
     }
 
     /**
-     * Busca empleado en caché de Rooster
+     * Busca empleado en caché de Rooster (índice por id del snapshot)
      */
-    private Object findEmployeeInCache(Long tenantId, Integer employeeId) {
+    private RoosterEmployeeDto findEmployeeInCache(Long tenantId, Integer employeeId) {
         if (employeeId == null) return null;
 
         try {
-            List<?> allEmployees = roosterCache.getAllEmployees(tenantId);
-            if (allEmployees == null) return null;
-
-            return allEmployees.stream()
-                    .filter(emp -> {
-                        if (emp instanceof Map) {
-                            Integer id = (Integer) ((Map<?, ?>) emp).get("id");
-                            return employeeId.equals(id);
-                        }
-                        return false;
-                    })
-                    .findFirst()
-                    .orElse(null);
+            return roosterCache.getSnapshot(tenantId).findById(employeeId);
         } catch (Exception e) {
             return null;
         }
     }
 
-    /**
-     * Cachea datos de todas las ciudades
-     */
-    private void cacheAllCitiesData(List<Integer> cityIds) {
-        try {
-            Map<Integer, List<Map<String, Object>>> allData = new ConcurrentHashMap<>();
-
-            for (Integer cityId : cityIds) {
-                CachedLiveData cityCache = liveCache.get("city-" + cityId);
-                if (cityCache != null && !cityCache.isExpired()) {
-                    @SuppressWarnings("unchecked")
-                    List<Map<String, Object>> data = (List<Map<String, Object>>) cityCache.data;
-                    allData.put(cityId, data);
-                }
-            }
-
-            if (!allData.isEmpty()) {
-                liveCache.put("all-cities-data", new CachedLiveData(allData));
-            }
-        } catch (Exception e) {
-            logger.debug("Error cacheando datos completos: {}", e.getMessage());
-        }
-    }
-
-    /**
-     * Limpia cachés expirados
-     */
-    private void cleanExpiredCaches() {
-        int removed = 0;
-        Iterator<Map.Entry<String, CachedLiveData>> iterator = liveCache.entrySet().iterator();
-        while (iterator.hasNext()) {
-            if (iterator.next().getValue().isExpired()) {
-                iterator.remove();
-                removed++;
-            }
-        }
-        if (removed > 0) {
-            logger.debug("Limpiados {} cachés expirados", removed);
-        }
-    }
-
     /**
      * Calcula hit rate del caché
      */
@@ -626,17 +919,16 @@ public class RiderFilterService {
      * Log de métricas de rendimiento
      */
     private void logPerformanceMetrics() {
-        ThreadPoolExecutor executor = (ThreadPoolExecutor) SHARED_EXECUTOR;
-
         logger.info("📊 MÉTRICAS DE RENDIMIENTO:");
         logger.info("  - Búsquedas totales: {}", totalSearches.get());
         logger.info("  - Tiempo promedio: {}ms",
                 totalSearches.get() > 0 ? totalSearchTime.get() / totalSearches.get() : 0);
         logger.info("  - Cache hit rate: {}%", calculateHitRate());
         logger.info("  - Búsquedas activas: {}", activeSearches.get());
-        logger.info("  - Threads activos: {}/{}", executor.getActiveCount(), executor.getPoolSize());
-        logger.info("  - Cola de tareas: {}", executor.getQueue().size());
-        logger.info("  - Permisos API disponibles: {}/20", API_SEMAPHORE.availablePermits());
+        logger.info("  - Permisos API disponibles: {}/{} ({} esperando)", API_SEMAPHORE.availablePermits(),
+                MAX_CONCURRENT_API_CALLS, API_SEMAPHORE.getQueueLength());
+        logger.info("  - Rooster pool: {} activos, {} en cola", ROOSTER_POOL.getActiveThreadCount(),
+                ROOSTER_POOL.getQueuedSubmissionCount());
     }
 
     // Métodos de filtrado...
@@ -651,22 +943,7 @@ public class RiderFilterService {
             return false;
         }
 
-        if (filters.getName() != null && rider.getName() != null &&
-                !rider.getName().toLowerCase().contains(filters.getName().toLowerCase())) {
-            return false;
-        }
-
-        if (filters.getPhone() != null) {
-            // Si se busca por teléfono, solo incluir riders que tengan teléfono y coincida
-            if (rider.getPhone() == null || !rider.getPhone().contains(filters.getPhone())) {
-                return false;
-            }
-        }
-
-        if (filters.getEmail() != null && rider.getEmail() != null &&
-                !rider.getEmail().toLowerCase().contains(filters.getEmail().toLowerCase())) {
-            return false;
-        }
+        // Nombre, teléfono y email: ya resueltos con RiderSearchIndex antes de convertir
 
         if (filters.getStatus() != null && rider.getStatus() != null &&
                 !rider.getStatus().equalsIgnoreCase(filters.getStatus())) {
@@ -715,22 +992,7 @@ public class RiderFilterService {
             return false;
         }
 
-        if (filters.getName() != null && rider.getName() != null &&
-                !rider.getName().toLowerCase().contains(filters.getName().toLowerCase())) {
-            return false;
-        }
-
-        if (filters.getPhone() != null) {
-            // Si se busca por teléfono, solo incluir riders que tengan teléfono y coincida
-            if (rider.getPhone() == null || !rider.getPhone().contains(filters.getPhone())) {
-                return false;
-            }
-        }
-
-        if (filters.getEmail() != null && rider.getEmail() != null &&
-                !rider.getEmail().toLowerCase().contains(filters.getEmail().toLowerCase())) {
-            return false;
-        }
+        // Nombre, teléfono y email: ya resueltos con RiderSearchIndex antes de convertir
 
         if (filters.getContractType() != null && rider.getContractType() != null &&
                 !rider.getContractType().equals(filters.getContractType().toUpperCase())) {
@@ -740,58 +1002,74 @@ public class RiderFilterService {
         return true;
     }
 
-    private Integer extractCityFromEmployee(Object employeeData) {
-        if (!(employeeData instanceof Map)) return null;
-
-        @SuppressWarnings("unchecked")
-        Map<String, Object> empMap = (Map<String, Object>) employeeData;
-
-        @SuppressWarnings("unchecked")
-        Map<String, Object> activeContract = (Map<String, Object>) empMap.get("active_contract");
-        if (activeContract != null) {
-            Integer cityId = (Integer) activeContract.get("city_id");
-            if (cityId != null) return cityId;
-        }
-
-        return (Integer) empMap.get("city_id");
+    /**
+     * Orden de resultados: trabajando primero, después nombre (sin distinguir mayúsculas;
+     * sin nombre al final) y riderId para desempatar. Es un orden total: el cursor depende de él.
+     */
+    static int compareRiders(RiderSummaryDto a, RiderSummaryDto b) {
+        return compareSortKeys(a.isActive(), a.getName(), riderIdOf(a), b.isActive(), b.getName(), riderIdOf(b));
     }
 
-    private int compareRiders(RiderSummaryDto a, RiderSummaryDto b) {
-        if (a.isActive() != b.isActive()) {
-            return a.isActive() ? -1 : 1;
+    private static int compareSortKeys(boolean activeA, String nameA, int riderIdA,
+                                       boolean activeB, String nameB, int riderIdB) {
+        if (activeA != activeB) {
+            return activeA ? -1 : 1;
         }
 
-        if (a.getName() != null && b.getName() != null) {
-            return a.getName().compareToIgnoreCase(b.getName());
+        if (nameA != null || nameB != null) {
+            if (nameA == null) return 1;
+            if (nameB == null) return -1;
+            int byName = nameA.compareToIgnoreCase(nameB);
+            if (byName != 0) {
+                return byName;
+            }
         }
 
-        return Integer.compare(
-                a.getRiderId() != null ? a.getRiderId() : 0,
-                b.getRiderId() != null ? b.getRiderId() : 0
-        );
+        return Integer.compare(riderIdA, riderIdB);
+    }
+
+    private static int riderIdOf(RiderSummaryDto rider) {
+        return rider.getRiderId() != null ? rider.getRiderId() : 0;
     }
 
     /**
      * Obtiene métricas del servicio
      */
     public Map<String, Object> getMetrics() {
-        ThreadPoolExecutor executor = (ThreadPoolExecutor) SHARED_EXECUTOR;
-
         Map<String, Object> metrics = new HashMap<>();
         metrics.put("total_searches", totalSearches.get());
         metrics.put("average_search_time_ms",
                 totalSearches.get() > 0 ? totalSearchTime.get() / totalSearches.get() : 0);
         metrics.put("cache_hit_rate", calculateHitRate());
         metrics.put("active_searches", activeSearches.get());
-        metrics.put("thread_pool_active", executor.getActiveCount());
-        metrics.put("thread_pool_size", executor.getPoolSize());
-        metrics.put("thread_pool_queue", executor.getQueue().size());
         metrics.put("api_permits_available", API_SEMAPHORE.availablePermits());
-        metrics.put("live_cache_entries", liveCache.size());
+        metrics.put("api_permits_waiting", API_SEMAPHORE.getQueueLength());
+        metrics.put("rooster_pool_active", ROOSTER_POOL.getActiveThreadCount());
+        metrics.put("rooster_pool_queue", ROOSTER_POOL.getQueuedSubmissionCount());
+        metrics.put("live_snapshot_hits", snapshotHits.get());
+        metrics.put("live_all_cities_hits", allCitiesHits.get());
+        metrics.put("live_all_cities_misses", allCitiesMisses.get());
+        metrics.put("live_cache_entries", cityRidersCache.estimatedSize());
+        metrics.put("live_cache_riders", cityRidersCache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L));
+        metrics.put("live_cache_stats", cacheStatsToMap(cityRidersCache.stats()));
+        metrics.put("live_search_indexes", liveSearchIndexes.estimatedSize());
+        metrics.put("search_session_entries", searchResults.synchronous().estimatedSize());
+        metrics.put("search_session_hits", sessionHits.get());
+        metrics.put("search_session_misses", sessionMisses.get());
 
         return metrics;
     }
 
+    private static Map<String, Object> cacheStatsToMap(CacheStats stats) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("hits", stats.hitCount());
+        map.put("misses", stats.missCount());
+        map.put("hit_rate", Math.round(stats.hitRate() * 100));
+        map.put("evictions", stats.evictionCount());
+        return map;
+    }
+
     /**
      * Limpia el cache de un tenant específico
      * MULTI-TENANT: Solo invalida el cache de un tenant, no de todos
@@ -801,15 +1079,12 @@ public class RiderFilterService {
         roosterCache.clearCache(tenantId);
 
         // Limpiar entradas de Live cache que pertenecen a este tenant
-        int removedEntries = 0;
-        Iterator<Map.Entry<String, CachedLiveData>> iterator = liveCache.entrySet().iterator();
-        while (iterator.hasNext()) {
-            Map.Entry<String, CachedLiveData> entry = iterator.next();
-            if (entry.getKey().startsWith("tenant-" + tenantId + "-")) {
-                iterator.remove();
-                removedEntries++;
-            }
-        }
+        List<CityKey> tenantKeys = cityRidersCache.asMap().keySet().stream()
+                .filter(key -> key.tenantId().equals(tenantId))
+                .collect(Collectors.toList());
+        cityRidersCache.invalidateAll(tenantKeys);
+        searchResults.asMap().keySet().removeIf(key -> key.tenantId().equals(tenantId));
+        int removedEntries = tenantKeys.size();
 
         logger.info("Tenant {}: Cache limpiado ({} entradas de Live cache removidas)", tenantId, removedEntries);
     }
@@ -820,9 +1095,13 @@ public class RiderFilterService {
      */
     public void clearAllTenantsCache() {
         roosterCache.clearAllTenantsCache();
-        liveCache.clear();
+        cityRidersCache.invalidateAll();
+        liveSearchIndexes.invalidateAll();
+        searchResults.synchronous().invalidateAll();
         cacheHits.set(0);
         cacheMisses.set(0);
+        allCitiesHits.set(0);
+        allCitiesMisses.set(0);
         logger.warn("ADVERTENCIA: Todos los cachés y métricas limpiados para TODOS los tenants");
     }
 
@@ -846,18 +1125,152 @@ public class RiderFilterService {
         logger.info("Servicio de búsqueda cerrado correctamente");
     }
 
-    // Clase interna para caché
-    private class CachedLiveData {
-        private final Object data;
-        private final long timestamp;
+    /**
+     * Clave de ordenación del último rider de una página (se serializa con CursorCodec)
+     */
+    record SortKey(boolean active, String name, int riderId) {
+
+        static SortKey of(RiderSummaryDto rider) {
+            return new SortKey(rider.isActive(), rider.getName(), riderIdOf(rider));
+        }
+
+        int compareTo(RiderSummaryDto rider) {
+            return compareSortKeys(active, name, riderId, rider.isActive(), rider.getName(), riderIdOf(rider));
+        }
+
+        String toRaw() {
+            return (active ? "1" : "0") + ":" + riderId + ":" + (name != null ? "+" + name : "-");
+        }
+
+        static SortKey fromRaw(String raw) {
+            try {
+                String[] parts = raw.split(":", 3);
+                if (parts.length != 3 || !(parts[0].equals("0") || parts[0].equals("1"))
+                        || parts[2].isEmpty() || !(parts[2].charAt(0) == '+' || parts[2].equals("-"))) {
+                    throw new IllegalArgumentException("Cursor inválido");
+                }
+                String name = parts[2].charAt(0) == '+' ? parts[2].substring(1) : null;
+                return new SortKey(parts[0].equals("1"), name, Integer.parseInt(parts[1]));
+            } catch (IllegalArgumentException e) {
+                // NumberFormatException también es IllegalArgumentException
+                throw new IllegalArgumentException("Cursor inválido", e);
+            }
+        }
+    }
+
+    /**
+     * Cursor opaco: SortKey cifrada con AES-GCM (IV aleatorio) y en Base64 URL.
+     * No se puede leer (el nombre del rider no acaba en URLs ni logs) ni alterar (la etiqueta GCM
+     * lo detecta). Con search.cursor.secret compartido, un cursor vale en cualquier instancia.
+     */
+    static final class CursorCodec {
+        private static final int IV_BYTES = 12;
+        private static final int TAG_BITS = 128;
+        private static final SecureRandom RANDOM = new SecureRandom();
+
+        private final SecretKeySpec key;
 
-        public CachedLiveData(Object data) {
-            this.data = data;
-            this.timestamp = System.currentTimeMillis();
+        CursorCodec(String secret) {
+            this(sha256(secret));
         }
 
-        public boolean isExpired() {
-            return System.currentTimeMillis() - timestamp > LIVE_CACHE_TTL;
+        private CursorCodec(byte[] keyMaterial) {
+            this.key = new SecretKeySpec(Arrays.copyOf(keyMaterial, 16), "AES");
         }
+
+        static CursorCodec random() {
+            byte[] keyMaterial = new byte[16];
+            RANDOM.nextBytes(keyMaterial);
+            return new CursorCodec(keyMaterial);
+        }
+
+        String encode(SortKey key) {
+            return seal(key.toRaw());
+        }
+
+        SortKey decode(String cursor) {
+            return SortKey.fromRaw(open(cursor));
+        }
+
+        String seal(String raw) {
+            try {
+                byte[] iv = new byte[IV_BYTES];
+                RANDOM.nextBytes(iv);
+                Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+                cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+                byte[] sealed = cipher.doFinal(raw.getBytes(StandardCharsets.UTF_8));
+
+                byte[] out = new byte[IV_BYTES + sealed.length];
+                System.arraycopy(iv, 0, out, 0, IV_BYTES);
+                System.arraycopy(sealed, 0, out, IV_BYTES, sealed.length);
+                return Base64.getUrlEncoder().withoutPadding().encodeToString(out);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("No se pudo generar el cursor", e);
+            }
+        }
+
+        private String open(String cursor) {
+            try {
+                byte[] in = Base64.getUrlDecoder().decode(cursor);
+                if (in.length <= IV_BYTES) {
+                    throw new IllegalArgumentException("Cursor inválido");
+                }
+                Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+                cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, in, 0, IV_BYTES));
+                return new String(cipher.doFinal(in, IV_BYTES, in.length - IV_BYTES), StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException | GeneralSecurityException e) {
+                // Base64 inválido, cursor alterado o de otra clave
+                throw new IllegalArgumentException("Cursor inválido", e);
+            }
+        }
+
+        private static byte[] sha256(String secret) {
+            try {
+                return MessageDigest.getInstance("SHA-256").digest(secret.getBytes(StandardCharsets.UTF_8));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * Lote de riders de la búsqueda en streaming
+     *
+     * @param source "live" (una ciudad), "rooster" o "cache" (resultado fusionado reciente)
+     * @param cityId ciudad del lote Live; null en el resto
+     */
+    public record RiderBatch(String source, Integer cityId, List<RiderSummaryDto> riders) {
+    }
+
+    /**
+     * Totales deduplicados al terminar la búsqueda en streaming
+     */
+    public record SearchTotals(long totalElements, int live, long roosterUnique, int failedSources,
+                               long durationMs, boolean fromCache) {
+    }
+
+    /**
+     * Filtros que afectan al resultado (sin page/size/cursor): su equals/hashCode es la huella de la búsqueda
+     */
+    private record FilterKey(String name, Integer riderId, String phone, String email, String status,
+                             Integer cityId, String contractType, Boolean hasActiveDelivery,
+                             Boolean isWorking, Integer companyId) {
+
+        static FilterKey of(RiderFilterDto filters) {
+            return new FilterKey(filters.getName(), filters.getRiderId(), filters.getPhone(), filters.getEmail(),
+                    filters.getStatus(), filters.getCityId(), filters.getContractType(),
+                    filters.getHasActiveDelivery(), filters.getIsWorking(), filters.getCompanyId());
+        }
+    }
+
+    private record SearchKey(Long tenantId, List<Long> cityScope, FilterKey filters,
+                             long roosterVersion, long liveVersion) {
+    }
+
+    private record SearchResult(List<RiderSummaryDto> riders, int liveCount, long roosterUnique, int failedSources) {
+    }
+
+    // Clave del caché de Live: siempre con tenant (sin datos cruzados entre tenants)
+    private record CityKey(Long tenantId, Integer cityId) {
     }
 }
\ No newline at end of file
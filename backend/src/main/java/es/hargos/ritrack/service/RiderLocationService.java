@@ -38,24 +38,23 @@ import java.util.stream.Collectors;
  * 2. Obtiene todos los tenants activos desde DB
  * 3. Para cada tenant, obtiene ubicaciones de sus ciudades
  * 4. Los datos se envían via WebSocket organizados por ciudad y tenant
+ * 5. Cada ciudad se publica en LiveCitySnapshotStore; las lecturas de ubicaciones
+ *    (getRiderLocationsByCity / getCurrentRiderLocationsByCity) sirven desde ahí
  */
 @Service
 public class RiderLocationService {
 
     private static final Logger logger = LoggerFactory.getLogger(RiderLocationService.class);
 
-    // Pool de threads fijo para actualización de ubicaciones por tenant (evita crear threads infinitos)
+    // Un virtual thread por tenant: la actualización es casi toda espera de I/O (Glovo, BD)
     private static final java.util.concurrent.ExecutorService TENANT_LOCATION_EXECUTOR =
-        java.util.concurrent.Executors.newFixedThreadPool(12, new java.util.concurrent.ThreadFactory() {
-            private final java.util.concurrent.atomic.AtomicInteger counter =
-                new java.util.concurrent.atomic.AtomicInteger(0);
-            @Override
-            public Thread newThread(Runnable r) {
-                Thread t = new Thread(r, "TenantLocation-" + counter.incrementAndGet());
-                t.setDaemon(true);
-                return t;
-            }
-        });
+        java.util.concurrent.Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("TenantLocation-", 0).factory());
+
+    // Máximo de tenants actualizándose a la vez (antes lo limitaba el tamaño del pool fijo)
+    private static final int MAX_CONCURRENT_TENANTS = 12;
+    private static final java.util.concurrent.Semaphore TENANT_LOCATION_PERMITS =
+        new java.util.concurrent.Semaphore(MAX_CONCURRENT_TENANTS);
 
     // ===============================================
     // CONFIGURACIÓN Y DEPENDENCIAS
@@ -67,6 +66,7 @@ public class RiderLocationService {
     private final TenantSettingsService tenantSettingsService;
     private final TenantOnboardingService onboardingService;
     private final AutoBlockService autoBlockService;
+    private final LiveCitySnapshotStore liveSnapshots;
 
     @Value("${debug.mock-data.enabled:false}")
     private boolean mockDataEnabled;
@@ -77,13 +77,15 @@ public class RiderLocationService {
                                  TenantRepository tenantRepository,
                                  TenantSettingsService tenantSettingsService,
                                  TenantOnboardingService onboardingService,
-                                 AutoBlockService autoBlockService) {
+                                 AutoBlockService autoBlockService,
+                                 LiveCitySnapshotStore liveSnapshots) {
         this.glovoClient = glovoClient;
         this.webSocketHandler = webSocketHandler;
         this.tenantRepository = tenantRepository;
         this.tenantSettingsService = tenantSettingsService;
         this.onboardingService = onboardingService;
         this.autoBlockService = autoBlockService;
+        this.liveSnapshots = liveSnapshots;
     }
 
     // ===============================================
@@ -127,10 +129,16 @@ public class RiderLocationService {
             logger.info("Actualizando ubicaciones para {} tenants configurados (de {} activos)",
                     readyTenants.size(), activeTenants.size());
 
-            // Procesar cada tenant configurado de forma asíncrona usando pool fijo
+            // Procesar cada tenant configurado de forma asíncrona (virtual threads, concurrencia limitada por semáforo)
             // IMPORTANTE: Configurar TenantContext para cada hilo async (multi-tenant)
             List<CompletableFuture<Void>> futures = readyTenants.stream()
                 .map(tenant -> CompletableFuture.runAsync(() -> {
+                    try {
+                        TENANT_LOCATION_PERMITS.acquire();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
                     // Configurar TenantContext para este hilo (necesario para Hibernate multi-tenant)
                     TenantContext.setCurrentContext(TenantContext.TenantInfo.builder()
                         .selectedTenantId(tenant.getId())
@@ -142,8 +150,9 @@ public class RiderLocationService {
                         updateTenantLocations(tenant.getId(), tenant.getName());
                     } finally {
                         TenantContext.clear();
+                        TENANT_LOCATION_PERMITS.release();
                     }
-                }, TENANT_LOCATION_EXECUTOR))  // Usar pool fijo en lugar de ForkJoinPool.commonPool()
+                }, TENANT_LOCATION_EXECUTOR))  // Virtual threads en lugar de ForkJoinPool.commonPool()
                 .collect(Collectors.toList());
 
             // Esperar a que todos completen
@@ -174,10 +183,13 @@ public class RiderLocationService {
                 return;
             }
 
+            // Descartar snapshots de ciudades que ya no están activas
+            liveSnapshots.retainCities(tenantId, activeCityIds);
+
             // Procesar cada ciudad configurada para este tenant
             for (Integer cityId : activeCityIds) {
                 try {
-                    List<RiderLocationDto> locations = getRiderLocationsByCity(tenantId, cityId);
+                    List<RiderLocationDto> locations = refreshCity(tenantId, cityId).locations();
                     if (!locations.isEmpty()) {
                         // Broadcast via WebSocket (MULTI-TENANT: Filtra por tenant automáticamente)
                         webSocketHandler.broadcastRiderLocationsByCity(tenantId, cityId, locations);
@@ -204,89 +216,30 @@ public class RiderLocationService {
     // MÉTODOS PÚBLICOS - UBICACIONES POR CIUDAD
     // ===============================================
 
-    // Límite de seguridad: 4 req/s (deja margen de 1 req/s del límite de 5 req/s de Glovo Live API)
-    private static final int SAFE_REQ_PER_SECOND = 4;
-    private static final long THROTTLE_DELAY_MS = 1000 / SAFE_REQ_PER_SECOND; // 250ms
+    private static final int PAGE_SIZE = 100;
 
     /**
      * Obtiene ubicaciones actuales de riders para una ciudad específica de un tenant.
      *
-     * THROTTLING: Respeta límite de 4 req/s (margen de seguridad del límite de 5 req/s de Glovo).
-     * Aplica delay de 250ms entre páginas para garantizar que no se exceda el rate limit.
+     * Sirve el snapshot publicado por el poller si no ha caducado; solo si no existe
+     * (tenant recién configurado, ciudad nueva) o está caducado se consulta Live API.
      *
      * @param tenantId Tenant ID
      * @param cityId ID de la ciudad
      * @return Lista de ubicaciones de riders con coordenadas válidas
      */
     public List<RiderLocationDto> getRiderLocationsByCity(Long tenantId, Integer cityId) {
-        logger.debug("Tenant {}, Ciudad {}: Obteniendo ubicaciones...", tenantId, cityId);
-
-        try {
-            List<RiderLocationDto> allLocations = new ArrayList<>();
-            int page = 0;
-            boolean hasMorePages = true;
-            final int PAGE_SIZE = 100;
-            final int MAX_PAGES = 50; // Límite de seguridad
-
-            while (hasMorePages && page < MAX_PAGES) {
-                long startTime = System.currentTimeMillis();
-
-                // Llamada a GlovoClient con tenantId
-                Object ridersData = glovoClient.getRidersByCity(
-                    tenantId, cityId, page, PAGE_SIZE, "employee_id"
-                );
-
-                logger.debug("Tenant {}, Ciudad {}, Página {}: ridersData = {}", tenantId, cityId, page, ridersData);
-                if (ridersData == null) {
-                    break;
-                }
-
-                if (ridersData instanceof Map) {
-                    @SuppressWarnings("unchecked")
-                    Map<String, Object> responseMap = (Map<String, Object>) ridersData;
-
-                    List<RiderLocationDto> pageLocations = extractLocationsFromRidersData(ridersData);
-                    allLocations.addAll(pageLocations);
-
-                    // Verificar si hay más páginas
-                    Boolean isLast = (Boolean) responseMap.get("is_last");
-                    hasMorePages = isLast != null && !isLast;
+        LiveCitySnapshotStore.LiveCitySnapshot snapshot = liveSnapshots.getFresh(tenantId, cityId);
+        if (snapshot != null) {
+            return snapshot.locations();
+        }
 
-                    // Si no hay riders en esta página, parar
-                    if (pageLocations.isEmpty()) {
-                        hasMorePages = false;
-                    }
-                    page++;
-
-                    // THROTTLING: Esperar entre páginas para respetar límite de 4 req/s
-                    if (hasMorePages && page < MAX_PAGES) {
-                        long elapsed = System.currentTimeMillis() - startTime;
-                        long sleepTime = THROTTLE_DELAY_MS - elapsed;
-
-                        if (sleepTime > 0) {
-                            try {
-                                logger.debug("Tenant {}, Ciudad {}: Throttling {}ms antes de página {}",
-                                    tenantId, cityId, sleepTime, page);
-                                Thread.sleep(sleepTime);
-                            } catch (InterruptedException e) {
-                                Thread.currentThread().interrupt();
-                                logger.warn("Tenant {}, Ciudad {}: Throttling interrumpido", tenantId, cityId);
-                                hasMorePages = false;
-                            }
-                        }
-                    }
-                } else {
-                    hasMorePages = false;
-                }
-            }
+        logger.debug("Tenant {}, Ciudad {}: Sin snapshot vigente, consultando Live API...", tenantId, cityId);
 
-            if (page >= MAX_PAGES) {
-                logger.warn("Tenant {}, Ciudad {}: Alcanzado límite máximo de páginas ({})",
-                    tenantId, cityId, MAX_PAGES);
-            }
+        try {
+            List<RiderLocationDto> allLocations = refreshCity(tenantId, cityId).locations();
 
-            logger.debug("Tenant {}, Ciudad {}: Total {} riders en {} paginas",
-                tenantId, cityId, allLocations.size(), page);
+            logger.debug("Tenant {}, Ciudad {}: Total {} riders", tenantId, cityId, allLocations.size());
 
             return allLocations;
 
@@ -297,6 +250,20 @@ public class RiderLocationService {
         }
     }
 
+    /**
+     * Descarga la ciudad desde Live API y publica el resultado en LiveCitySnapshotStore.
+     *
+     * PAGINACIÓN: GlovoClient lee total_pages / is_last de la primera página y pide el
+     * resto en paralelo, con un token bucket de 4 req/s por tenant (límite Glovo: 5 req/s).
+     */
+    private LiveCitySnapshotStore.LiveCitySnapshot refreshCity(Long tenantId, Integer cityId) throws Exception {
+        List<Map<String, Object>> riders = glovoClient.getAllRidersFromCity(
+            tenantId, cityId, PAGE_SIZE, "employee_id"
+        );
+
+        return liveSnapshots.publish(tenantId, cityId, riders, convertRidersToLocations(riders));
+    }
+
     /**
      * Obtiene ubicaciones actuales agrupadas por ciudad para un tenant.
      *
@@ -304,7 +271,7 @@ public class RiderLocationService {
      * @return Map donde la key es cityId y value es la lista de riders
      */
     public Map<Integer, List<RiderLocationDto>> getCurrentRiderLocationsByCity(Long tenantId) {
-        logger.info("Tenant {}: Obteniendo ubicaciones actuales agrupadas por ciudad", tenantId);
+        logger.debug("Tenant {}: Obteniendo ubicaciones actuales agrupadas por ciudad", tenantId);
 
         Map<Integer, List<RiderLocationDto>> locationsByCity = new HashMap<>();
 
@@ -327,7 +294,7 @@ public class RiderLocationService {
             .mapToInt(List::size)
             .sum();
 
-        logger.info("Tenant {}: {} riders en {} ciudades",
+        logger.debug("Tenant {}: {} riders en {} ciudades",
             tenantId, totalRiders, locationsByCity.size());
 
         return locationsByCity;
@@ -340,26 +307,13 @@ public class RiderLocationService {
     /**
      * Extrae ubicaciones desde los datos de riders de la API.
      *
-     * Procesa la respuesta de la API y convierte cada rider a RiderLocationDto,
+     * Convierte cada rider (filas "content" de todas las páginas) a RiderLocationDto,
      * filtrando aquellos sin coordenadas válidas.
      *
-     * @param ridersData Datos crudos de riders desde la API
+     * @param ridersList Datos crudos de riders desde la API
      * @return Lista de ubicaciones procesadas
      */
-    private List<RiderLocationDto> extractLocationsFromRidersData(Object ridersData) {
-        if (!(ridersData instanceof Map)) {
-            logger.info("❌ ridersData no es Map");
-            return new ArrayList<>();
-        }
-
-        @SuppressWarnings("unchecked")
-        Map<String, Object> responseMap = (Map<String, Object>) ridersData;
-
-        @SuppressWarnings("unchecked")
-        List<Map<String, Object>> ridersList = (List<Map<String, Object>>) responseMap.get("content");
-
-        logger.debug("Riders desde API (content): {}", ridersList != null ? ridersList.size() : "null");
-
+    private List<RiderLocationDto> convertRidersToLocations(List<Map<String, Object>> ridersList) {
         if (ridersList == null || ridersList.isEmpty()) {
             return new ArrayList<>();
         }
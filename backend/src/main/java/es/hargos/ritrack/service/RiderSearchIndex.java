@@ -0,0 +1,325 @@
+package es.hargos.ritrack.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Índice de búsqueda inmutable sobre una lista de riders (empleados Rooster o filas Live de una ciudad).
+ *
+ * Se construye una vez por snapshot y responde a los filtros de texto sin recorrer la lista:
+ * - nombre y email: trigramas sobre el texto normalizado (minúsculas, sin tildes) →
+ *   intersección de posting lists y verificación final con contains sobre el texto ya normalizado
+ * - teléfono: suffix array de los dígitos → rango por búsqueda binaria, sin verificación
+ * Consultas de menos de 3 caracteres recorren los textos ya normalizados (sin reservar memoria).
+ *
+ * El resultado son las posiciones (en la lista original) que cumplen los filtros de texto,
+ * con la misma semántica que el filtro lineal: un rider sin nombre/email no se descarta por
+ * ese filtro; un rider sin teléfono sí se descarta si se filtra por teléfono.
+ */
+public final class RiderSearchIndex {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    private final int size;
+    private final TextField names;
+    private final TextField emails;
+    private final String[] phones;
+    private final String[] phoneDigits;
+    private final long[] phoneSuffixes;
+
+    private <T> RiderSearchIndex(List<T> items,
+                                 Function<T, String> nameOf,
+                                 Function<T, String> emailOf,
+                                 Function<T, String> phoneOf) {
+        this.size = items.size();
+        String[] rawNames = new String[size];
+        String[] rawEmails = new String[size];
+        this.phones = new String[size];
+        this.phoneDigits = new String[size];
+
+        for (int i = 0; i < size; i++) {
+            T item = items.get(i);
+            rawNames[i] = nameOf.apply(item);
+            rawEmails[i] = emailOf.apply(item);
+            phones[i] = phoneOf.apply(item);
+            phoneDigits[i] = digits(phones[i]);
+        }
+
+        this.names = new TextField(rawNames);
+        this.emails = new TextField(rawEmails);
+        this.phoneSuffixes = buildSuffixArray(phoneDigits);
+    }
+
+    public static <T> RiderSearchIndex build(List<T> items,
+                                             Function<T, String> nameOf,
+                                             Function<T, String> emailOf,
+                                             Function<T, String> phoneOf) {
+        return new RiderSearchIndex(items, nameOf, emailOf, phoneOf);
+    }
+
+    /**
+     * Índice sobre filas crudas de Live API (campos name, email, phone_number)
+     */
+    public static RiderSearchIndex forLiveRows(List<Map<String, Object>> rows) {
+        return build(rows,
+                row -> asString(row.get("name")),
+                row -> asString(row.get("email")),
+                row -> asString(row.get("phone_number")));
+    }
+
+    public static boolean hasTextFilters(String name, String email, String phone) {
+        return name != null || email != null || phone != null;
+    }
+
+    /**
+     * Posiciones que cumplen todos los filtros de texto indicados (null = sin filtro)
+     */
+    public BitSet match(String name, String email, String phone) {
+        BitSet result = new BitSet(size);
+        result.set(0, size);
+
+        if (name != null) {
+            result.and(names.match(fold(name)));
+        }
+        if (email != null && !result.isEmpty()) {
+            result.and(emails.match(fold(email)));
+        }
+        if (phone != null && !result.isEmpty()) {
+            result.and(matchPhone(phone));
+        }
+        return result;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Minúsculas sin tildes ni diacríticos ("José" → "jose")
+     */
+    public static String fold(String value) {
+        if (value == null) {
+            return null;
+        }
+        String lower = value.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < lower.length(); i++) {
+            if (lower.charAt(i) > 0x7F) {
+                return DIACRITICS.matcher(Normalizer.normalize(lower, Normalizer.Form.NFD)).replaceAll("");
+            }
+        }
+        return lower;
+    }
+
+    private BitSet matchPhone(String query) {
+        BitSet result = new BitSet(size);
+        String queryDigits = digits(query);
+
+        if (queryDigits == null) {
+            // Sin dígitos en la consulta: comparación literal como el filtro original
+            for (int i = 0; i < size; i++) {
+                if (phones[i] != null && phones[i].contains(query)) {
+                    result.set(i);
+                }
+            }
+            return result;
+        }
+
+        int from = lowerBound(queryDigits);
+        for (int k = from; k < phoneSuffixes.length; k++) {
+            int position = (int) (phoneSuffixes[k] >>> 8);
+            int offset = (int) (phoneSuffixes[k] & 0xFF);
+            if (!phoneDigits[position].startsWith(queryDigits, offset)) {
+                break;
+            }
+            result.set(position);
+        }
+        return result;
+    }
+
+    private int lowerBound(String query) {
+        int low = 0;
+        int high = phoneSuffixes.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareSuffix(phoneSuffixes[mid], query) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int compareSuffix(long entry, String query) {
+        String digits = phoneDigits[(int) (entry >>> 8)];
+        int offset = (int) (entry & 0xFF);
+        int length = Math.min(digits.length() - offset, query.length());
+        for (int i = 0; i < length; i++) {
+            int diff = digits.charAt(offset + i) - query.charAt(i);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return (digits.length() - offset) - query.length();
+    }
+
+    private static long[] buildSuffixArray(String[] phoneDigits) {
+        List<Long> entries = new ArrayList<>();
+        for (int position = 0; position < phoneDigits.length; position++) {
+            String digits = phoneDigits[position];
+            if (digits == null) {
+                continue;
+            }
+            for (int offset = 0; offset < Math.min(digits.length(), 0xFF); offset++) {
+                entries.add(((long) position << 8) | offset);
+            }
+        }
+
+        Comparator<Long> bySuffix = (a, b) -> {
+            String left = phoneDigits[(int) (a >>> 8)];
+            String right = phoneDigits[(int) (b >>> 8)];
+            int leftOffset = (int) (a & 0xFF);
+            int rightOffset = (int) (b & 0xFF);
+            int length = Math.min(left.length() - leftOffset, right.length() - rightOffset);
+            for (int i = 0; i < length; i++) {
+                int diff = left.charAt(leftOffset + i) - right.charAt(rightOffset + i);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return (left.length() - leftOffset) - (right.length() - rightOffset);
+        };
+        entries.sort(bySuffix);
+
+        long[] suffixes = new long[entries.size()];
+        for (int i = 0; i < suffixes.length; i++) {
+            suffixes[i] = entries.get(i);
+        }
+        return suffixes;
+    }
+
+    private static String digits(String phone) {
+        if (phone == null) {
+            return null;
+        }
+        StringBuilder digits = new StringBuilder(phone.length());
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.isEmpty() ? null : digits.toString();
+    }
+
+    private static String asString(Object value) {
+        return value instanceof String s ? s : null;
+    }
+
+    private static long trigram(String text, int start) {
+        return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+    }
+
+    /**
+     * Campo de texto normalizado con posting lists por trigrama
+     */
+    private static final class TextField {
+
+        private final String[] folded;
+        private final BitSet missing;
+        private final Map<Long, int[]> postings;
+
+        TextField(String[] values) {
+            this.folded = new String[values.length];
+            this.missing = new BitSet(values.length);
+            Map<Long, IntList> building = new HashMap<>();
+
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] == null) {
+                    missing.set(i);
+                    continue;
+                }
+                String text = fold(values[i]);
+                folded[i] = text;
+                for (int start = 0; start + 3 <= text.length(); start++) {
+                    building.computeIfAbsent(trigram(text, start), key -> new IntList()).addIfLast(i);
+                }
+            }
+
+            this.postings = new HashMap<>((int) (building.size() / 0.75f) + 1);
+            building.forEach((key, list) -> postings.put(key, list.toArray()));
+        }
+
+        BitSet match(String query) {
+            // Sin valor no descarta (mismo comportamiento que el filtro lineal)
+            BitSet result = (BitSet) missing.clone();
+            if (query.isEmpty()) {
+                result.set(0, folded.length);
+                return result;
+            }
+
+            if (query.length() < 3) {
+                for (int i = 0; i < folded.length; i++) {
+                    if (folded[i] != null && folded[i].contains(query)) {
+                        result.set(i);
+                    }
+                }
+                return result;
+            }
+
+            List<int[]> lists = new ArrayList<>(query.length() - 2);
+            for (int start = 0; start + 3 <= query.length(); start++) {
+                int[] list = postings.get(trigram(query, start));
+                if (list == null) {
+                    return result;
+                }
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(list -> list.length));
+
+            int[] smallest = lists.get(0);
+            candidates:
+            for (int position : smallest) {
+                for (int k = 1; k < lists.size(); k++) {
+                    if (Arrays.binarySearch(lists.get(k), position) < 0) {
+                        continue candidates;
+                    }
+                }
+                if (folded[position].contains(query)) {
+                    result.set(position);
+                }
+            }
+            return result;
+        }
+    }
+
+    private static final class IntList {
+
+        private int[] values = new int[4];
+        private int count;
+
+        // Las posiciones llegan en orden: un trigrama repetido en el mismo texto se añade una vez
+        void addIfLast(int value) {
+            if (count > 0 && values[count - 1] == value) {
+                return;
+            }
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, count);
+        }
+    }
+}
@@ -1,60 +1,332 @@
-package es.hargos.ritrack.service
-        ;
+package es.hargos.ritrack.service;
 
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
 import es.hargos.ritrack.client.GlovoClient;
+import es.hargos.ritrack.dto.RoosterEmployeeDto;
+import es.hargos.ritrack.entity.TenantEntity;
+import es.hargos.ritrack.repository.TenantRepository;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * Servicio de caché SOLO para empleados de Rooster
- * Un único caché con TTL de 30 minutos
+ * Servicio de caché SOLO para empleados de Rooster (una entrada por tenant).
+ *
+ * Stale-while-revalidate:
+ * - Solo la primera carga de un tenant bloquea al llamador
+ * - Pasado el intervalo de refresco (30 min por defecto), el siguiente acceso devuelve
+ *   el snapshot actual y lanza la recarga en segundo plano; si la recarga falla se
+ *   sigue sirviendo el snapshot anterior
+ * - Tenants sin accesos durante el tiempo de inactividad se descartan
+ *
+ * Tamaño por peso (número de empleados), no por número de entradas: varios tenants
+ * conviven sin expulsarse entre sí.
+ *
+ * Cada carga publica un RoosterSnapshot inmutable con índices por id, email, teléfono
+ * y ciudad, de modo que búsquedas y validaciones no recorren la lista completa.
+ *
+ * Persistencia: cada carga correcta se guarda en disco (CacheSnapshotStore). Al arrancar
+ * se restaura el último snapshot de cada tenant activo y se revalida en segundo plano,
+ * así un reinicio no obliga a nadie a esperar la descarga completa de Rooster.
  */
 @Service
 public class RoosterCacheService {
 
-    @Value("${cache.rooster.employees.ttl-minutes:30}")
-    private long roosterTtlMinutes;
-
     private static final Logger logger = LoggerFactory.getLogger(RoosterCacheService.class);
+
+    private static final String SNAPSHOT_NAME = "rooster-employees";
+
     private final GlovoClient glovoClient;
+    private final CacheSnapshotStore snapshotStore;
+    private final TenantRepository tenantRepository;
+    private final long refreshMinutes;
+    private final LoadingCache<Long, RoosterSnapshot> employeesCache;
+    private final AtomicLong snapshotVersion = new AtomicLong();
+    private final ExecutorService refreshExecutor;
+
+    // Estadísticas por tenant
+    private final ConcurrentMap<Long, TenantCacheStats> statsByTenant = new ConcurrentHashMap<>();
 
-    public RoosterCacheService(GlovoClient glovoClient) {
+    public RoosterCacheService(GlovoClient glovoClient,
+                               CacheSnapshotStore snapshotStore,
+                               TenantRepository tenantRepository,
+                               @Value("${cache.rooster.employees.ttl-minutes:30}") long refreshMinutes,
+                               @Value("${cache.rooster.employees.max-weight:300000}") long maxEmployees,
+                               @Value("${cache.rooster.employees.idle-expire-hours:24}") long idleExpireHours) {
         this.glovoClient = glovoClient;
+        this.snapshotStore = snapshotStore;
+        this.tenantRepository = tenantRepository;
+        this.refreshMinutes = refreshMinutes;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.refreshExecutor = Executors.newFixedThreadPool(2, r -> {
+            Thread t = new Thread(r, "Rooster-Refresh-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        this.employeesCache = Caffeine.newBuilder()
+                .maximumWeight(maxEmployees)
+                .weigher((Long tenantId, RoosterSnapshot snapshot) -> Math.max(1, snapshot.size()))
+                .refreshAfterWrite(refreshMinutes, TimeUnit.MINUTES)
+                .expireAfterAccess(idleExpireHours, TimeUnit.HOURS)
+                .executor(refreshExecutor)
+                .recordStats()
+                .build(new EmployeesLoader());
+
+        logger.info("Caché Rooster configurado - refresco: {} min, máximo: {} empleados, inactividad: {} h",
+                refreshMinutes, maxEmployees, idleExpireHours);
+    }
+
+    /**
+     * Estadísticas de un tenant
+     */
+    private static final class TenantCacheStats {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder refreshes = new LongAdder();
+        private final LongAdder loadFailures = new LongAdder();
+        private volatile Instant lastLoadedAt;
+        private volatile long lastLoadMillis;
+        private volatile int employees;
+        private volatile Instant restoredFrom;
+    }
+
+    private TenantCacheStats stats(Long tenantId) {
+        return statsByTenant.computeIfAbsent(tenantId, id -> new TenantCacheStats());
+    }
+
+    /**
+     * Carga desde Rooster (primera carga y recargas en segundo plano)
+     */
+    private class EmployeesLoader implements CacheLoader<Long, RoosterSnapshot> {
+
+        @Override
+        public RoosterSnapshot load(Long tenantId) throws Exception {
+            TenantCacheStats stats = stats(tenantId);
+            long start = System.currentTimeMillis();
+            try {
+                List<RoosterEmployeeDto> employees = glovoClient.getEmployees(tenantId);
+                stats.lastLoadMillis = System.currentTimeMillis() - start;
+                stats.lastLoadedAt = Instant.now();
+                stats.employees = employees.size();
+                logger.info("Tenant {}: Cargados {} empleados de Rooster en {} ms",
+                        tenantId, employees.size(), stats.lastLoadMillis);
+                persistSnapshot(tenantId, employees);
+                return new RoosterSnapshot(snapshotVersion.incrementAndGet(), stats.lastLoadedAt, employees);
+            } catch (Exception e) {
+                stats.loadFailures.increment();
+                throw e;
+            }
+        }
+
+        @Override
+        public RoosterSnapshot reload(Long tenantId, RoosterSnapshot oldValue) throws Exception {
+            stats(tenantId).refreshes.increment();
+            logger.debug("Tenant {}: Refrescando empleados de Rooster en segundo plano", tenantId);
+            return load(tenantId);
+        }
+    }
+
+    /**
+     * Guarda en disco la última carga buena, fuera del hilo que la pidió
+     */
+    private void persistSnapshot(Long tenantId, List<RoosterEmployeeDto> employees) {
+        if (!snapshotStore.isEnabled()) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> snapshotStore.save(SNAPSHOT_NAME, tenantId, employees));
+        } catch (RejectedExecutionException e) {
+            logger.debug("Tenant {}: Snapshot Rooster no guardado (executor cerrado)", tenantId);
+        }
     }
 
     /**
-     * Obtiene TODOS los empleados con caché de 30 minutos por tenant
-     * Esta es la ÚNICA fuente de datos de Rooster
+     * Restaura al arrancar el snapshot en disco de cada tenant activo y lanza su
+     * revalidación en segundo plano (el executor de refresco limita la concurrencia a 2).
      */
-    @Cacheable(value = "rooster-employees", key = "#tenantId")
-    public List<?> getAllEmployees(Long tenantId) throws Exception {
+    @EventListener(ApplicationReadyEvent.class)
+    public void restoreSnapshots() {
+        if (!snapshotStore.isEnabled()) {
+            return;
+        }
+
+        int restored = 0;
+        for (TenantEntity tenant : tenantRepository.findByIsActive(true)) {
+            if (restoreSnapshot(tenant.getId())) {
+                restored++;
+            }
+        }
+
+        if (restored > 0) {
+            logger.info("Caché Rooster: {} tenants restaurados desde disco, revalidando en segundo plano", restored);
+        }
+    }
+
+    /**
+     * Carga el snapshot en disco de un tenant si aún no está en caché.
+     *
+     * @return true si se restauró
+     */
+    public boolean restoreSnapshot(Long tenantId) {
+        if (employeesCache.getIfPresent(tenantId) != null) {
+            return false;
+        }
+
+        Optional<CacheSnapshotStore.StoredSnapshot<List<RoosterEmployeeDto>>> stored =
+                snapshotStore.load(SNAPSHOT_NAME, tenantId, snapshotStore.listType(RoosterEmployeeDto.class));
+        if (stored.isEmpty() || stored.get().data() == null) {
+            return false;
+        }
+
+        List<RoosterEmployeeDto> employees = stored.get().data();
+        TenantCacheStats stats = stats(tenantId);
+        stats.lastLoadedAt = stored.get().savedAt();
+        stats.employees = employees.size();
+        stats.restoredFrom = stored.get().savedAt();
+
+        employeesCache.asMap().putIfAbsent(tenantId,
+                new RoosterSnapshot(snapshotVersion.incrementAndGet(), stored.get().savedAt(), employees));
+        employeesCache.refresh(tenantId);
+
+        logger.info("Tenant {}: {} empleados restaurados desde snapshot en disco ({} min de antigüedad)",
+                tenantId, employees.size(), stored.get().age().toMinutes());
+        return true;
+    }
+
+    /**
+     * Obtiene TODOS los empleados del tenant.
+     * Esta es la ÚNICA fuente de datos de Rooster. Solo bloquea en la primera carga.
+     */
+    public List<RoosterEmployeeDto> getAllEmployees(Long tenantId) throws Exception {
+        return getSnapshot(tenantId).getEmployees();
+    }
+
+    /**
+     * Snapshot indexado de empleados del tenant. Solo bloquea en la primera carga.
+     */
+    public RoosterSnapshot getSnapshot(Long tenantId) throws Exception {
+        TenantCacheStats stats = stats(tenantId);
+
+        RoosterSnapshot snapshot = employeesCache.getIfPresent(tenantId);
+        if (snapshot != null) {
+            stats.hits.increment();
+            return snapshot;
+        }
+
+        stats.misses.increment();
         logger.info("Tenant {}: CACHE MISS - Cargando todos los empleados de Rooster API", tenantId);
-        List<?> employees = glovoClient.getEmployees(tenantId);
-        logger.info("Tenant {}: Cargados {} empleados en caché (TTL: {} min)", tenantId, employees.size(), roosterTtlMinutes);
-        return employees;
+        try {
+            return employeesCache.get(tenantId);
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof Exception ex) {
+                throw ex;
+            }
+            throw e;
+        }
     }
 
     /**
-     * Limpia el caché de un tenant específico
-     * MULTI-TENANT: Solo invalida el cache de un tenant, no de todos
+     * Snapshot ya cargado, sin disparar la carga (null si el tenant no está en caché)
+     */
+    public RoosterSnapshot getSnapshotIfLoaded(Long tenantId) {
+        return employeesCache.getIfPresent(tenantId);
+    }
+
+    /**
+     * Añade un empleado recién creado al snapshot actual, sin esperar al refresco,
+     * para que las validaciones de unicidad y la numeración lo vean al instante.
+     */
+    public void recordCreatedEmployee(Long tenantId, RoosterEmployeeDto employee) {
+        if (employee == null || employee.id() == null) {
+            return;
+        }
+        employeesCache.asMap().computeIfPresent(tenantId,
+                (id, snapshot) -> snapshot.withEmployee(snapshotVersion.incrementAndGet(), employee));
+    }
+
+    /**
+     * Marca los datos de un tenant como desactualizados (tras crear/editar riders).
+     * MULTI-TENANT: Solo afecta a un tenant. Se recarga en segundo plano; mientras
+     * tanto se sigue sirviendo el snapshot actual.
      */
-    @CacheEvict(value = "rooster-employees", key = "#tenantId")
     public void clearCache(Long tenantId) {
-        logger.info("Tenant {}: Caché de empleados limpiado", tenantId);
+        if (employeesCache.getIfPresent(tenantId) != null) {
+            employeesCache.refresh(tenantId);
+            logger.info("Tenant {}: Caché de empleados en recarga", tenantId);
+        }
     }
 
     /**
      * Limpia el caché de TODOS los tenants (usar con precaución)
-     * Solo para mantenimiento o emergencias
+     * Solo para mantenimiento o emergencias: la siguiente lectura de cada tenant bloquea
      */
-    @CacheEvict(value = "rooster-employees", allEntries = true)
     public void clearAllTenantsCache() {
+        employeesCache.invalidateAll();
         logger.warn("ADVERTENCIA: Caché de empleados limpiado para TODOS los tenants");
     }
-}
\ No newline at end of file
+
+    /**
+     * Estadísticas del caché por tenant (para monitoreo)
+     */
+    public Map<String, Object> getStats() {
+        Map<Long, Map<String, Object>> tenants = new LinkedHashMap<>();
+        statsByTenant.forEach((tenantId, stats) -> {
+            long hits = stats.hits.sum();
+            long misses = stats.misses.sum();
+
+            Map<String, Object> tenantStats = new LinkedHashMap<>();
+            RoosterSnapshot snapshot = employeesCache.asMap().get(tenantId);
+            tenantStats.put("cached", snapshot != null);
+            tenantStats.put("snapshotVersion", snapshot != null ? snapshot.getVersion() : null);
+            tenantStats.put("employees", stats.employees);
+            tenantStats.put("hits", hits);
+            tenantStats.put("misses", misses);
+            tenantStats.put("hitRate", hits + misses > 0
+                    ? String.format("%.2f%%", hits * 100.0 / (hits + misses))
+                    : "0.00%");
+            tenantStats.put("refreshes", stats.refreshes.sum());
+            tenantStats.put("loadFailures", stats.loadFailures.sum());
+            tenantStats.put("lastLoadedAt", stats.lastLoadedAt);
+            tenantStats.put("lastLoadMillis", stats.lastLoadMillis);
+            tenantStats.put("restoredFrom", stats.restoredFrom);
+            tenants.put(tenantId, tenantStats);
+        });
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("refreshMinutes", refreshMinutes);
+        result.put("tenantsCached", employeesCache.estimatedSize());
+        result.put("evictions", employeesCache.stats().evictionCount());
+        result.put("tenants", tenants);
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+}
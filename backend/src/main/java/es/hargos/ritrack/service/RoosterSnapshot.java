@@ -0,0 +1,173 @@
+package es.hargos.ritrack.service;
+
+import es.hargos.ritrack.dto.RoosterEmployeeDto;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Snapshot inmutable de los empleados Rooster de un tenant, con índices hash.
+ *
+ * Se construye una vez por carga/refresco en RoosterCacheService y se comparte entre
+ * búsquedas sin copias ni bloqueos. Índices:
+ * - id de empleado
+ * - email normalizado (trim + minúsculas)
+ * - teléfono normalizado (solo dígitos, conservando el '+' inicial)
+ * - ciudad operativa → empleados
+ * El índice de búsqueda por texto (RiderSearchIndex) se construye la primera vez que se usa.
+ */
+public final class RoosterSnapshot {
+
+    private final long version;
+    private final Instant loadedAt;
+    private final List<RoosterEmployeeDto> employees;
+    private final Map<Integer, RoosterEmployeeDto> byId;
+    private final Map<String, RoosterEmployeeDto> byEmail;
+    private final Map<String, RoosterEmployeeDto> byPhone;
+    private final Map<Integer, List<RoosterEmployeeDto>> byCity;
+    private volatile RiderSearchIndex searchIndex;
+
+    public RoosterSnapshot(long version, Instant loadedAt, List<RoosterEmployeeDto> employees) {
+        this.version = version;
+        this.loadedAt = loadedAt;
+        this.employees = Collections.unmodifiableList(new ArrayList<>(employees));
+
+        int capacity = (int) (employees.size() / 0.75f) + 1;
+        Map<Integer, RoosterEmployeeDto> ids = new HashMap<>(capacity);
+        Map<String, RoosterEmployeeDto> emails = new HashMap<>(capacity);
+        Map<String, RoosterEmployeeDto> phones = new HashMap<>(capacity);
+        Map<Integer, List<RoosterEmployeeDto>> cities = new HashMap<>();
+
+        for (RoosterEmployeeDto employee : employees) {
+            if (employee.id() != null) {
+                ids.put(employee.id(), employee);
+            }
+            String email = normalizeEmail(employee.email());
+            if (email != null) {
+                emails.putIfAbsent(email, employee);
+            }
+            String phone = normalizePhone(employee.phoneNumber());
+            if (phone != null) {
+                phones.putIfAbsent(phone, employee);
+            }
+            Integer cityId = employee.operationalCityId();
+            if (cityId != null) {
+                cities.computeIfAbsent(cityId, id -> new ArrayList<>()).add(employee);
+            }
+        }
+
+        cities.replaceAll((cityId, list) -> Collections.unmodifiableList(list));
+
+        this.byId = Collections.unmodifiableMap(ids);
+        this.byEmail = Collections.unmodifiableMap(emails);
+        this.byPhone = Collections.unmodifiableMap(phones);
+        this.byCity = Collections.unmodifiableMap(cities);
+    }
+
+    /**
+     * Nuevo snapshot con un empleado añadido o reemplazado (p.ej. recién creado)
+     */
+    public RoosterSnapshot withEmployee(long newVersion, RoosterEmployeeDto employee) {
+        List<RoosterEmployeeDto> updated = new ArrayList<>(employees.size() + 1);
+        for (RoosterEmployeeDto existing : employees) {
+            if (employee.id() == null || !employee.id().equals(existing.id())) {
+                updated.add(existing);
+            }
+        }
+        updated.add(employee);
+        return new RoosterSnapshot(newVersion, loadedAt, updated);
+    }
+
+    public static String normalizeEmail(String email) {
+        if (email == null) {
+            return null;
+        }
+        String normalized = email.trim().toLowerCase(Locale.ROOT);
+        return normalized.isEmpty() ? null : normalized;
+    }
+
+    public static String normalizePhone(String phone) {
+        if (phone == null) {
+            return null;
+        }
+        String trimmed = phone.trim();
+        StringBuilder normalized = new StringBuilder(trimmed.length());
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            if (Character.isDigit(c) || (c == '+' && normalized.isEmpty())) {
+                normalized.append(c);
+            }
+        }
+        return normalized.isEmpty() ? null : normalized.toString();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getLoadedAt() {
+        return loadedAt;
+    }
+
+    public List<RoosterEmployeeDto> getEmployees() {
+        return employees;
+    }
+
+    public int size() {
+        return employees.size();
+    }
+
+    public RoosterEmployeeDto findById(Integer employeeId) {
+        return employeeId != null ? byId.get(employeeId) : null;
+    }
+
+    public RoosterEmployeeDto findByEmail(String email) {
+        String normalized = normalizeEmail(email);
+        return normalized != null ? byEmail.get(normalized) : null;
+    }
+
+    public RoosterEmployeeDto findByPhone(String phone) {
+        String normalized = normalizePhone(phone);
+        return normalized != null ? byPhone.get(normalized) : null;
+    }
+
+    public List<RoosterEmployeeDto> getEmployeesInCity(Integer cityId) {
+        return byCity.getOrDefault(cityId, List.of());
+    }
+
+    /**
+     * Índice de nombre/email/teléfono sobre getEmployees() (posiciones de esa lista)
+     */
+    public RiderSearchIndex getSearchIndex() {
+        RiderSearchIndex index = searchIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = searchIndex;
+                if (index == null) {
+                    index = RiderSearchIndex.build(employees,
+                            RoosterEmployeeDto::name, RoosterEmployeeDto::email, RoosterEmployeeDto::phoneNumber);
+                    searchIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Empleados de varias ciudades (filtro de ciudades del usuario)
+     */
+    public List<RoosterEmployeeDto> getEmployeesInCities(Collection<Integer> cityIds) {
+        List<RoosterEmployeeDto> result = new ArrayList<>();
+        for (Integer cityId : new LinkedHashSet<>(cityIds)) {
+            result.addAll(getEmployeesInCity(cityId));
+        }
+        return result;
+    }
+}
@@ -8,6 +8,7 @@ import com.nimbusds.jose.crypto.RSASSASigner;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
 import es.hargos.ritrack.client.GlovoClient;
+import es.hargos.ritrack.client.GlovoTenantGuard;
 import es.hargos.ritrack.dto.OnboardingDto;
 import es.hargos.ritrack.exception.MultipleContractsException;
 import es.hargos.ritrack.dto.OnboardingStatusDto;
@@ -29,9 +30,11 @@ import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.KeyFactory;
+import java.security.MessageDigest;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.time.Instant;
@@ -68,6 +71,11 @@ public class TenantOnboardingService {
     private final TenantSchemaService schemaService;
     private final GlovoClient glovoClient;
     private final RiderLimitService riderLimitService;
+    private final GlovoCredentialsRegistry credentialsRegistry;
+    private final TenantTokenService tokenService;
+    private final GlovoTenantGuard tenantGuard;
+    private final MasterDataCacheService masterDataCache;
+    private final TenantSettingsService tenantSettingsService;
     private final RestTemplate restTemplate;
 
     @Autowired
@@ -77,7 +85,12 @@ public class TenantOnboardingService {
                                      FileStorageService fileStorageService,
                                      TenantSchemaService schemaService,
                                      GlovoClient glovoClient,
-                                     RiderLimitService riderLimitService) {
+                                     RiderLimitService riderLimitService,
+                                     GlovoCredentialsRegistry credentialsRegistry,
+                                     TenantTokenService tokenService,
+                                     GlovoTenantGuard tenantGuard,
+                                     MasterDataCacheService masterDataCache,
+                                     TenantSettingsService tenantSettingsService) {
         this.tenantRepository = tenantRepository;
         this.credentialsRepository = credentialsRepository;
         this.settingsRepository = settingsRepository;
@@ -85,6 +98,11 @@ public class TenantOnboardingService {
         this.schemaService = schemaService;
         this.glovoClient = glovoClient;
         this.riderLimitService = riderLimitService;
+        this.credentialsRegistry = credentialsRegistry;
+        this.tokenService = tokenService;
+        this.tenantGuard = tenantGuard;
+        this.masterDataCache = masterDataCache;
+        this.tenantSettingsService = tenantSettingsService;
         this.restTemplate = new RestTemplate();
     }
 
@@ -207,6 +225,7 @@ public class TenantOnboardingService {
             // 5. Insertar credenciales en BD
             GlovoCredentialsEntity credentials = createGlovoCredentials(tenant, onboardingData, pemPath);
             credentialsRepository.save(credentials);
+            credentialsRegistry.invalidate(tenantId);
             logger.info("Tenant {}: Credenciales guardadas en BD", tenantId);
 
             // 6. Crear schema PostgreSQL con todas las tablas
@@ -216,6 +235,7 @@ public class TenantOnboardingService {
 
             // 7. Insertar configuraciones en tenant_settings
             insertTenantSettings(tenant, onboardingData);
+            tenantSettingsService.reload(tenantId);
             logger.info("Tenant {}: Configuraciones guardadas", tenantId);
 
             // 8. Activar tenant
@@ -394,10 +414,18 @@ public class TenantOnboardingService {
                 updateOrCreateSetting(tenant, "default_vehicle_type_ids", vehicleIds, "JSON", "Tipos de vehículo por defecto");
             }
 
+            tenantSettingsService.reload(tenantId);
+
             // 6. Si cambiaron credenciales, invalidar token cache
             if (credentialsChanged) {
-                logger.info("Tenant {}: Invalidando cache de tokens...", tenantId);
-                // El token service se encargará de generar nuevo token en la próxima llamada
+                logger.info("Tenant {}: Invalidando cache de credenciales y tokens...", tenantId);
+                // El token service generará un nuevo token en la próxima llamada
+                credentialsRegistry.invalidate(tenantId);
+                tokenService.invalidateToken(tenantId);
+                // Credenciales nuevas: no seguir rechazando llamadas por fallos de las anteriores
+                tenantGuard.reset(tenantId);
+                // Otra cuenta Glovo puede tener otros contratos / tipos de vehículo / ciudades
+                masterDataCache.invalidate(tenantId);
             }
 
             logger.info("Tenant {}: Configuración actualizada exitosamente", tenantId);
@@ -470,6 +498,12 @@ public class TenantOnboardingService {
             List<Map<String, Object>> cities = getCitiesFromGlovoApi(accessToken, getRoosterBaseUrl(onboardingData));
             // 4. Obtener lista de contratos para extraer company_id y contract_id
             List<Map<String, Object>> contracts = getContractsFromGlovoApi(accessToken, getRoosterBaseUrl(onboardingData));
+            // Recordar ambos resultados para el paso de provisión del wizard (solo con esta misma clave)
+            String fingerprint = credentialsFingerprint(onboardingData, tempPemPath);
+            masterDataCache.putOnboardingLookup(getRoosterBaseUrl(onboardingData), fingerprint,
+                    MasterDataCacheService.MasterDataType.CITIES, cities);
+            masterDataCache.putOnboardingLookup(getRoosterBaseUrl(onboardingData), fingerprint,
+                    MasterDataCacheService.MasterDataType.CONTRACTS, contracts);
             // 5. Extraer company_id del primer contrato (todos tienen el mismo company_id)
             Integer companyId = null;
             Integer suggestedContractId = null;
@@ -527,22 +561,32 @@ public class TenantOnboardingService {
      */
     private void autoDetectCompanyAndContract(OnboardingDto onboardingData, String pemPath) throws Exception {
         try {
-            // 1. Generar JWT client assertion
-            String clientAssertion = generateJwtClientAssertion(
-                    onboardingData.getClientId(),
-                    onboardingData.getKeyId(),
-                    getAudienceUrl(onboardingData),
-                    pemPath
-            );
+            // 1-3. Contratos: reutilizar los del paso de validación del wizard si son recientes y se
+            // obtuvieron con exactamente estas credenciales (clientId, keyId y .pem)
+            String fingerprint = credentialsFingerprint(onboardingData, pemPath);
+            List<Map<String, Object>> contracts = masterDataCache.getOnboardingLookup(
+                    getRoosterBaseUrl(onboardingData), fingerprint,
+                    MasterDataCacheService.MasterDataType.CONTRACTS);
+
+            if (contracts != null) {
+                logger.debug("Contratos reutilizados del paso de validación ({})", contracts.size());
+            } else {
+                String clientAssertion = generateJwtClientAssertion(
+                        onboardingData.getClientId(),
+                        onboardingData.getKeyId(),
+                        getAudienceUrl(onboardingData),
+                        pemPath
+                );
 
-            // 2. Obtener access token OAuth2
-            String accessToken = requestAccessToken(
-                    clientAssertion,
-                    getTokenUrl(onboardingData)
-            );
+                String accessToken = requestAccessToken(
+                        clientAssertion,
+                        getTokenUrl(onboardingData)
+                );
 
-            // 3. Obtener contratos desde API
-            List<Map<String, Object>> contracts = getContractsFromGlovoApi(accessToken, getRoosterBaseUrl(onboardingData));
+                contracts = getContractsFromGlovoApi(accessToken, getRoosterBaseUrl(onboardingData));
+                masterDataCache.putOnboardingLookup(getRoosterBaseUrl(onboardingData), fingerprint,
+                        MasterDataCacheService.MasterDataType.CONTRACTS, contracts);
+            }
 
             if (contracts.isEmpty()) {
                 throw new IllegalArgumentException("No se encontraron contratos disponibles para este usuario");
@@ -648,6 +692,18 @@ public class TenantOnboardingService {
         }
     }
 
+    /**
+     * Huella SHA-256 de las credenciales (clientId, keyId y contenido del .pem) para las
+     * consultas del wizard: nunca se guarda ni se registra la clave.
+     */
+    private String credentialsFingerprint(OnboardingDto onboardingData, String pemPath) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update((onboardingData.getClientId() + "|" + onboardingData.getKeyId() + "|")
+                .getBytes(StandardCharsets.UTF_8));
+        digest.update(Files.readAllBytes(Path.of(pemPath)));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
     /**
      * Genera un JWT client assertion para OAuth2.
      */
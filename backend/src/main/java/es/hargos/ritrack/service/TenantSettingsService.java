@@ -1,5 +1,7 @@
 package es.hargos.ritrack.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import es.hargos.ritrack.dto.UpdateSettingsRequest;
 import es.hargos.ritrack.entity.GlovoCredentialsEntity;
 import es.hargos.ritrack.entity.TenantEntity;
@@ -9,19 +11,27 @@ import es.hargos.ritrack.repository.TenantRepository;
 import es.hargos.ritrack.repository.TenantSettingsRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
-import java.util.Arrays;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
  * Servicio para leer y actualizar configuraciones específicas de cada tenant desde la base de datos.
  * Reemplaza configuraciones hardcodeadas en application.properties.
+ *
+ * Lectura: todos los settings de un tenant se cargan con una sola consulta en un
+ * TenantSettingsSnapshot inmutable y ya parseado, cacheado por tenant. Cualquier escritura
+ * descarta el snapshot tras el commit; la siguiente lectura lo reconstruye desde el estado
+ * confirmado en base de datos.
  */
 @Service
 public class TenantSettingsService {
@@ -31,81 +41,63 @@ public class TenantSettingsService {
     private final TenantRepository tenantRepository;
     private final GlovoCredentialsRepository credentialsRepository;
 
+    private final Cache<Long, TenantSettingsSnapshot> snapshots;
+    private final AtomicLong versionSequence = new AtomicLong();
+
     public TenantSettingsService(TenantSettingsRepository settingsRepository,
                                  TenantRepository tenantRepository,
-                                 GlovoCredentialsRepository credentialsRepository) {
+                                 GlovoCredentialsRepository credentialsRepository,
+                                 @Value("${cache.tenant-settings.max-tenants:1000}") long maxTenants,
+                                 @Value("${cache.tenant-settings.ttl-minutes:60}") long ttlMinutes) {
         this.settingsRepository = settingsRepository;
         this.tenantRepository = tenantRepository;
         this.credentialsRepository = credentialsRepository;
+        this.snapshots = Caffeine.newBuilder()
+                .maximumSize(maxTenants)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .build();
+    }
+
+    /**
+     * Snapshot de settings del tenant (cargado con una consulta si no está cacheado)
+     */
+    public TenantSettingsSnapshot getSnapshot(Long tenantId) {
+        return snapshots.get(tenantId, this::loadSnapshot);
     }
 
     /**
      * Obtiene una configuración de tenant (cacheada)
      */
-    @Cacheable(value = "tenant-settings", key = "#tenantId + '-' + #settingKey")
     public String getSetting(Long tenantId, String settingKey) {
-        return settingsRepository.findByTenantIdAndSettingKey(tenantId, settingKey)
-                .map(TenantSettingsEntity::getSettingValue)
-                .orElse(null);
+        return getSnapshot(tenantId).get(settingKey);
     }
 
     /**
      * Obtiene una configuración con valor por defecto
      */
     public String getSetting(Long tenantId, String settingKey, String defaultValue) {
-        String value = getSetting(tenantId, settingKey);
-        return value != null ? value : defaultValue;
+        return getSnapshot(tenantId).get(settingKey, defaultValue);
     }
 
     /**
      * Obtiene una configuración booleana
      */
     public Boolean getBooleanSetting(Long tenantId, String settingKey, Boolean defaultValue) {
-        String value = getSetting(tenantId, settingKey);
-        if (value == null) {
-            return defaultValue;
-        }
-        return Boolean.parseBoolean(value);
+        return getSnapshot(tenantId).getBoolean(settingKey, defaultValue);
     }
 
     /**
      * Obtiene una configuración BigDecimal
      */
     public BigDecimal getBigDecimalSetting(Long tenantId, String settingKey, BigDecimal defaultValue) {
-        String value = getSetting(tenantId, settingKey);
-        if (value == null) {
-            return defaultValue;
-        }
-        try {
-            return new BigDecimal(value);
-        } catch (NumberFormatException e) {
-            logger.error("Tenant {}: Error parsing BigDecimal setting '{}': {}",
-                    tenantId, settingKey, e.getMessage());
-            return defaultValue;
-        }
+        return getSnapshot(tenantId).getBigDecimal(settingKey, defaultValue);
     }
 
     /**
      * Obtiene lista de IDs de ciudades activas para un tenant
      */
     public List<Integer> getActiveCityIds(Long tenantId) {
-        String cityIdsStr = getSetting(tenantId, "active_city_ids");
-
-        if (cityIdsStr == null || cityIdsStr.trim().isEmpty()) {
-            logger.warn("Tenant {}: No active_city_ids configured, using empty list", tenantId);
-            return List.of();
-        }
-
-        try {
-            return Arrays.stream(cityIdsStr.split(","))
-                    .map(String::trim)
-                    .map(Integer::parseInt)
-                    .collect(Collectors.toList());
-        } catch (Exception e) {
-            logger.error("Tenant {}: Error parsing active_city_ids '{}': {}",
-                    tenantId, cityIdsStr, e.getMessage());
-            return List.of();
-        }
+        return getSnapshot(tenantId).getActiveCityIds();
     }
 
     /**
@@ -133,18 +125,7 @@ public class TenantSettingsService {
      * Obtiene lista de vehicle type IDs por defecto
      */
     public List<Integer> getDefaultVehicleTypeIds(Long tenantId) {
-        String vehicleIdsStr = getSetting(tenantId, "default_vehicle_type_ids", "5,1,3,2");
-
-        try {
-            return Arrays.stream(vehicleIdsStr.split(","))
-                    .map(String::trim)
-                    .map(Integer::parseInt)
-                    .collect(Collectors.toList());
-        } catch (Exception e) {
-            logger.error("Tenant {}: Error parsing default_vehicle_type_ids: {}",
-                    tenantId, e.getMessage());
-            return List.of(5, 1, 3, 2); // Fallback
-        }
+        return getSnapshot(tenantId).getDefaultVehicleTypeIds();
     }
 
     /**
@@ -191,12 +172,12 @@ public class TenantSettingsService {
     /**
      * Actualiza configuraciones de tenant parcialmente.
      * Solo actualiza los campos que no son null en el request.
+     * Al confirmar la transacción se publica el snapshot nuevo del tenant.
      *
      * @param tenantId ID del tenant
      * @param request DTO con campos opcionales a actualizar
      */
     @Transactional
-    @CacheEvict(value = "tenant-settings", allEntries = true)
     public void updateSettings(Long tenantId, UpdateSettingsRequest request) {
         // Verificar que el tenant existe
         TenantEntity tenant = tenantRepository.findById(tenantId)
@@ -261,6 +242,8 @@ public class TenantSettingsService {
             updatedCount++;
         }
 
+        reload(tenantId);
+
         logger.info("Tenant {}: Actualizados {} settings", tenantId, updatedCount);
     }
 
@@ -294,11 +277,55 @@ public class TenantSettingsService {
      * @param value Valor del setting
      */
     @Transactional
-    @CacheEvict(value = "tenant-settings", key = "#tenantId + '-' + #key")
     public void saveSetting(Long tenantId, String key, String value) {
         TenantEntity tenant = tenantRepository.findById(tenantId)
                 .orElseThrow(() -> new IllegalArgumentException("Tenant no encontrado: " + tenantId));
 
         updateSetting(tenant, key, value);
+        reload(tenantId);
+    }
+
+    // ========================================
+    // SNAPSHOT
+    // ========================================
+
+    /**
+     * Descarta el snapshot cacheado del tenant para que se relea en la siguiente lectura.
+     *
+     * Llamar después de escribir en tenant_settings (también desde fuera de este servicio).
+     * Dentro de una transacción se descarta solo tras el commit: un snapshot construido dentro
+     * de la transacción no vería las escrituras aún no confirmadas de otra actualización
+     * concurrente del mismo tenant, así que el único snapshot que se publica es el que carga
+     * getSnapshot() desde el estado confirmado. Si hay rollback se conserva el anterior.
+     */
+    public void reload(Long tenantId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    discard(tenantId);
+                }
+            });
+        } else {
+            discard(tenantId);
+        }
+    }
+
+    /**
+     * Olvida el snapshot del tenant (baja de tenant)
+     */
+    public void invalidate(Long tenantId) {
+        snapshots.invalidate(tenantId);
+    }
+
+    private void discard(Long tenantId) {
+        // invalidate espera a una carga en curso del mismo tenant: nunca queda un snapshot anterior al commit
+        snapshots.invalidate(tenantId);
+        logger.debug("Tenant {}: Snapshot de settings descartado, se recargará en la siguiente lectura", tenantId);
+    }
+
+    private TenantSettingsSnapshot loadSnapshot(Long tenantId) {
+        List<TenantSettingsEntity> settings = settingsRepository.findByTenantId(tenantId);
+        return new TenantSettingsSnapshot(tenantId, versionSequence.incrementAndGet(), Instant.now(), settings);
     }
 }
@@ -0,0 +1,175 @@
+package es.hargos.ritrack.service;
+
+import es.hargos.ritrack.entity.TenantSettingsEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Snapshot inmutable de todos los tenant_settings de un tenant, ya parseados.
+ *
+ * Se construye con una sola consulta (findByTenantId) en TenantSettingsService y se
+ * sustituye entero cuando cambia algún setting; los lectores nunca ven un estado a medias.
+ * Los valores se parsean una vez al construir:
+ * - active_city_ids y default_vehicle_type_ids → List<Integer>
+ * - valores numéricos → BigDecimal
+ * - valores booleanos → Boolean
+ * Los errores de parseo se registran una vez por snapshot, no en cada lectura.
+ */
+public final class TenantSettingsSnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(TenantSettingsSnapshot.class);
+
+    static final String ACTIVE_CITY_IDS = "active_city_ids";
+    static final String DEFAULT_VEHICLE_TYPE_IDS = "default_vehicle_type_ids";
+
+    // Default: Bike, Car, Motorbike, Scooter
+    private static final List<Integer> DEFAULT_VEHICLE_TYPES = List.of(5, 1, 3, 2);
+
+    private final Long tenantId;
+    private final long version;
+    private final Instant loadedAt;
+    private final Map<String, String> values;
+    private final Map<String, BigDecimal> decimals;
+    private final Map<String, Boolean> booleans;
+    private final List<Integer> activeCityIds;
+    private final List<Integer> defaultVehicleTypeIds;
+
+    public TenantSettingsSnapshot(Long tenantId, long version, Instant loadedAt, List<TenantSettingsEntity> settings) {
+        this.tenantId = tenantId;
+        this.version = version;
+        this.loadedAt = loadedAt;
+
+        Map<String, String> raw = new HashMap<>();
+        Map<String, BigDecimal> numbers = new HashMap<>();
+        Map<String, Boolean> flags = new HashMap<>();
+
+        for (TenantSettingsEntity setting : settings) {
+            String key = setting.getSettingKey();
+            String value = setting.getSettingValue();
+            if (key == null || value == null) {
+                continue;
+            }
+            raw.put(key, value);
+            flags.put(key, Boolean.parseBoolean(value));
+            BigDecimal number = parseDecimal(value);
+            if (number != null) {
+                numbers.put(key, number);
+            }
+        }
+
+        this.values = Collections.unmodifiableMap(raw);
+        this.decimals = Collections.unmodifiableMap(numbers);
+        this.booleans = Collections.unmodifiableMap(flags);
+        this.activeCityIds = parseActiveCityIds(raw.get(ACTIVE_CITY_IDS));
+        this.defaultVehicleTypeIds = parseDefaultVehicleTypeIds(raw.get(DEFAULT_VEHICLE_TYPE_IDS));
+    }
+
+    public Long getTenantId() {
+        return tenantId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getLoadedAt() {
+        return loadedAt;
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    public String get(String key) {
+        return values.get(key);
+    }
+
+    public String get(String key, String defaultValue) {
+        return values.getOrDefault(key, defaultValue);
+    }
+
+    public Boolean getBoolean(String key, Boolean defaultValue) {
+        return booleans.getOrDefault(key, defaultValue);
+    }
+
+    /**
+     * Valor numérico del setting; el valor por defecto si no existe o no es un número
+     */
+    public BigDecimal getBigDecimal(String key, BigDecimal defaultValue) {
+        BigDecimal number = decimals.get(key);
+        if (number == null && values.containsKey(key)) {
+            logger.error("Tenant {}: Error parsing BigDecimal setting '{}': '{}'", tenantId, key, values.get(key));
+        }
+        return number != null ? number : defaultValue;
+    }
+
+    public List<Integer> getActiveCityIds() {
+        return activeCityIds;
+    }
+
+    public List<Integer> getDefaultVehicleTypeIds() {
+        return defaultVehicleTypeIds;
+    }
+
+    private static BigDecimal parseDecimal(String value) {
+        String trimmed = value.trim();
+        if (trimmed.isEmpty()) {
+            return null;
+        }
+        char first = trimmed.charAt(0);
+        if (!Character.isDigit(first) && first != '-' && first != '+' && first != '.') {
+            return null;
+        }
+        try {
+            return new BigDecimal(trimmed);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private List<Integer> parseActiveCityIds(String cityIdsStr) {
+        if (cityIdsStr == null || cityIdsStr.trim().isEmpty()) {
+            logger.warn("Tenant {}: No active_city_ids configured, using empty list", tenantId);
+            return List.of();
+        }
+
+        try {
+            return parseIds(cityIdsStr);
+        } catch (Exception e) {
+            logger.error("Tenant {}: Error parsing active_city_ids '{}': {}",
+                    tenantId, cityIdsStr, e.getMessage());
+            return List.of();
+        }
+    }
+
+    private List<Integer> parseDefaultVehicleTypeIds(String vehicleIdsStr) {
+        if (vehicleIdsStr == null) {
+            return DEFAULT_VEHICLE_TYPES;
+        }
+
+        try {
+            return parseIds(vehicleIdsStr);
+        } catch (Exception e) {
+            logger.error("Tenant {}: Error parsing default_vehicle_type_ids: {}",
+                    tenantId, e.getMessage());
+            return DEFAULT_VEHICLE_TYPES; // Fallback
+        }
+    }
+
+    private static List<Integer> parseIds(String csv) {
+        String[] parts = csv.split(",");
+        List<Integer> ids = new ArrayList<>(parts.length);
+        for (String part : parts) {
+            ids.add(Integer.parseInt(part.trim()));
+        }
+        return List.copyOf(ids);
+    }
+}
@@ -7,15 +7,15 @@ import com.nimbusds.jose.JWSSigner;
 import com.nimbusds.jose.crypto.RSASSASigner;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
+import es.hargos.ritrack.client.GlovoHttpClientFactory;
 import es.hargos.ritrack.entity.GlovoCredentialsEntity;
-import es.hargos.ritrack.repository.GlovoCredentialsRepository;
+import jakarta.annotation.PreDestroy;
 import lombok.Data;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -28,6 +28,13 @@ import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -36,7 +43,11 @@ import java.util.concurrent.locks.ReentrantLock;
  * MULTI-TENANT ARCHITECTURE:
  * - Each tenant has its own Glovo API credentials (client_id, key_id, private_key_path)
  * - Each tenant gets its own OAuth2 access token
- * - Tokens are cached and auto-refreshed 60 seconds before expiry
+ * - Tokens are cached and refreshed in the background at ~75% of their lifetime
+ *   (with jitter so tenants don't refresh together); requests only refresh inline
+ *   as a fallback, when the token is within 60 seconds of expiry
+ * - Background refresh stops for tenants that haven't used their token for 1 hour
+ * - The parsed private key and JWT signer are cached per tenant (PEM read once)
  * - Thread-safe token management with locks per tenant
  *
  * Example:
@@ -50,15 +61,41 @@ public class TenantTokenService {
     private static final Logger log = LoggerFactory.getLogger(TenantTokenService.class);
 
     @Autowired
-    private GlovoCredentialsRepository credentialsRepository;
+    private GlovoCredentialsRegistry credentialsRegistry;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    private GlovoHttpClientFactory httpClientFactory;
+
+    // Inline refresh margin (fallback when the background refresh didn't run)
+    private static final long INLINE_REFRESH_MARGIN_SECONDS = 60;
+
+    // Background refresh at 75% of the token lifetime, minus up to 10% jitter
+    private static final double REFRESH_AT_LIFETIME_FRACTION = 0.75;
+    private static final double REFRESH_JITTER_FRACTION = 0.10;
+    private static final long MIN_REFRESH_DELAY_SECONDS = 30;
+    private static final long REFRESH_RETRY_SECONDS = 30;
+    private static final long IDLE_STOP_REFRESH_SECONDS = 3600;
 
     // Cache of tokens per tenant
     private final ConcurrentMap<Long, TenantTokenInfo> tenantTokens;
 
+    // Parsed private key + signer per tenant
+    private final ConcurrentMap<Long, CachedSigner> signers = new ConcurrentHashMap<>();
+
+    // Timing only: the refresh itself (blocking OAuth under the tenant lock) runs on refreshExecutor,
+    // so one slow token endpoint does not delay the other tenants' refreshes
+    private final ScheduledExecutorService refreshScheduler;
+    private final ExecutorService refreshExecutor;
+
     public TenantTokenService() {
         this.tenantTokens = new ConcurrentHashMap<>();
+        this.refreshScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Token-Refresher");
+            t.setDaemon(true);
+            return t;
+        });
+        this.refreshExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("Token-Refresh-", 0).factory());
     }
 
     /**
@@ -66,11 +103,19 @@ public class TenantTokenService {
      */
     @Data
     static class TenantTokenInfo {
-        private String accessToken;
-        private long expiryTime; // Unix timestamp in seconds
+        private volatile String accessToken;
+        private volatile long expiryTime; // Unix timestamp in seconds
+        private volatile long lastUsedTime; // Unix timestamp in seconds
+        private ScheduledFuture<?> scheduledRefresh; // Guarded by lock
         private final ReentrantLock lock = new ReentrantLock();
     }
 
+    /**
+     * Signer built from the tenant's PEM file (rebuilt if the key path changes)
+     */
+    private record CachedSigner(String privateKeyPath, JWSSigner signer) {
+    }
+
     /**
      * Get access token for a specific tenant.
      * Auto-refreshes if token is expired or about to expire (within 60 seconds).
@@ -86,15 +131,17 @@ public class TenantTokenService {
         );
 
         long now = System.currentTimeMillis() / 1000;
+        tokenInfo.setLastUsedTime(now);
 
         // Check if token needs refresh (null or expires within 60 seconds)
-        if (tokenInfo.getAccessToken() == null || now >= tokenInfo.getExpiryTime() - 60) {
+        if (needsInlineRefresh(tokenInfo, now)) {
             // Lock per tenant (doesn't block other tenants)
             tokenInfo.lock.lock();
             try {
                 // Double-check after acquiring lock
-                if (tokenInfo.getAccessToken() == null || now >= tokenInfo.getExpiryTime() - 60) {
+                if (needsInlineRefresh(tokenInfo, now)) {
                     refreshToken(tenantId, tokenInfo);
+                    scheduleBackgroundRefresh(tenantId, tokenInfo);
                 }
             } finally {
                 tokenInfo.lock.unlock();
@@ -104,21 +151,100 @@ public class TenantTokenService {
         return tokenInfo.getAccessToken();
     }
 
+    /**
+     * Cached token if it is still valid outside the inline refresh margin, without refreshing.
+     * Used by the async path: a null result means the token must be fetched with
+     * getAccessToken() on a thread that may block (OAuth POST + private key load).
+     */
+    public String getCachedAccessToken(Long tenantId) {
+        TenantTokenInfo tokenInfo = tenantTokens.get(tenantId);
+        if (tokenInfo == null) {
+            return null;
+        }
+
+        long now = System.currentTimeMillis() / 1000;
+        if (needsInlineRefresh(tokenInfo, now)) {
+            return null;
+        }
+        tokenInfo.setLastUsedTime(now);
+        return tokenInfo.getAccessToken();
+    }
+
+    private static boolean needsInlineRefresh(TenantTokenInfo tokenInfo, long now) {
+        return tokenInfo.getAccessToken() == null
+            || now >= tokenInfo.getExpiryTime() - INLINE_REFRESH_MARGIN_SECONDS;
+    }
+
+    /**
+     * Schedule the next background refresh for the current token. Must hold the tenant lock.
+     */
+    private void scheduleBackgroundRefresh(Long tenantId, TenantTokenInfo tokenInfo) {
+        long lifetime = tokenInfo.getExpiryTime() - System.currentTimeMillis() / 1000;
+        long jitter = (long) (ThreadLocalRandom.current().nextDouble() * lifetime * REFRESH_JITTER_FRACTION);
+        long delay = Math.max(MIN_REFRESH_DELAY_SECONDS, (long) (lifetime * REFRESH_AT_LIFETIME_FRACTION) - jitter);
+
+        scheduleRefreshIn(tenantId, tokenInfo, delay);
+    }
+
+    private void scheduleRefreshIn(Long tenantId, TenantTokenInfo tokenInfo, long delaySeconds) {
+        if (tokenInfo.getScheduledRefresh() != null) {
+            tokenInfo.getScheduledRefresh().cancel(false);
+        }
+        tokenInfo.setScheduledRefresh(refreshScheduler.schedule(
+            () -> submitBackgroundRefresh(tenantId, tokenInfo), delaySeconds, TimeUnit.SECONDS));
+    }
+
+    private void submitBackgroundRefresh(Long tenantId, TenantTokenInfo tokenInfo) {
+        try {
+            refreshExecutor.execute(() -> backgroundRefresh(tenantId, tokenInfo));
+        } catch (RejectedExecutionException e) {
+            log.debug("Background token refresh for tenant {} skipped (shutting down)", tenantId);
+        }
+    }
+
+    /**
+     * Background refresh: renews the token before requests need it.
+     * On failure retries every 30s; requests still fall back to the inline refresh near expiry.
+     */
+    private void backgroundRefresh(Long tenantId, TenantTokenInfo tokenInfo) {
+        tokenInfo.lock.lock();
+        try {
+            // Invalidated while waiting (credentials changed or tenant removed)
+            if (tenantTokens.get(tenantId) != tokenInfo) {
+                return;
+            }
+
+            long now = System.currentTimeMillis() / 1000;
+            if (now - tokenInfo.getLastUsedTime() > IDLE_STOP_REFRESH_SECONDS) {
+                log.debug("Tenant {} idle, stopping background token refresh", tenantId);
+                tokenInfo.setScheduledRefresh(null);
+                return;
+            }
+
+            try {
+                refreshToken(tenantId, tokenInfo);
+                scheduleBackgroundRefresh(tenantId, tokenInfo);
+            } catch (Exception e) {
+                log.warn("Background token refresh failed for tenant {}: {} (retry in {}s)",
+                    tenantId, e.getMessage(), REFRESH_RETRY_SECONDS);
+                scheduleRefreshIn(tenantId, tokenInfo, REFRESH_RETRY_SECONDS);
+            }
+        } finally {
+            tokenInfo.lock.unlock();
+        }
+    }
+
     /**
      * Refresh token for a tenant
      */
     private void refreshToken(Long tenantId, TenantTokenInfo tokenInfo) throws Exception {
         log.info("Refreshing token for tenant {}", tenantId);
 
-        // 1. Get tenant's Glovo credentials from database
-        GlovoCredentialsEntity credentials = credentialsRepository
-            .findByTenantIdAndIsActive(tenantId, true)
-            .orElseThrow(() -> new RuntimeException(
-                "No active Glovo credentials found for tenant " + tenantId
-            ));
+        // 1. Get tenant's Glovo credentials (in-memory registry)
+        GlovoCredentialsEntity credentials = credentialsRegistry.getActiveCredentials(tenantId);
 
         // 2. Generate JWT client assertion with tenant's credentials
-        String clientAssertion = generateClientAssertion(credentials);
+        String clientAssertion = generateClientAssertion(tenantId, credentials);
 
         // 3. Make OAuth2 token request to Glovo
         HttpHeaders headers = new HttpHeaders();
@@ -130,7 +256,7 @@ public class TenantTokenService {
 
         HttpEntity<String> entity = new HttpEntity<>(body, headers);
 
-        ResponseEntity<Map> response = restTemplate.exchange(
+        ResponseEntity<Map> response = httpClientFactory.forTenant(tenantId).exchange(
             credentials.getTokenUrl(),
             HttpMethod.POST,
             entity,
@@ -157,12 +283,9 @@ public class TenantTokenService {
     /**
      * Generate JWT client assertion using tenant's credentials
      */
-    private String generateClientAssertion(GlovoCredentialsEntity credentials) throws Exception {
-        // Load tenant's private key
-        RSAPrivateKey privateKey = loadPrivateKey(credentials.getPrivateKeyPath());
-
-        // Create JWT signer
-        JWSSigner signer = new RSASSASigner(privateKey);
+    private String generateClientAssertion(Long tenantId, GlovoCredentialsEntity credentials) throws Exception {
+        // Tenant's JWT signer (private key parsed once)
+        JWSSigner signer = getSigner(tenantId, credentials.getPrivateKeyPath());
 
         // Build JWT claims
         Instant now = Instant.now();
@@ -187,6 +310,21 @@ public class TenantTokenService {
         return signedJWT.serialize();
     }
 
+    /**
+     * Cached signer for the tenant, loading the PEM only on first use or when the path changes
+     */
+    private JWSSigner getSigner(Long tenantId, String privateKeyPath) throws Exception {
+        CachedSigner cached = signers.get(tenantId);
+        if (cached != null && cached.privateKeyPath().equals(privateKeyPath)) {
+            return cached.signer();
+        }
+
+        JWSSigner signer = new RSASSASigner(loadPrivateKey(privateKeyPath));
+        signers.put(tenantId, new CachedSigner(privateKeyPath, signer));
+        log.info("Private key loaded for tenant {}", tenantId);
+        return signer;
+    }
+
     /**
      * Load RSA private key from PEM file
      */
@@ -208,8 +346,21 @@ public class TenantTokenService {
      * Invalidate token for a tenant (useful when credentials change)
      */
     public void invalidateToken(Long tenantId) {
-        tenantTokens.remove(tenantId);
-        log.info("Token invalidated for tenant {}", tenantId);
+        TenantTokenInfo tokenInfo = tenantTokens.remove(tenantId);
+        if (tokenInfo != null) {
+            tokenInfo.lock.lock();
+            try {
+                if (tokenInfo.getScheduledRefresh() != null) {
+                    tokenInfo.getScheduledRefresh().cancel(false);
+                    tokenInfo.setScheduledRefresh(null);
+                }
+            } finally {
+                tokenInfo.lock.unlock();
+            }
+        }
+        // The PEM may have been replaced under the same path
+        signers.remove(tenantId);
+        log.info("Token and signing key invalidated for tenant {}", tenantId);
     }
 
     /**
@@ -232,4 +383,10 @@ public class TenantTokenService {
         long now = System.currentTimeMillis() / 1000;
         return now < tokenInfo.getExpiryTime();
     }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshScheduler.shutdownNow();
+        refreshExecutor.shutdownNow();
+    }
 }
@@ -1,5 +1,7 @@
 package es.hargos.ritrack.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import es.hargos.ritrack.client.HargosAuthClient;
 import es.hargos.ritrack.dto.request.AssignCitiesRequest;
 import es.hargos.ritrack.dto.response.UserCityAssignmentResponse;
@@ -9,7 +11,10 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -38,6 +43,12 @@ public class UserCityService {
     private final UserCityAssignmentRepository userCityRepository;
     private final HargosAuthClient hargosAuthClient;
 
+    // Ciudades por usuario: se consultan en cada búsqueda/paginación; se invalidan al cambiar asignaciones
+    private final Cache<Long, List<Long>> userCityIdsCache = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofSeconds(60))
+            .maximumSize(10_000)
+            .build();
+
     /**
      * Asigna ciudades a un usuario (reemplaza las existentes).
      *
@@ -109,6 +120,8 @@ public class UserCityService {
             log.info("ℹ️ No hay cambios en las asignaciones de ciudades del usuario ID {}", userId);
         }
 
+        invalidateUserCities(userId);
+
         log.info("✅ Asignación completada: usuario ID {} ahora tiene {} ciudades asignadas",
                 userId, newCityIds.size());
     }
@@ -116,6 +129,7 @@ public class UserCityService {
     /**
      * Obtiene los IDs de ciudades asignadas a un usuario.
      * Método optimizado que solo retorna IDs (no entidades completas).
+     * Cacheado 60 s por usuario (se invalida al modificar sus asignaciones).
      *
      * @param userId ID del usuario
      * @return Lista de IDs de ciudades (puede estar vacía)
@@ -129,7 +143,8 @@ public class UserCityService {
      * </pre>
      */
     public List<Long> getUserCityIds(Long userId) {
-        List<Long> cityIds = userCityRepository.findCityIdsByUserId(userId);
+        List<Long> cityIds = userCityIdsCache.get(userId,
+                id -> List.copyOf(userCityRepository.findCityIdsByUserId(id)));
         log.debug("Usuario ID {} tiene {} ciudades asignadas", userId, cityIds.size());
         return cityIds;
     }
@@ -217,6 +232,7 @@ public class UserCityService {
         }
 
         userCityRepository.deleteByUserIdAndCityId(userId, cityId);
+        invalidateUserCities(userId);
         log.info("✅ Ciudad {} eliminada del usuario ID {}", cityId, userId);
     }
 
@@ -237,6 +253,7 @@ public class UserCityService {
 
         log.info("Eliminando todas las ciudades del usuario ID {} ({} asignaciones)", userId, count);
         userCityRepository.deleteByUserId(userId);
+        invalidateUserCities(userId);
         log.info("✅ Todas las ciudades eliminadas del usuario ID {}", userId);
     }
 
@@ -361,6 +378,24 @@ public class UserCityService {
                 .collect(Collectors.toList());
 
         userCityRepository.saveAll(newAssignments);
+        invalidateUserCities(userId);
         log.info("✅ {} nuevas ciudades añadidas al usuario ID {}", newCityIds.size(), userId);
     }
+
+    /**
+     * Olvida las ciudades cacheadas del usuario, otra vez tras el commit para que una
+     * lectura concurrente no vuelva a cachear las asignaciones anteriores.
+     */
+    private void invalidateUserCities(Long userId) {
+        userCityIdsCache.invalidate(userId);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    userCityIdsCache.invalidate(userId);
+                }
+            });
+        }
+    }
 }
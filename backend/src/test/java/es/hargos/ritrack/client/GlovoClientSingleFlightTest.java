@@ -0,0 +1,155 @@
+package es.hargos.ritrack.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import es.hargos.ritrack.entity.GlovoCredentialsEntity;
+import es.hargos.ritrack.service.ApiMonitoringService;
+import es.hargos.ritrack.service.GlovoCredentialsRegistry;
+import es.hargos.ritrack.service.RateLimitService;
+import es.hargos.ritrack.service.TenantTokenService;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class GlovoClientSingleFlightTest {
+
+    private static final Long TENANT = 1L;
+    private static final String PAGE = "{\"content\":[{\"employee_id\":7,\"vehicle\":{\"type\":\"BIKE\"}}],\"total_pages\":1}";
+
+    private GlovoClient client;
+    private final List<FutureCallback<SimpleHttpResponse>> pendingRequests = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        GlovoCredentialsRegistry credentialsRegistry = mock(GlovoCredentialsRegistry.class);
+        GlovoCredentialsEntity credentials = new GlovoCredentialsEntity();
+        credentials.setLiveBaseUrl("https://live.example");
+        when(credentialsRegistry.getActiveCredentials(TENANT)).thenReturn(credentials);
+
+        TenantTokenService tokenService = mock(TenantTokenService.class);
+        when(tokenService.getCachedAccessToken(TENANT)).thenReturn("token");
+
+        RateLimitService rateLimitService = mock(RateLimitService.class);
+        when(rateLimitService.acquireAsync(anyLong(), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        CloseableHttpAsyncClient asyncClient = mock(CloseableHttpAsyncClient.class);
+        when(asyncClient.execute(any(), any(FutureCallback.class))).thenAnswer(invocation -> {
+            pendingRequests.add(invocation.getArgument(1));
+            return null;
+        });
+        GlovoHttpClientFactory httpClientFactory = mock(GlovoHttpClientFactory.class);
+        when(httpClientFactory.getAsyncClient()).thenReturn(asyncClient);
+        when(httpClientFactory.asyncRequestConfig(TENANT)).thenReturn(RequestConfig.DEFAULT);
+
+        GlovoTenantGuard tenantGuard = new GlovoTenantGuard();
+        ReflectionTestUtils.setField(tenantGuard, "failureThreshold", 5);
+        ReflectionTestUtils.setField(tenantGuard, "openSeconds", 30L);
+        ReflectionTestUtils.setField(tenantGuard, "maxConcurrentPerTenant", 8);
+        ReflectionTestUtils.setField(tenantGuard, "bulkheadMaxWaitMs", 100L);
+
+        client = new GlovoClient();
+        ReflectionTestUtils.setField(client, "credentialsRegistry", credentialsRegistry);
+        ReflectionTestUtils.setField(client, "tokenService", tokenService);
+        ReflectionTestUtils.setField(client, "rateLimitService", rateLimitService);
+        ReflectionTestUtils.setField(client, "monitoringService", mock(ApiMonitoringService.class));
+        ReflectionTestUtils.setField(client, "httpClientFactory", httpClientFactory);
+        ReflectionTestUtils.setField(client, "tenantGuard", tenantGuard);
+        ReflectionTestUtils.setField(client, "objectMapper", new ObjectMapper());
+    }
+
+    @Test
+    void identicalConcurrentGetsShareOneRequest() throws Exception {
+        CompletableFuture<Map<String, Object>> first = client.getRidersByCityAsync(TENANT, 10);
+        CompletableFuture<Map<String, Object>> second = client.getRidersByCityAsync(TENANT, 10);
+
+        assertEquals(1, pendingRequests.size());
+        assertFalse(first.isDone());
+
+        pendingRequests.get(0).completed(SimpleHttpResponse.create(200, PAGE, ContentType.APPLICATION_JSON));
+
+        Map<String, Object> a = first.get(1, TimeUnit.SECONDS);
+        Map<String, Object> b = second.get(1, TimeUnit.SECONDS);
+        assertSame(a, b);
+        assertEquals(1L, client.getCoalescingMetrics().get("requestsSent"));
+        assertEquals(1L, client.getCoalescingMetrics().get("requestsCoalesced"));
+        assertEquals(0, client.getCoalescingMetrics().get("inFlight"));
+    }
+
+    @Test
+    void differentUrlsAreNotCoalesced() {
+        client.getRidersByCityAsync(TENANT, 10);
+        client.getRidersByCityAsync(TENANT, 11);
+
+        assertEquals(2, pendingRequests.size());
+    }
+
+    @Test
+    void finishedFlightIsNotReused() {
+        client.getRidersByCityAsync(TENANT, 10);
+        pendingRequests.get(0).completed(SimpleHttpResponse.create(200, PAGE, ContentType.APPLICATION_JSON));
+
+        client.getRidersByCityAsync(TENANT, 10);
+        assertEquals(2, pendingRequests.size());
+    }
+
+    @Test
+    void cancellingOneCallerDoesNotCancelTheOthers() throws Exception {
+        CompletableFuture<Map<String, Object>> first = client.getRidersByCityAsync(TENANT, 10);
+        CompletableFuture<Map<String, Object>> second = client.getRidersByCityAsync(TENANT, 10);
+
+        first.cancel(false);
+        pendingRequests.get(0).completed(SimpleHttpResponse.create(200, PAGE, ContentType.APPLICATION_JSON));
+
+        assertTrue(first.isCancelled());
+        assertEquals(1, ((List<?>) second.get(1, TimeUnit.SECONDS).get("content")).size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void sharedResultIsReadOnlyAtEveryLevel() throws Exception {
+        CompletableFuture<Map<String, Object>> future = client.getRidersByCityAsync(TENANT, 10);
+        pendingRequests.get(0).completed(SimpleHttpResponse.create(200, PAGE, ContentType.APPLICATION_JSON));
+        Map<String, Object> page = future.get(1, TimeUnit.SECONDS);
+
+        List<Map<String, Object>> rows = (List<Map<String, Object>>) page.get("content");
+        Map<String, Object> vehicle = (Map<String, Object>) rows.get(0).get("vehicle");
+
+        assertThrows(UnsupportedOperationException.class, () -> page.put("total_pages", 2));
+        assertThrows(UnsupportedOperationException.class, () -> rows.add(Map.of()));
+        assertThrows(UnsupportedOperationException.class, () -> rows.get(0).put("employee_id", 8));
+        assertThrows(UnsupportedOperationException.class, () -> vehicle.put("type", "CAR"));
+    }
+
+    @Test
+    void notFoundCompletesWithNullForEveryCaller() throws Exception {
+        CompletableFuture<Map<String, Object>> first = client.getRidersByCityAsync(TENANT, 10);
+        CompletableFuture<Map<String, Object>> second = client.getRidersByCityAsync(TENANT, 10);
+
+        pendingRequests.get(0).completed(SimpleHttpResponse.create(404, "", ContentType.APPLICATION_JSON));
+
+        assertNull(first.get(1, TimeUnit.SECONDS));
+        assertNull(second.get(1, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,170 @@
+package es.hargos.ritrack.client;
+
+import es.hargos.ritrack.exception.GlovoUnavailableException;
+import es.hargos.ritrack.service.RateLimitService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GlovoTenantGuardTest {
+
+    private static final Long TENANT = 1L;
+
+    private GlovoTenantGuard guard;
+
+    @BeforeEach
+    void setUp() {
+        guard = new GlovoTenantGuard();
+        ReflectionTestUtils.setField(guard, "failureThreshold", 3);
+        ReflectionTestUtils.setField(guard, "openSeconds", 30L);
+        ReflectionTestUtils.setField(guard, "maxConcurrentPerTenant", 2);
+        ReflectionTestUtils.setField(guard, "bulkheadMaxWaitMs", 50L);
+    }
+
+    @Test
+    void opensAfterConsecutiveFailuresAndRejectsCalls() {
+        for (int i = 0; i < 3; i++) {
+            guard.release(guard.acquire(TENANT), new HttpServerErrorException(HttpStatus.BAD_GATEWAY));
+        }
+
+        assertEquals(GlovoTenantGuard.State.OPEN, guard.getState(TENANT));
+        assertThrows(GlovoUnavailableException.class, () -> guard.acquire(TENANT));
+    }
+
+    @Test
+    void successResetsConsecutiveFailures() {
+        guard.release(guard.acquire(TENANT), new ResourceAccessException("timeout"));
+        guard.release(guard.acquire(TENANT), new ResourceAccessException("timeout"));
+        guard.release(guard.acquire(TENANT), null);
+        guard.release(guard.acquire(TENANT), new ResourceAccessException("timeout"));
+
+        assertEquals(GlovoTenantGuard.State.CLOSED, guard.getState(TENANT));
+    }
+
+    @Test
+    void halfOpenAllowsSingleProbeThatClosesOnSuccess() {
+        ReflectionTestUtils.setField(guard, "openSeconds", 0L);
+        for (int i = 0; i < 3; i++) {
+            guard.release(guard.acquire(TENANT), new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+        }
+
+        GlovoTenantGuard.Permit probe = guard.acquire(TENANT);
+        assertTrue(probe.probe());
+        assertEquals(GlovoTenantGuard.State.HALF_OPEN, guard.getState(TENANT));
+        assertThrows(GlovoUnavailableException.class, () -> guard.acquire(TENANT));
+
+        guard.release(probe, null);
+        assertEquals(GlovoTenantGuard.State.CLOSED, guard.getState(TENANT));
+    }
+
+    @Test
+    void failedProbeReopens() {
+        ReflectionTestUtils.setField(guard, "openSeconds", 0L);
+        for (int i = 0; i < 3; i++) {
+            guard.release(guard.acquire(TENANT), new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+        }
+
+        GlovoTenantGuard.Permit probe = guard.acquire(TENANT);
+        ReflectionTestUtils.setField(guard, "openSeconds", 30L);
+        guard.release(probe, new ResourceAccessException("timeout"));
+
+        assertEquals(GlovoTenantGuard.State.OPEN, guard.getState(TENANT));
+    }
+
+    @Test
+    void probeWithoutGlovoAnswerKeepsHalfOpen() {
+        ReflectionTestUtils.setField(guard, "openSeconds", 0L);
+        for (int i = 0; i < 3; i++) {
+            guard.release(guard.acquire(TENANT), new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+        }
+
+        Throwable[] noAnswer = {
+                new GlovoUnavailableException(TENANT, "Demasiadas llamadas concurrentes"),
+                new RuntimeException(new RateLimitService.RateLimitExceededException("queue full")),
+                new HttpClientErrorException(HttpStatus.TOO_MANY_REQUESTS)
+        };
+        for (Throwable error : noAnswer) {
+            GlovoTenantGuard.Permit probe = guard.acquire(TENANT);
+            assertTrue(probe.probe());
+            guard.release(probe, error);
+            assertEquals(GlovoTenantGuard.State.HALF_OPEN, guard.getState(TENANT), error.toString());
+        }
+
+        // La siguiente llamada vuelve a ser la prueba; un 404 es respuesta real y cierra
+        GlovoTenantGuard.Permit probe = guard.acquire(TENANT);
+        assertTrue(probe.probe());
+        guard.release(probe, new HttpClientErrorException(HttpStatus.NOT_FOUND));
+        assertEquals(GlovoTenantGuard.State.CLOSED, guard.getState(TENANT));
+    }
+
+    @Test
+    void clientErrorsAndRateLimitsAreNotFailures() {
+        assertFalse(GlovoTenantGuard.isFailure(new HttpClientErrorException(HttpStatus.NOT_FOUND)));
+        assertFalse(GlovoTenantGuard.isFailure(new HttpClientErrorException(HttpStatus.TOO_MANY_REQUESTS)));
+        assertFalse(GlovoTenantGuard.isFailure(new RuntimeException(
+                new RateLimitService.RateLimitExceededException("queue full"))));
+        assertFalse(GlovoTenantGuard.isFailure(new GlovoUnavailableException(TENANT, "bulkhead")));
+
+        assertTrue(GlovoTenantGuard.isFailure(new HttpClientErrorException(HttpStatus.UNAUTHORIZED)));
+        assertTrue(GlovoTenantGuard.isFailure(new RuntimeException(
+                new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR))));
+    }
+
+    @Test
+    void bulkheadWaitsBoundedTimeThenRejects() {
+        GlovoTenantGuard.BulkheadSlot first = guard.enterBulkhead(TENANT);
+        GlovoTenantGuard.BulkheadSlot second = guard.enterBulkhead(TENANT);
+
+        long start = System.nanoTime();
+        assertThrows(GlovoUnavailableException.class, () -> guard.enterBulkhead(TENANT));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 40);
+
+        first.close();
+        guard.enterBulkhead(TENANT).close();
+        second.close();
+    }
+
+    @Test
+    void closingSlotTwiceReleasesOnce() {
+        GlovoTenantGuard.BulkheadSlot slot = guard.enterBulkhead(TENANT);
+        slot.close();
+        slot.close();
+
+        guard.enterBulkhead(TENANT);
+        guard.enterBulkhead(TENANT);
+        assertThrows(GlovoUnavailableException.class, () -> guard.enterBulkhead(TENANT));
+    }
+
+    @Test
+    void asyncBulkheadCompletesWhenSlotIsFreed() throws Exception {
+        ReflectionTestUtils.setField(guard, "bulkheadMaxWaitMs", 2000L);
+        GlovoTenantGuard.BulkheadSlot first = guard.enterBulkhead(TENANT);
+        guard.enterBulkhead(TENANT);
+
+        CompletableFuture<GlovoTenantGuard.BulkheadSlot> waiting = guard.enterBulkheadAsync(TENANT);
+        assertFalse(waiting.isDone());
+
+        first.close();
+        waiting.get(1, TimeUnit.SECONDS).close();
+    }
+
+    @Test
+    void breakerDoesNotHoldBulkheadSlots() {
+        for (int i = 0; i < 10; i++) {
+            guard.acquire(TENANT);
+        }
+        guard.enterBulkhead(TENANT).close();
+    }
+}
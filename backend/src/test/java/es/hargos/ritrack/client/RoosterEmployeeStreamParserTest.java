@@ -0,0 +1,110 @@
+package es.hargos.ritrack.client;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import es.hargos.ritrack.dto.RoosterEmployeeDto;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoosterEmployeeStreamParserTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String EMPLOYEES = """
+            [
+              {
+                "id": 101,
+                "name": "José Núñez",
+                "email": "jose@ritrack.es",
+                "phone_number": "+34 600 123 456",
+                "city_id": 804,
+                "fields": [{"name": "iban", "value": {"nested": [1, 2, {"deep": true}]}}],
+                "vehicle_types": [5, 1],
+                "active_contract": {
+                  "id": 9,
+                  "city_id": 805,
+                  "starting_points": [{"id": 1}],
+                  "contract": {"id": 3, "type": "FULL_TIME", "hours": 40}
+                }
+              },
+              {
+                "id": "102",
+                "name": null,
+                "email": "sin.nombre@ritrack.es",
+                "city_id": "no-numero",
+                "active_contract": null
+              },
+              {
+                "id": 103,
+                "name": "Ana",
+                "active_contract": {"contract": {"type": "PART_TIME"}},
+                "extra": {"name": "no es el nombre", "id": 999}
+              }
+            ]
+            """;
+
+    @Test
+    void parsesRootArrayAndSkipsUnusedFields() throws IOException {
+        List<RoosterEmployeeDto> employees = parse(EMPLOYEES);
+
+        assertEquals(List.of(
+                new RoosterEmployeeDto(101, "José Núñez", "jose@ritrack.es", "+34 600 123 456", 804, 805, "FULL_TIME"),
+                new RoosterEmployeeDto(102, null, "sin.nombre@ritrack.es", null, null, null, null),
+                new RoosterEmployeeDto(103, "Ana", null, null, null, null, "PART_TIME")), employees);
+    }
+
+    @Test
+    void matchesTreeBasedMapping() throws IOException {
+        List<Map<String, Object>> tree = MAPPER.readValue(EMPLOYEES, new TypeReference<>() { });
+
+        List<RoosterEmployeeDto> expected = tree.stream().map(RoosterEmployeeDto::fromApiMap).toList();
+        assertEquals(expected, parse(EMPLOYEES));
+    }
+
+    @Test
+    void readsArrayInsideDataOrContent() throws IOException {
+        String employee = "{\"id\": 1, \"name\": \"Ana\"}";
+
+        assertEquals(1, parse("{\"meta\": {\"total\": 1}, \"data\": [" + employee + "]}").size());
+        assertEquals(1, parse("{\"content\": [" + employee + "], \"total_pages\": 1}").size());
+        // "data" que no es un array se salta
+        assertEquals(1, parse("{\"data\": {\"x\": 1}, \"content\": [" + employee + "]}").size());
+    }
+
+    @Test
+    void emptyResponsesGiveEmptyList() throws IOException {
+        assertTrue(parse("").isEmpty());
+        assertTrue(parse("[]").isEmpty());
+        assertTrue(parse("{\"meta\": {}}").isEmpty());
+    }
+
+    @Test
+    void rejectsUnexpectedRoot() {
+        assertThrows(IOException.class, () -> parse("\"error\""));
+        assertThrows(IOException.class, () -> parse("42"));
+    }
+
+    @Test
+    void internsContractType() throws IOException {
+        List<RoosterEmployeeDto> employees = parse(
+                "[{\"active_contract\": {\"contract\": {\"type\": \"FULL_TIME\"}}},"
+                        + " {\"active_contract\": {\"contract\": {\"type\": \"FULL_TIME\"}}}]");
+
+        assertTrue(employees.get(0).contractType() == employees.get(1).contractType());
+    }
+
+    private static List<RoosterEmployeeDto> parse(String json) throws IOException {
+        return RoosterEmployeeStreamParser.parse(new JsonFactory(),
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+}
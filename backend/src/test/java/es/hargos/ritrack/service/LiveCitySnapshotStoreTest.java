@@ -0,0 +1,103 @@
+package es.hargos.ritrack.service;
+
+import es.hargos.ritrack.service.LiveCitySnapshotStore.LiveCitySnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LiveCitySnapshotStoreTest {
+
+    private static final Long TENANT = 1L;
+
+    private final LiveCitySnapshotStore store = new LiveCitySnapshotStore(90);
+
+    @Test
+    void freshSnapshotIsServed() {
+        LiveCitySnapshot published = store.publish(TENANT, 10, List.of(Map.of("employee_id", 7)), List.of());
+
+        assertSame(published, store.getFresh(TENANT, 10));
+        assertNull(store.getFresh(TENANT, 11));
+        assertNull(store.getFresh(2L, 10));
+    }
+
+    @Test
+    void snapshotOlderThanMaxAgeIsNotServed() {
+        // max-age negativo: cualquier snapshot está caducado nada más publicarse
+        LiveCitySnapshotStore expiring = new LiveCitySnapshotStore(-1);
+        LiveCitySnapshot published = expiring.publish(TENANT, 10, List.of(), List.of());
+
+        assertTrue(expiring.isStale(published));
+        assertNull(expiring.getFresh(TENANT, 10));
+        assertSame(published, expiring.get(TENANT, 10));
+        assertEquals(1L, expiring.getStats().get("staleReads"));
+    }
+
+    @Test
+    void publishedSnapshotIsReadOnly() {
+        List<Map<String, Object>> riders = new ArrayList<>(List.of(Map.of("employee_id", 7)));
+        LiveCitySnapshot snapshot = store.publish(TENANT, 10, riders, null);
+
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.riders().add(Map.of()));
+        assertEquals(List.of(), snapshot.locations());
+    }
+
+    @Test
+    void sequenceIsMonotoneAndVersionsTheTenant() {
+        assertEquals(0L, store.getTenantVersion(TENANT));
+
+        long first = store.publish(TENANT, 10, List.of(), List.of()).sequence();
+        long other = store.publish(2L, 10, List.of(), List.of()).sequence();
+        long second = store.publish(TENANT, 11, List.of(), List.of()).sequence();
+        long republished = store.publish(TENANT, 10, List.of(), List.of()).sequence();
+
+        assertTrue(first < other && other < second && second < republished);
+        assertEquals(republished, store.getTenantVersion(TENANT));
+        assertEquals(other, store.getTenantVersion(2L));
+        assertEquals(republished, store.get(TENANT, 10).sequence());
+    }
+
+    @Test
+    void freshAllRequiresEveryCity() {
+        store.publish(TENANT, 10, List.of(), List.of());
+        store.publish(TENANT, 11, List.of(), List.of());
+
+        Map<Integer, LiveCitySnapshot> all = store.getFreshAll(TENANT, List.of(10, 11));
+        assertNotNull(all);
+        assertEquals(Set.of(10, 11), all.keySet());
+
+        assertNull(store.getFreshAll(TENANT, List.of(10, 11, 12)));
+        assertNull(store.getFreshAll(TENANT, List.of()));
+        assertNull(store.getFreshAll(2L, List.of(10)));
+    }
+
+    @Test
+    void freshAllRejectsAStaleCity() {
+        LiveCitySnapshotStore expiring = new LiveCitySnapshotStore(-1);
+        expiring.publish(TENANT, 10, List.of(), List.of());
+
+        assertNull(expiring.getFreshAll(TENANT, List.of(10)));
+    }
+
+    @Test
+    void retainAndRemoveDropSnapshots() {
+        store.publish(TENANT, 10, List.of(), List.of());
+        store.publish(TENANT, 11, List.of(), List.of());
+
+        store.retainCities(TENANT, List.of(11));
+        assertEquals(Set.of(11), store.getTenant(TENANT).keySet());
+
+        store.removeTenant(TENANT);
+        assertEquals(Map.of(), store.getTenant(TENANT));
+        assertEquals(0L, store.getTenantVersion(TENANT));
+    }
+}
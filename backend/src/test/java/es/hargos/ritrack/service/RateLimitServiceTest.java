@@ -0,0 +1,265 @@
+package es.hargos.ritrack.service;
+
+import es.hargos.ritrack.service.RateLimitService.RequestPriority;
+import io.github.bucket4j.Bucket;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimitServiceTest {
+
+    private static final Long TENANT = 1L;
+    private static final Duration WAIT = Duration.ofSeconds(30);
+
+    private RateLimitService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new RateLimitService();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void permitIsGrantedImmediatelyWhenTokensAreAvailable() {
+        CompletableFuture<Void> permit = service.acquireAsync(TENANT, RequestPriority.LOW, WAIT);
+
+        assertTrue(permit.isDone());
+        assertFalse(permit.isCompletedExceptionally());
+    }
+
+    @Test
+    void queuedRequestsAreGrantedByPriorityThenFifo() {
+        drainGlobal();
+
+        CompletableFuture<Void> low1 = service.acquireAsync(TENANT, RequestPriority.LOW, WAIT);
+        CompletableFuture<Void> medium = service.acquireAsync(TENANT, RequestPriority.MEDIUM, WAIT);
+        CompletableFuture<Void> high1 = service.acquireAsync(TENANT, RequestPriority.HIGH, WAIT);
+        CompletableFuture<Void> high2 = service.acquireAsync(TENANT, RequestPriority.HIGH, WAIT);
+        assertEquals(List.of(false, false, false, false), done(low1, medium, high1, high2));
+
+        // Cada token nuevo se concede al siguiente en la cola (el último en llegar, LOW, espera)
+        List<CompletableFuture<Void>> expectedOrder = List.of(high1, high2, medium, low1);
+        List<CompletableFuture<Void>> lows = new ArrayList<>();
+        for (int i = 0; i < expectedOrder.size(); i++) {
+            buckets().getGlobalBucket().addTokens(1);
+            lows.add(service.acquireAsync(TENANT, RequestPriority.LOW, WAIT));
+
+            for (int j = 0; j < expectedOrder.size(); j++) {
+                assertEquals(j <= i, expectedOrder.get(j).isDone(), "token " + i + ", request " + j);
+            }
+        }
+        lows.forEach(low -> assertFalse(low.isDone()));
+    }
+
+    @Test
+    void requestFailsWhenItsWaitExpires() {
+        drainGlobal();
+
+        CompletableFuture<Void> permit = service.acquireAsync(TENANT, RequestPriority.HIGH, Duration.ofMillis(100));
+
+        ExecutionException error = assertThrows(ExecutionException.class, permit::get);
+        assertInstanceOf(RateLimitService.RateLimitExceededException.class, error.getCause());
+    }
+
+    @Test
+    void fullQueueShedsNewestLowerPriorityRequest() {
+        drainGlobal();
+
+        List<CompletableFuture<Void>> lows = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            lows.add(service.acquireAsync(TENANT, RequestPriority.LOW, WAIT));
+        }
+
+        CompletableFuture<Void> high = service.acquireAsync(TENANT, RequestPriority.HIGH, WAIT);
+        assertFalse(high.isDone());
+        assertTrue(lows.get(499).isCompletedExceptionally());
+        assertFalse(lows.get(498).isDone());
+
+        // Cola llena y nada de menor prioridad que expulsar: rechazo inmediato
+        CompletableFuture<Void> rejected = service.acquireAsync(TENANT, RequestPriority.LOW, WAIT);
+        assertTrue(rejected.isCompletedExceptionally());
+        assertEquals(2L, service.getQueueMetrics().get(TENANT).get("shed"));
+    }
+
+    @Test
+    void cancelledRequestLeavesTheQueue() {
+        drainGlobal();
+
+        CompletableFuture<Void> cancelled = service.acquireAsync(TENANT, RequestPriority.HIGH, WAIT);
+        CompletableFuture<Void> next = service.acquireAsync(TENANT, RequestPriority.HIGH, WAIT);
+        cancelled.cancel(false);
+
+        buckets().getGlobalBucket().addTokens(1);
+        service.acquireAsync(TENANT, RequestPriority.LOW, WAIT);
+
+        assertTrue(next.isDone());
+        assertFalse(next.isCompletedExceptionally());
+    }
+
+    @Test
+    void clearingBucketsFailsWaitingRequests() {
+        drainGlobal();
+        CompletableFuture<Void> waiting = service.acquireAsync(TENANT, RequestPriority.MEDIUM, WAIT);
+
+        service.clearBuckets(TENANT);
+
+        assertTrue(waiting.isCompletedExceptionally());
+    }
+
+    @Test
+    void idlePriorityLendsItsUnusedTokens() {
+        drainOwn(RequestPriority.HIGH);
+
+        assertTrue(service.tryConsume(TENANT, RequestPriority.HIGH));
+
+        assertEquals(199L, service.getAvailableTokens(TENANT, RequestPriority.LOW));
+        assertEquals(1L, service.getQueueMetrics().get(TENANT).get("borrowed"));
+    }
+
+    @Test
+    void highKeepsItsLendingReserve() {
+        drainOwn(RequestPriority.LOW);
+        drainOwn(RequestPriority.MEDIUM);
+
+        int borrowed = 0;
+        while (service.tryConsume(TENANT, RequestPriority.MEDIUM)) {
+            borrowed++;
+        }
+
+        assertEquals(350, borrowed);
+        assertEquals(50L, service.getAvailableTokens(TENANT, RequestPriority.HIGH));
+        assertTrue(service.tryConsume(TENANT, RequestPriority.HIGH));
+    }
+
+    @Test
+    void onlyHighPreemptsAPriorityWithWaiters() {
+        drainGlobal();
+        CompletableFuture<Void> lowWaiter = service.acquireAsync(TENANT, RequestPriority.LOW, WAIT);
+        drainOwn(RequestPriority.MEDIUM);
+        drainOwn(RequestPriority.HIGH);
+        buckets().getGlobalBucket().addTokens(2);
+
+        // LOW tiene tokens pero también peticiones esperando: MEDIUM no puede tomarlos prestados
+        assertFalse(service.tryConsume(TENANT, RequestPriority.MEDIUM));
+        assertTrue(service.tryConsume(TENANT, RequestPriority.HIGH));
+
+        Map<String, Object> metrics = service.getQueueMetrics().get(TENANT);
+        assertEquals(0L, metrics.get("borrowed"));
+        assertEquals(1L, metrics.get("preempted"));
+        assertEquals(199L, service.getAvailableTokens(TENANT, RequestPriority.LOW));
+        assertFalse(lowWaiter.isDone());
+    }
+
+    @Test
+    void rateLimitedHalvesTheLimitOncePerBurst() {
+        service.onRateLimited(TENANT, Duration.ZERO);
+        assertEquals(450, service.getCurrentLimit(TENANT));
+        assertEquals(450L, service.getAvailableTokens(TENANT));
+
+        // Segundo 429 dentro del cooldown: misma ráfaga, no se vuelve a reducir
+        service.onRateLimited(TENANT, Duration.ZERO);
+        assertEquals(450, service.getCurrentLimit(TENANT));
+        assertEquals(2L, ReflectionTestUtils.getField(buckets().getAdaptiveLimit(), "throttleEvents"));
+    }
+
+    @Test
+    void limitNeverDropsBelowTheFloor() {
+        List<Integer> limits = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            endDecreaseCooldown();
+            service.onRateLimited(TENANT, Duration.ZERO);
+            limits.add(service.getCurrentLimit(TENANT));
+        }
+
+        assertEquals(List.of(450, 225, 112, 100, 100), limits);
+    }
+
+    @Test
+    void pausedTenantWaitsForRetryAfter() throws Exception {
+        service.onRateLimited(TENANT, Duration.ofMillis(200));
+
+        assertFalse(service.tryConsume(TENANT, RequestPriority.HIGH));
+        CompletableFuture<Void> permit = service.acquireAsync(TENANT, RequestPriority.HIGH, WAIT);
+        assertFalse(permit.isDone());
+
+        permit.get(2, TimeUnit.SECONDS);
+        assertTrue(service.tryConsume(TENANT, RequestPriority.HIGH));
+    }
+
+    @Test
+    void missingRetryAfterPausesForTheDefault() {
+        service.onRateLimited(TENANT, null);
+
+        long pausedMs = TimeUnit.NANOSECONDS.toMillis(buckets().getAdaptiveLimit().remainingPauseNanos());
+        assertTrue(pausedMs > 1000 && pausedMs <= 2000, "pausedMs=" + pausedMs);
+    }
+
+    @Test
+    void quietTenantRecoversAdditively() {
+        service.onRateLimited(TENANT, Duration.ZERO);
+
+        ReflectionTestUtils.invokeMethod(service, "increaseLimits");
+        assertEquals(450, service.getCurrentLimit(TENANT));
+
+        ReflectionTestUtils.setField(buckets().getAdaptiveLimit(), "lastThrottledNanos",
+            System.nanoTime() - Duration.ofSeconds(61).toNanos());
+        ReflectionTestUtils.invokeMethod(service, "increaseLimits");
+
+        assertEquals(500, service.getCurrentLimit(TENANT));
+        // AS_IS: la subida no regala una ráfaga de tokens
+        assertEquals(450L, service.getAvailableTokens(TENANT));
+    }
+
+    private RateLimitService.TenantBuckets buckets() {
+        return ReflectionTestUtils.invokeMethod(service, "getOrCreateBuckets", TENANT);
+    }
+
+    /**
+     * Agota el presupuesto global del tenant (900/min, sin recarga durante el test)
+     */
+    private void drainGlobal() {
+        RateLimitService.TenantBuckets buckets = buckets();
+        buckets.getGlobalBucket().tryConsume(buckets.getGlobalBucket().getAvailableTokens());
+    }
+
+    /**
+     * Agota la garantía propia de una prioridad sin tocar el presupuesto global
+     */
+    private void drainOwn(RequestPriority priority) {
+        Bucket bucket = buckets().getPriorityBuckets().get(priority);
+        bucket.tryConsume(bucket.getAvailableTokens());
+    }
+
+    private void endDecreaseCooldown() {
+        ReflectionTestUtils.setField(buckets().getAdaptiveLimit(), "lastDecreaseNanos",
+            System.nanoTime() - Duration.ofSeconds(6).toNanos());
+    }
+
+    @SafeVarargs
+    private static List<Boolean> done(CompletableFuture<Void>... futures) {
+        List<Boolean> done = new ArrayList<>();
+        for (CompletableFuture<Void> future : futures) {
+            done.add(future.isDone());
+        }
+        return done;
+    }
+}
@@ -0,0 +1,169 @@
+package es.hargos.ritrack.service;
+
+import es.hargos.ritrack.dto.PaginatedResponseDto;
+import es.hargos.ritrack.dto.RiderFilterDto;
+import es.hargos.ritrack.dto.RiderSummaryDto;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RiderFilterPaginationTest {
+
+    private final RiderFilterService.CursorCodec codec = new RiderFilterService.CursorCodec("test-secret");
+
+    @Test
+    void sortKeyRoundTripsThroughCursor() {
+        List<RiderFilterService.SortKey> keys = List.of(
+                new RiderFilterService.SortKey(true, "José Núñez", 42),
+                new RiderFilterService.SortKey(false, null, 7),
+                new RiderFilterService.SortKey(false, "", 0),
+                new RiderFilterService.SortKey(true, "a:b:c", -1),
+                new RiderFilterService.SortKey(false, "-", 3),
+                new RiderFilterService.SortKey(true, "+plus", Integer.MAX_VALUE));
+
+        for (RiderFilterService.SortKey key : keys) {
+            String cursor = codec.encode(key);
+            assertTrue(cursor.matches("[A-Za-z0-9_-]+"), cursor);
+            assertEquals(key, codec.decode(cursor));
+        }
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        for (String cursor : List.of("", "%%%", encode("1:12:+Ana"), codec.seal("1:12"), codec.seal("2:12:+Ana"),
+                codec.seal("1:x:+Ana"), codec.seal("1:12:Ana"), codec.seal("1:12:"))) {
+            IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                    () -> codec.decode(cursor), cursor);
+            assertEquals("Cursor inválido", error.getMessage());
+        }
+    }
+
+    @Test
+    void cursorDoesNotRevealRiderName() {
+        RiderFilterService.SortKey key = new RiderFilterService.SortKey(true, "José Núñez", 42);
+        String cursor = codec.encode(key);
+
+        String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.ISO_8859_1);
+        assertFalse(decoded.contains("Jos"), decoded);
+        // IV aleatorio: la misma clave no produce siempre el mismo cursor
+        assertFalse(cursor.equals(codec.encode(key)));
+    }
+
+    @Test
+    void tamperedOrForeignCursorIsRejected() {
+        String cursor = codec.encode(new RiderFilterService.SortKey(true, "Ana", 42));
+        byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+        bytes[bytes.length - 1] ^= 1;
+        String tampered = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(tampered));
+        assertThrows(IllegalArgumentException.class,
+                () -> new RiderFilterService.CursorCodec("other-secret").decode(cursor));
+        assertThrows(IllegalArgumentException.class, () -> RiderFilterService.CursorCodec.random().decode(cursor));
+        assertEquals(new RiderFilterService.SortKey(true, "Ana", 42),
+                new RiderFilterService.CursorCodec("test-secret").decode(cursor));
+    }
+
+    @Test
+    void orderIsWorkingFirstThenNameNullsLastThenRiderId() {
+        List<RiderSummaryDto> riders = new ArrayList<>(List.of(
+                rider(5, null, "not_working"),
+                rider(4, "bob", "not_working"),
+                rider(3, "Ana", "not_working"),
+                rider(2, null, "working"),
+                rider(9, "ana", "working"),
+                rider(1, "ANA", "working")));
+
+        riders.sort(RiderFilterService::compareRiders);
+
+        assertEquals(List.of(1, 9, 2, 3, 4, 5), riders.stream().map(RiderSummaryDto::getRiderId).toList());
+    }
+
+    @Test
+    void offsetPagesMatchFullSort() {
+        List<RiderSummaryDto> riders = randomRiders(537, new Random(7));
+        List<RiderSummaryDto> sorted = new ArrayList<>(riders);
+        sorted.sort(RiderFilterService::compareRiders);
+
+        for (int page = 0; page * 25 < riders.size() + 25; page++) {
+            PaginatedResponseDto<RiderSummaryDto> response =
+                    RiderFilterService.optimizedPagination(riders, filters(page, 25, null), null, codec);
+
+            int from = Math.min(page * 25, sorted.size());
+            int to = Math.min(from + 25, sorted.size());
+            assertEquals(sorted.subList(from, to), response.getContent(), "page " + page);
+            assertEquals(riders.size(), response.getTotalElements());
+        }
+    }
+
+    @Test
+    void cursorWalkVisitsEveryRiderOnceInOrder() {
+        List<RiderSummaryDto> riders = randomRiders(1003, new Random(11));
+        List<RiderSummaryDto> sorted = new ArrayList<>(riders);
+        sorted.sort(RiderFilterService::compareRiders);
+        Collections.shuffle(riders, new Random(3));
+
+        List<RiderSummaryDto> walked = new ArrayList<>();
+        PaginatedResponseDto<RiderSummaryDto> response =
+                RiderFilterService.optimizedPagination(riders, filters(0, 100, null), null, codec);
+        walked.addAll(response.getContent());
+
+        while (response.getNextCursor() != null) {
+            String cursor = response.getNextCursor();
+            response = RiderFilterService.optimizedPagination(riders, filters(0, 100, cursor),
+                    codec.decode(cursor), codec);
+            assertFalse(response.getContent().isEmpty());
+            walked.addAll(response.getContent());
+        }
+
+        assertEquals(sorted, walked);
+        assertTrue(response.getLast());
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        List<RiderSummaryDto> riders = randomRiders(20, new Random(1));
+
+        PaginatedResponseDto<RiderSummaryDto> response =
+                RiderFilterService.optimizedPagination(riders, filters(1, 10, null), null, codec);
+
+        assertEquals(10, response.getContent().size());
+        assertNull(response.getNextCursor());
+        assertEquals(0, RiderFilterService.optimizedPagination(riders, filters(5, 10, null), null, codec)
+                .getContent().size());
+    }
+
+    private static List<RiderSummaryDto> randomRiders(int count, Random random) {
+        String[] names = {"Ana", "ana", "Bob", "José", "Zoë", null};
+        List<RiderSummaryDto> riders = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            // Nombres y estados repetidos: el desempate por riderId decide el orden
+            riders.add(rider(i + 1, names[random.nextInt(names.length)],
+                    random.nextBoolean() ? "working" : "not_working"));
+        }
+        return riders;
+    }
+
+    private static RiderSummaryDto rider(int riderId, String name, String status) {
+        return new RiderSummaryDto(riderId, name, null, null, null, status, 0, null, null);
+    }
+
+    private static RiderFilterDto filters(int page, int size, String cursor) {
+        return new RiderFilterDto(null, null, null, null, null, null, null, null, null, null, page, size, cursor);
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,150 @@
+package es.hargos.ritrack.service;
+
+import es.hargos.ritrack.client.GlovoClient;
+import es.hargos.ritrack.dto.RiderFilterDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RiderFilterServiceTest {
+
+    private static final Long TENANT = 1L;
+    private static final Long USER = 5L;
+    private static final Integer CITY = 10;
+    private static final List<Map<String, Object>> CITY_ROWS = List.of(Map.of("employee_id", 7, "name", "Ana"));
+
+    private GlovoClient glovoClient;
+    private RoosterCacheService roosterCache;
+    private RiderFilterService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        glovoClient = mock(GlovoClient.class);
+
+        roosterCache = mock(RoosterCacheService.class);
+        when(roosterCache.getSnapshot(TENANT)).thenReturn(new RoosterSnapshot(1L, Instant.now(), List.of()));
+
+        TenantSettingsService tenantSettingsService = mock(TenantSettingsService.class);
+        when(tenantSettingsService.getActiveCityIds(TENANT)).thenReturn(List.of(CITY));
+
+        service = new RiderFilterService(glovoClient, roosterCache, tenantSettingsService,
+                mock(UserCityService.class), new LiveCitySnapshotStore(90),
+                30, 200_000, 2_000, 20, 500_000, 15, 3, "test-secret");
+    }
+
+    @Test
+    void completeResultIsReusedForTheSameSearch() throws Exception {
+        when(glovoClient.getAllRidersFromCity(eq(TENANT), eq(CITY), anyInt(), anyString())).thenReturn(CITY_ROWS);
+
+        assertEquals(1, service.countRiders(TENANT, USER, new RiderFilterDto()));
+        assertEquals(1, service.countRiders(TENANT, USER, new RiderFilterDto()));
+
+        assertEquals(1, service.getMetrics().get("search_session_misses"));
+        assertEquals(1, service.getMetrics().get("search_session_hits"));
+    }
+
+    @Test
+    void partialResultIsNotReused() throws Exception {
+        when(glovoClient.getAllRidersFromCity(eq(TENANT), eq(CITY), anyInt(), anyString()))
+                .thenThrow(new IllegalStateException("Glovo no disponible"))
+                .thenReturn(CITY_ROWS);
+
+        // La ciudad falla: se devuelve lo que hay, pero la siguiente petición vuelve a buscar
+        assertEquals(0, service.countRiders(TENANT, USER, new RiderFilterDto()));
+        assertEquals(1, service.countRiders(TENANT, USER, new RiderFilterDto()));
+        assertEquals(1, service.countRiders(TENANT, USER, new RiderFilterDto()));
+
+        verify(glovoClient, times(2)).getAllRidersFromCity(eq(TENANT), eq(CITY), anyInt(), anyString());
+        assertEquals(2, service.getMetrics().get("search_session_misses"));
+        assertEquals(1, service.getMetrics().get("search_session_hits"));
+    }
+
+    @Test
+    void failedRoosterSnapshotIsNotReused() throws Exception {
+        when(glovoClient.getAllRidersFromCity(eq(TENANT), eq(CITY), anyInt(), anyString())).thenReturn(List.of());
+        when(roosterCache.getSnapshot(TENANT))
+                .thenThrow(new IllegalStateException("Rooster no disponible"))
+                .thenReturn(new RoosterSnapshot(1L, Instant.now(), List.of()));
+
+        service.countRiders(TENANT, USER, new RiderFilterDto());
+        service.countRiders(TENANT, USER, new RiderFilterDto());
+        service.countRiders(TENANT, USER, new RiderFilterDto());
+
+        assertEquals(2, service.getMetrics().get("search_session_misses"));
+        assertEquals(1, service.getMetrics().get("search_session_hits"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void cancelledStreamStopsDeliveringAndIsNotCached() throws Exception {
+        CountDownLatch glovoCalled = new CountDownLatch(1);
+        CountDownLatch glovoAnswers = new CountDownLatch(1);
+        when(glovoClient.getAllRidersFromCity(eq(TENANT), eq(CITY), anyInt(), anyString())).thenAnswer(invocation -> {
+            glovoCalled.countDown();
+            glovoAnswers.await(5, TimeUnit.SECONDS);
+            return CITY_ROWS;
+        });
+        Consumer<RiderFilterService.RiderBatch> onBatch = mock(Consumer.class);
+
+        CompletableFuture<RiderFilterService.SearchTotals> search =
+                service.streamRiders(TENANT, USER, new RiderFilterDto(), onBatch);
+        assertTrue(glovoCalled.await(5, TimeUnit.SECONDS));
+        search.cancel(false);
+        glovoAnswers.countDown();
+
+        // La ciudad responde después de cancelar: su lote ya no se entrega
+        verify(onBatch, after(300).never()).accept(any());
+
+        // Y el resultado parcial no se guardó: otra búsqueda igual vuelve a ejecutarse
+        Consumer<RiderFilterService.RiderBatch> nextBatch = mock(Consumer.class);
+        RiderFilterService.SearchTotals totals = service.streamRiders(TENANT, USER, new RiderFilterDto(), nextBatch)
+                .get(5, TimeUnit.SECONDS);
+        assertEquals(1, totals.totalElements());
+        assertEquals(2, service.getMetrics().get("search_session_misses"));
+        verify(nextBatch).accept(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void cancelledStreamDoesNotCallGlovoForCitiesWaitingForAPermit() throws Exception {
+        Semaphore apiPermits = (Semaphore) ReflectionTestUtils.getField(RiderFilterService.class, "API_SEMAPHORE");
+        int held = apiPermits.drainPermits();
+        try {
+            CompletableFuture<RiderFilterService.SearchTotals> search =
+                    service.streamRiders(TENANT, USER, new RiderFilterDto(), mock(Consumer.class));
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!apiPermits.hasQueuedThreads() && System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+            assertTrue(apiPermits.hasQueuedThreads());
+
+            search.cancel(false);
+        } finally {
+            apiPermits.release(held);
+        }
+
+        verify(glovoClient, after(300).never()).getAllRidersFromCity(any(), any(), anyInt(), anyString());
+    }
+}
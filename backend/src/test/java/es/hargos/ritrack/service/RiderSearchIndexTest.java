@@ -0,0 +1,195 @@
+package es.hargos.ritrack.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RiderSearchIndexTest {
+
+    private static final List<Map<String, Object>> ROWS = List.of(
+            row("José Martínez", "jose.martinez@ritrack.es", "+34 600 123 456"),
+            row("Jose Luis Pérez", "JLPEREZ@Gmail.com", "600-123-789"),
+            row("María Núñez", null, "(91) 555 01 02"),
+            row(null, "sin.nombre@ritrack.es", "699112233"),
+            row("Ana", "ana@ritrack.es", null),
+            row("Ángel García", "angel@ritrack.es", "+34-699-11-22-33"),
+            row("Zoë O'Brien", "zoe@ritrack.es", "ext. sin número"));
+
+    @Test
+    void nameMatchIgnoresCaseAndAccents() {
+        RiderSearchIndex index = RiderSearchIndex.forLiveRows(ROWS);
+
+        // Sin nombre (fila 3) no se descarta por el filtro de nombre
+        assertEquals(bits(0, 1, 3), index.match("jose", null, null));
+        assertEquals(bits(0, 1, 3), index.match("JOSÉ", null, null));
+        assertEquals(bits(2, 3), index.match("nunez", null, null));
+        assertEquals(bits(3, 5), index.match("angel gar", null, null));
+        assertEquals(bits(3), index.match("inexistente", null, null));
+    }
+
+    @Test
+    void shortQueriesScanFoldedText() {
+        RiderSearchIndex index = RiderSearchIndex.forLiveRows(ROWS);
+
+        assertEquals(bits(0, 2, 3, 4, 5), index.match("a", null, null));
+        assertEquals(bits(0, 2, 3), index.match("ma", null, null));
+        assertEquals(bits(0, 1, 2, 3, 5, 6), index.match("ë", null, null));
+        assertEquals(bits(0, 1, 2, 3, 4, 5, 6), index.match("", null, null));
+    }
+
+    @Test
+    void emailMatchIgnoresCaseAndKeepsRowsWithoutEmail() {
+        RiderSearchIndex index = RiderSearchIndex.forLiveRows(ROWS);
+
+        assertEquals(bits(1, 2), index.match(null, "gmail", null));
+        assertEquals(bits(0, 2, 3, 4, 5, 6), index.match(null, "@RITRACK.es", null));
+    }
+
+    @Test
+    void phoneMatchUsesDigitsAndDropsRowsWithoutPhone() {
+        RiderSearchIndex index = RiderSearchIndex.forLiveRows(ROWS);
+
+        assertEquals(bits(0, 1), index.match(null, null, "600123"));
+        assertEquals(bits(0, 1), index.match(null, null, "600 123"));
+        assertEquals(bits(3, 5), index.match(null, null, "11-22-33"));
+        assertEquals(bits(2), index.match(null, null, "0102"));
+        // Sin dígitos en la consulta: comparación literal
+        assertEquals(bits(6), index.match(null, null, "sin"));
+        assertEquals(new BitSet(), index.match(null, null, "999"));
+    }
+
+    @Test
+    void filtersAreCombined() {
+        RiderSearchIndex index = RiderSearchIndex.forLiveRows(ROWS);
+
+        assertEquals(bits(0), index.match("jose", "ritrack", "600"));
+        assertEquals(bits(3), index.match("zz", null, "699"));
+    }
+
+    @Test
+    void matchesFoldedContainsFilterOnRandomData() {
+        Random random = new Random(42);
+        String[] words = {"José", "jose", "María", "Núñez", "ÁNGEL", "ana", "Pérez", "o'brien", "li", "çelik", "Zoë"};
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            String name = random.nextInt(10) == 0 ? null
+                    : words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)];
+            String email = random.nextInt(10) == 0 ? null
+                    : words[random.nextInt(words.length)].toLowerCase(Locale.ROOT) + i + "@ritrack.es";
+            String phone = random.nextInt(10) == 0 ? null : randomPhone(random);
+            rows.add(row(name, email, phone));
+        }
+        RiderSearchIndex index = RiderSearchIndex.forLiveRows(rows);
+
+        List<String> nameQueries = new ArrayList<>(Arrays.asList("j", "jo", "jos", "jose", "JOSÉ", "nun", "ez", "a",
+                "an", "ñ", "'b", "celik", "zoe", "x", "", "jose ma", "jose jose"));
+        List<String> phoneQueries = List.of("6", "60", "600", "1-2", "+34", "34 6", "(9", "999999", "-", "0");
+
+        for (String name : nameQueries) {
+            for (String phone : phoneQueries) {
+                BitSet expected = new BitSet();
+                BitSet legacy = new BitSet();
+                for (int i = 0; i < rows.size(); i++) {
+                    if (foldedContains(rows.get(i), name, "ritrack", phone)) {
+                        expected.set(i);
+                    }
+                    if (legacyContains(rows.get(i), name, "ritrack", phone)) {
+                        legacy.set(i);
+                    }
+                }
+
+                BitSet actual = index.match(name, "ritrack", phone);
+                assertEquals(expected, actual, "name=" + name + " phone=" + phone);
+
+                // Todo lo que encontraba el filtro antiguo se sigue encontrando
+                BitSet lost = (BitSet) legacy.clone();
+                lost.andNot(actual);
+                assertTrue(lost.isEmpty(), "name=" + name + " phone=" + phone + " perdidos=" + lost);
+            }
+        }
+    }
+
+    @Test
+    void foldRemovesDiacritics() {
+        assertEquals("jose nunez", RiderSearchIndex.fold("José Núñez"));
+        assertEquals("angel", RiderSearchIndex.fold("ÁNGEL"));
+        assertEquals("plain@mail.com", RiderSearchIndex.fold("Plain@Mail.com"));
+    }
+
+    /**
+     * Filtro lineal de referencia con la semántica del índice: contains sobre texto plegado
+     * (sin valor no descarta) y teléfono comparado por dígitos (sin teléfono descarta)
+     */
+    private static boolean foldedContains(Map<String, Object> row, String name, String email, String phone) {
+        String riderName = (String) row.get("name");
+        if (name != null && riderName != null
+                && !RiderSearchIndex.fold(riderName).contains(RiderSearchIndex.fold(name))) {
+            return false;
+        }
+        String riderEmail = (String) row.get("email");
+        if (email != null && riderEmail != null
+                && !RiderSearchIndex.fold(riderEmail).contains(RiderSearchIndex.fold(email))) {
+            return false;
+        }
+        if (phone != null) {
+            String riderPhone = (String) row.get("phone_number");
+            if (riderPhone == null) {
+                return false;
+            }
+            String queryDigits = phone.replaceAll("\\D", "");
+            if (queryDigits.isEmpty()) {
+                return riderPhone.contains(phone);
+            }
+            return riderPhone.replaceAll("\\D", "").contains(queryDigits);
+        }
+        return true;
+    }
+
+    /**
+     * Filtro original (antes del índice): contains en minúsculas y teléfono literal
+     */
+    private static boolean legacyContains(Map<String, Object> row, String name, String email, String phone) {
+        String riderName = (String) row.get("name");
+        if (name != null && riderName != null && !riderName.toLowerCase().contains(name.toLowerCase())) {
+            return false;
+        }
+        String riderPhone = (String) row.get("phone_number");
+        if (phone != null && (riderPhone == null || !riderPhone.contains(phone))) {
+            return false;
+        }
+        String riderEmail = (String) row.get("email");
+        return email == null || riderEmail == null || riderEmail.toLowerCase().contains(email.toLowerCase());
+    }
+
+    private static String randomPhone(Random random) {
+        String[] formats = {"+34 6%02d %03d %03d", "6%02d-%03d-%03d", "(9%d) %03d %03d", "6%02d%03d%03d"};
+        return String.format(formats[random.nextInt(formats.length)],
+                random.nextInt(100), random.nextInt(1000), random.nextInt(1000));
+    }
+
+    private static Map<String, Object> row(String name, String email, String phone) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("name", name);
+        row.put("email", email);
+        row.put("phone_number", phone);
+        return row;
+    }
+
+    private static BitSet bits(int... positions) {
+        BitSet bits = new BitSet();
+        for (int position : positions) {
+            bits.set(position);
+        }
+        return bits;
+    }
+}
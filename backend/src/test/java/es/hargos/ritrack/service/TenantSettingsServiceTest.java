@@ -0,0 +1,101 @@
+package es.hargos.ritrack.service;
+
+import es.hargos.ritrack.entity.TenantEntity;
+import es.hargos.ritrack.entity.TenantSettingsEntity;
+import es.hargos.ritrack.repository.GlovoCredentialsRepository;
+import es.hargos.ritrack.repository.TenantRepository;
+import es.hargos.ritrack.repository.TenantSettingsRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TenantSettingsServiceTest {
+
+    private static final Long TENANT = 1L;
+
+    // Filas "confirmadas" que devuelve el repositorio
+    private final List<TenantSettingsEntity> committed = new ArrayList<>();
+    private TenantSettingsService service;
+
+    @BeforeEach
+    void setUp() {
+        TenantEntity tenant = new TenantEntity();
+        tenant.setId(TENANT);
+
+        TenantRepository tenantRepository = mock(TenantRepository.class);
+        when(tenantRepository.findById(TENANT)).thenReturn(Optional.of(tenant));
+
+        TenantSettingsRepository settingsRepository = mock(TenantSettingsRepository.class);
+        when(settingsRepository.findByTenantId(TENANT)).thenAnswer(invocation -> List.copyOf(committed));
+        when(settingsRepository.findByTenantIdAndSettingKey(any(), anyString())).thenReturn(Optional.empty());
+        when(settingsRepository.save(any())).thenAnswer(invocation -> {
+            committed.add(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+
+        service = new TenantSettingsService(settingsRepository, tenantRepository,
+                mock(GlovoCredentialsRepository.class), 100, 60);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void writeOutsideTransactionRebuildsOnNextRead() {
+        long before = service.getSnapshot(TENANT).getVersion();
+
+        service.saveSetting(TENANT, "rider_email_domain", "example.com");
+
+        assertEquals("example.com", service.getEmailDomain(TENANT));
+        assertTrue(service.getSnapshot(TENANT).getVersion() > before);
+    }
+
+    @Test
+    void writeInsideTransactionKeepsSnapshotUntilCommit() {
+        long before = service.getSnapshot(TENANT).getVersion();
+
+        TransactionSynchronizationManager.initSynchronization();
+        service.saveSetting(TENANT, "rider_email_domain", "example.com");
+
+        // Antes del commit se sigue sirviendo el snapshot anterior
+        assertEquals(before, service.getSnapshot(TENANT).getVersion());
+        assertEquals("ritrack", service.getEmailDomain(TENANT));
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+
+        assertEquals("example.com", service.getEmailDomain(TENANT));
+        assertTrue(service.getSnapshot(TENANT).getVersion() > before);
+    }
+
+    @Test
+    void rolledBackWriteKeepsPreviousSnapshot() {
+        long before = service.getSnapshot(TENANT).getVersion();
+
+        TransactionSynchronizationManager.initSynchronization();
+        service.saveSetting(TENANT, "rider_email_domain", "example.com");
+        committed.clear();
+        TransactionSynchronizationUtils.invokeAfterCompletion(
+                TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertEquals(before, service.getSnapshot(TENANT).getVersion());
+    }
+}